@@ -0,0 +1,84 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-population scoring: decide() over object pairs vs. decideAll() over
+ * DecisionColumns, serial and fork-join. Scores are per call, i.e. per
+ * {@code rows} decisions.
+ *
+ *   mvn -Pjmh compile exec:exec -Djmh.args="DecisionBatch -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecisionBatchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private DecisionEngine engine;
+    private PurchaseQuery[] queries;
+    private BudgetSnapshot[] snapshots;
+    private DecisionColumns columns;
+    private Decision[] scalarOut;
+    private byte[] out;
+
+    @Setup
+    public void setup() {
+        engine = new DecisionEngine();
+        queries = new PurchaseQuery[rows];
+        snapshots = new BudgetSnapshot[rows];
+        IntentType[] intents = IntentType.values();
+        SourceType[] sources = SourceType.values();
+        Random rnd = new Random(395);
+        for (int i = 0; i < rows; i++) {
+            long amount = rnd.nextInt(10) == 0 ? Money.NO_AMOUNT : 100 + rnd.nextInt(4000);
+            queries[i] = new PurchaseQuery(intents[rnd.nextInt(intents.length)], null, amount,
+                    sources[rnd.nextInt(sources.length)], "", false);
+            snapshots[i] = BudgetSnapshot.ofCents(
+                    4000 + rnd.nextInt(12000),
+                    rnd.nextInt(15000),
+                    15000 + rnd.nextInt(45000),
+                    rnd.nextInt(6000),
+                    10 + rnd.nextInt(10),
+                    rnd.nextInt(20));
+        }
+        columns = DecisionColumns.of(queries, snapshots);
+        scalarOut = new Decision[rows];
+        out = new byte[rows];
+
+        engine.decideAll(columns, out);
+        for (int i = 0; i < rows; i++) {
+            if (out[i] != engine.decide(queries[i], snapshots[i]).ordinal()) {
+                throw new IllegalStateException("decideAll disagrees with decide() at row " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object scalar() {
+        for (int i = 0; i < rows; i++) {
+            scalarOut[i] = engine.decide(queries[i], snapshots[i]);
+        }
+        return scalarOut;
+    }
+
+    @Benchmark
+    public Object columnar() {
+        engine.decideAll(columns, out);
+        return out;
+    }
+
+    @Benchmark
+    public Object columnarParallel() {
+        engine.decideAllParallel(columns, out);
+        return out;
+    }
+}
@@ -0,0 +1,113 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aho-Corasick lookup vs. the old "every entry, every alias, String.contains" loop.
+ *
+ * entries=30 is the real built-in lexicon; 1000 and 10000 pad it with
+ * synthetic merchants so the alias count grows roughly the way a full
+ * Uptown / University Circle / Cleveland catalog would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MerchantLexiconBenchmark {
+
+    @Param({"30", "1000", "10000"})
+    public int entries;
+
+    private static final String[] QUESTIONS = {
+            "Can I get Starbucks for $5?",
+            "Is it ok to get Chipotle for 12 dollars?",
+            "can i use a swipe at north dining hall tonight",
+            "How am I doing on my budget this week?",
+            "Where can I get groceries? maybe trader joe's or aldi",
+            "should i spend 30 bucks on a dinner out with friends"
+    };
+
+    private MerchantLexicon lexicon;
+    private AliasMatcher matcher;
+    private List<MerchantLexicon.Entry> entryList;
+    private String[] normalizedQuestions;
+
+    @Setup
+    public void setup() {
+        List<MerchantLexicon.Entry> list = new ArrayList<>(new MerchantLexicon().entries());
+        Random rnd = new Random(42);
+        while (list.size() < entries) {
+            String name = syntheticName(rnd, list.size());
+            list.add(new MerchantLexicon.Entry(name,
+                    List.of(name, name + " cle", name.split(" ")[0] + " " + list.size()),
+                    rnd.nextBoolean(), false));
+        }
+        entryList = list.subList(0, entries);
+        lexicon = new MerchantLexicon(entryList);
+        matcher = AliasMatcher.build(entryList);
+
+        normalizedQuestions = new String[QUESTIONS.length];
+        for (int i = 0; i < QUESTIONS.length; i++) {
+            normalizedQuestions[i] = Normalizer.normalize(QUESTIONS[i]);
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole bh) {
+        for (String q : QUESTIONS) {
+            bh.consume(lexicon.find(q));
+        }
+    }
+
+    @Benchmark
+    public void nestedLoop(Blackhole bh) {
+        for (String q : QUESTIONS) {
+            bh.consume(legacyFind(Normalizer.normalize(q)));
+        }
+    }
+
+    /** Matching only, normalization excluded, to isolate the two algorithms. */
+    @Benchmark
+    public void automatonMatchOnly(Blackhole bh) {
+        for (String q : normalizedQuestions) {
+            bh.consume(matcher.find(q));
+        }
+    }
+
+    @Benchmark
+    public void nestedLoopMatchOnly(Blackhole bh) {
+        for (String q : normalizedQuestions) {
+            bh.consume(legacyFind(q));
+        }
+    }
+
+    // Copy of the pre-automaton MerchantLexicon.find loop ("last entry wins").
+    private MerchantLexicon.Entry legacyFind(String normalized) {
+        MerchantLexicon.Entry best = null;
+        for (MerchantLexicon.Entry e : entryList) {
+            for (String alias : e.aliases()) {
+                if (normalized.contains(alias)) {
+                    best = e;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static String syntheticName(Random rnd, int i) {
+        String[] first = {"uptown", "coventry", "euclid", "larchmere", "little italy",
+                "ohio city", "tremont", "lakewood", "shaker", "cedar fairmount"};
+        String[] kind = {"pho", "tacos", "bagels", "grill", "noodle bar", "deli",
+                "pizza", "bakery", "ramen", "bbq", "market", "cafe"};
+        return first[rnd.nextInt(first.length)] + " " + kind[rnd.nextInt(kind.length)] + " " + i;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StringUtil.appendMoney vs. the old shared DecimalFormat("$0.00").
+ * Run with -prof gc for allocation per call, and -t 8 (or more) to see the
+ * shared formatter under contention; its output is only trustworthy at -t 1.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyFormatBenchmark {
+
+    // What StringUtil.money used before: one instance for every thread.
+    private static final DecimalFormat LEGACY = new DecimalFormat("$0.00");
+
+    private static final long[] CENTS = {500, 1250, 99, 1_234_567, 7, 100_000, 4_299, 31_415};
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        final StringBuilder sb = new StringBuilder(StringUtil.MAX_MONEY_CHARS);
+        int i;
+
+        long next() {
+            return CENTS[i++ & (CENTS.length - 1)];
+        }
+    }
+
+    @Setup
+    public void check() {
+        for (long cents : CENTS) {
+            String legacy = LEGACY.format(Money.toDollars(cents));
+            if (!legacy.equals(StringUtil.money(cents))) {
+                throw new IllegalStateException("appendMoney drifted from DecimalFormat for " + cents + ": " + legacy);
+            }
+        }
+    }
+
+    @Benchmark
+    public void sharedDecimalFormat(PerThread t, Blackhole bh) {
+        bh.consume(LEGACY.format(Money.toDollars(t.next())));
+    }
+
+    @Benchmark
+    public void appendMoney(PerThread t, Blackhole bh) {
+        t.sb.setLength(0);
+        bh.consume(StringUtil.appendMoney(t.sb, t.next()));
+    }
+
+    @Benchmark
+    public void moneyString(PerThread t, Blackhole bh) {
+        bh.consume(StringUtil.money(t.next()));
+    }
+}
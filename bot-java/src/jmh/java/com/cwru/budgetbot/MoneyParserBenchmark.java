@@ -0,0 +1,107 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hand-written MoneyParser scanner vs. the old regex + Double.parseDouble.
+ *
+ * "first" is the single-amount call IntentParser makes, "all" extracts every
+ * span. Run with -prof gc to see the allocation difference per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyParserBenchmark {
+
+    // Copy of the pre-rewrite MoneyParser pattern.
+    private static final Pattern LEGACY_PATTERN =
+            Pattern.compile("(\\$?)(\\d+(?:\\.\\d{1,2})?)\\s*(dollars?|bucks?)?",
+                    Pattern.CASE_INSENSITIVE);
+
+    @Param({"dollar", "multi", "none"})
+    public String input;
+
+    private String text;
+    private MoneyParser parser;
+
+    @Setup
+    public void setup() {
+        switch (input) {
+            case "multi":
+                text = "can i spend $12 at chipotle 2 times this week, or 30 bucks total?";
+                break;
+            case "none":
+                text = "where should i eat tonight if i want something cheap near north dining?";
+                break;
+            case "dollar":
+            default:
+                text = "is it ok if i spend $7.50 at starbucks?";
+                break;
+        }
+        parser = new MoneyParser();
+
+        List<Double> legacy = legacyAll(text);
+        List<MoneyParser.Result> current = parser.parseAll(text);
+        if (legacy.size() != current.size()) {
+            throw new IllegalStateException("Span count drifted from the regex version for: " + text);
+        }
+        for (int i = 0; i < legacy.size(); i++) {
+            if (legacy.get(i) != current.get(i).cents / 100.0) {
+                throw new IllegalStateException("Amount drifted from the regex version for: " + text);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scanFirst(Blackhole bh) {
+        bh.consume(parser.parse(text));
+    }
+
+    @Benchmark
+    public void regexFirst(Blackhole bh) {
+        bh.consume(legacyFirst(text));
+    }
+
+    @Benchmark
+    public void scanAll(Blackhole bh) {
+        bh.consume(parser.parseAll(text));
+    }
+
+    @Benchmark
+    public void regexAll(Blackhole bh) {
+        bh.consume(legacyAll(text));
+    }
+
+    // Old MoneyParser.parse: first match only.
+    private static Double legacyFirst(String text) {
+        Matcher m = LEGACY_PATTERN.matcher(text);
+        if (m.find()) {
+            try {
+                return Double.parseDouble(m.group(2));
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        return null;
+    }
+
+    // What every-span extraction would have cost with the regex.
+    private static List<Double> legacyAll(String text) {
+        List<Double> out = new ArrayList<>();
+        Matcher m = LEGACY_PATTERN.matcher(text);
+        while (m.find()) {
+            out.add(Double.parseDouble(m.group(2)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,66 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.Normalizer.Form;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass Normalizer vs. the old NFKD + replaceAll chain.
+ * Run with -prof gc to see the allocation difference per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizerBenchmark {
+
+    @Param({"ascii", "accented", "alias"})
+    public String input;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        switch (input) {
+            case "accented":
+                text = "Can I get a crème brûlée at Café Sittoo’s for $7.50?";
+                break;
+            case "alias":
+                text = "trader joes";
+                break;
+            case "ascii":
+            default:
+                text = "Is it OK to get Chipotle for 12 dollars, or should I swipe at North Dining?";
+                break;
+        }
+        if (!legacyNormalize(text).equals(Normalizer.normalize(text))) {
+            throw new IllegalStateException("Normalizer output drifted from the legacy version for: " + text);
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        bh.consume(Normalizer.normalize(text));
+    }
+
+    @Benchmark
+    public void regexChain(Blackhole bh) {
+        bh.consume(legacyNormalize(text));
+    }
+
+    // Copy of the pre-rewrite Normalizer.normalize.
+    private static String legacyNormalize(String s) {
+        if (s == null) return "";
+        return java.text.Normalizer.normalize(s, Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase()
+                .replace("’", "'")
+                .replaceAll("[^a-z0-9\\s]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+}
@@ -0,0 +1,163 @@
+package com.cwru.budgetbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of the parse -> decide -> respond pipeline in isolation, plus the
+ * whole thing end to end the way Main / AssistantController run it (minus the
+ * OpenAI call).
+ *
+ * Input is src/jmh/resources/questions.txt (3000 student questions) paired
+ * with a spread of budget snapshots. Every invocation handles one question and
+ * the cursor walks the corpus, so branch predictors and caches see the mix.
+ *
+ * Baselines are in bot-java/benchmarks/. Reproduce with:
+ *   mvn -Pjmh compile exec:exec -Djmh.args="Pipeline -prof gc -rf json -rff benchmarks/pipeline-new.json"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        MerchantLexicon lexicon;
+        MoneyParser moneyParser;
+        SwipeParser swipeParser;
+        IntentParser parser;
+        DecisionEngine engine;
+        BudgetBotResponder responder;
+
+        String[] questions;
+        String[] lowered;
+        BudgetSnapshot[] snapshots;
+        PurchaseQuery[] queries;
+        Decision[] decisions;
+
+        @Setup
+        public void load() throws IOException {
+            lexicon = new MerchantLexicon();
+            moneyParser = new MoneyParser();
+            swipeParser = new SwipeParser();
+            parser = new IntentParser(lexicon, moneyParser, swipeParser);
+            engine = new DecisionEngine();
+            responder = new BudgetBotResponder();
+
+            questions = readCorpus();
+            int n = questions.length;
+            lowered = new String[n];
+            snapshots = new BudgetSnapshot[n];
+            queries = new PurchaseQuery[n];
+            decisions = new Decision[n];
+
+            Random rnd = new Random(395);
+            for (int i = 0; i < n; i++) {
+                lowered[i] = questions[i].trim().toLowerCase(Locale.ROOT);
+                snapshots[i] = new BudgetSnapshot(
+                        40 + rnd.nextInt(120),
+                        rnd.nextInt(150),
+                        150 + rnd.nextInt(450),
+                        rnd.nextInt(60),
+                        10 + rnd.nextInt(10),
+                        rnd.nextInt(20));
+                queries[i] = parser.parse(questions[i]);
+                decisions[i] = engine.decide(queries[i], snapshots[i]);
+            }
+        }
+
+        private static String[] readCorpus() throws IOException {
+            List<String> lines = new ArrayList<>();
+            try (InputStream in = PipelineBenchmark.class.getResourceAsStream("/questions.txt")) {
+                if (in == null) {
+                    throw new IllegalStateException("questions.txt is missing from the jmh resources");
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) lines.add(line);
+                }
+            }
+            return lines.toArray(new String[0]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int next(int size) {
+            int current = i;
+            i = (current + 1 == size) ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    // ---------- stages in isolation ----------
+
+    @Benchmark
+    public Object tokenize(Corpus c, Cursor cur) {
+        return QuestionTokens.of(c.questions[cur.next(c.questions.length)]);
+    }
+
+    @Benchmark
+    public Object normalize(Corpus c, Cursor cur) {
+        return Normalizer.normalize(c.questions[cur.next(c.questions.length)]);
+    }
+
+    @Benchmark
+    public Object merchantLookup(Corpus c, Cursor cur) {
+        return c.lexicon.find(c.questions[cur.next(c.questions.length)]);
+    }
+
+    @Benchmark
+    public Object moneyParse(Corpus c, Cursor cur) {
+        return c.moneyParser.parse(c.lowered[cur.next(c.lowered.length)]);
+    }
+
+    @Benchmark
+    public Object sourceDetect(Corpus c, Cursor cur) {
+        int i = cur.next(c.queries.length);
+        PurchaseQuery q = c.queries[i];
+        return c.swipeParser.detectSource(c.lowered[i], q.getMerchant(), q.getAmountCents());
+    }
+
+    @Benchmark
+    public Object intentParse(Corpus c, Cursor cur) {
+        return c.parser.parse(c.questions[cur.next(c.questions.length)]);
+    }
+
+    @Benchmark
+    public Object decide(Corpus c, Cursor cur) {
+        int i = cur.next(c.queries.length);
+        return c.engine.decide(c.queries[i], c.snapshots[i]);
+    }
+
+    @Benchmark
+    public Object respond(Corpus c, Cursor cur) {
+        int i = cur.next(c.queries.length);
+        return c.responder.pickResponse(c.queries[i], c.decisions[i]);
+    }
+
+    // ---------- end to end ----------
+
+    @Benchmark
+    public Object endToEnd(Corpus c, Cursor cur) {
+        int i = cur.next(c.questions.length);
+        PurchaseQuery q = c.parser.parse(c.questions[i]);
+        Decision decision = c.engine.decide(q, c.snapshots[i]);
+        return c.responder.pickResponse(q, decision);
+    }
+}
@@ -0,0 +1,211 @@
+package com.cwru.budgetbot;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Closed-loop load test for /assistant/ask against a delayed LLM stub.
+ *
+ * Boots the Spring app in this JVM with openai.base-url pointing at LlmStub,
+ * keeps exactly --inflight asks outstanding for --seconds (every completion
+ * immediately sends the next one) and reports throughput, latency
+ * percentiles, live/peak platform threads and heap.
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.args="--inflight=1000 --delay-ms=500"
+ *   mvn -Pjava21,loadtest compile exec:exec -Dloadtest.args="--inflight=10000 --delay-ms=500 --virtual"
+ *
+ * 10k in-flight needs roughly 3 sockets per ask (client, server, upstream),
+ * so raise ulimit -n above 32k first.
+ */
+public class AskLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int inflight = Integer.parseInt(opts.getOrDefault("inflight", "1000"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "30"));
+        long delayMs = Long.parseLong(opts.getOrDefault("delay-ms", "500"));
+        long jitterMs = Long.parseLong(opts.getOrDefault("jitter-ms", "50"));
+        boolean virtual = opts.containsKey("virtual");
+        int port = Integer.parseInt(opts.getOrDefault("port", "18090"));
+
+        try (LlmStub stub = new LlmStub(0, delayMs, jitterMs)) {
+            ConfigurableApplicationContext app = startApp(stub.baseUrl(), port, virtual);
+            Environment env = app.getEnvironment();
+            System.out.printf("java %s, virtual threads requested=%s supported=%s, inflight=%d, stub delay=%dms%n",
+                    System.getProperty("java.version"), virtual, VirtualThreads.isSupported(), inflight, delayMs);
+            System.out.println("spring.threads.virtual.enabled=" + env.getProperty("spring.threads.virtual.enabled"));
+
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newFixedThreadPool(4))
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            URI uri = URI.create("http://127.0.0.1:" + port + "/assistant/ask");
+
+            // Warm-up: one short round so JIT and connection setup are out of the numbers.
+            runRound(client, uri, Math.min(inflight, 200), 3, null);
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+            threads.resetPeakThreadCount();
+
+            AtomicLong maxHeap = new AtomicLong();
+            ExecutorService sampler = Executors.newSingleThreadExecutor();
+            CountDownLatch stopSampler = new CountDownLatch(1);
+            sampler.submit(() -> {
+                while (stopSampler.getCount() > 0) {
+                    maxHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            Result r = runRound(client, uri, inflight, seconds, threads);
+            stopSampler.countDown();
+            sampler.shutdown();
+
+            System.out.println("---- results ----");
+            System.out.printf("completed=%d errors=%d timedOutLlm=%d over %ds%n", r.completed, r.errors, r.llmTimeouts, seconds);
+            System.out.printf("throughput=%.1f asks/s (ideal for this delay: %.1f)%n",
+                    r.completed / (double) seconds, inflight * 1000.0 / delayMs);
+            System.out.printf("latency ms: p50=%d p90=%d p99=%d max=%d%n",
+                    r.percentile(0.50), r.percentile(0.90), r.percentile(0.99), r.percentile(1.0));
+            System.out.printf("platform threads: live=%d peak=%d%n", r.liveThreadsAtEnd, threads.getPeakThreadCount());
+            System.out.printf("heap MB: before=%d peak=%d%n", heapBefore >> 20, maxHeap.get() >> 20);
+            System.out.println("stub requests=" + stub.requestCount());
+
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApp(String stubUrl, int port, boolean virtual) {
+        SpringApplication spring = new SpringApplication(BudgetBotApplication.class);
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", port);
+        props.put("openai.api.key", "stub-key");
+        props.put("openai.base-url", stubUrl);
+        props.put("assistant.llm.latency-budget-ms", 60_000);
+        props.put("spring.mvc.async.request-timeout", 120_000);
+        // Measures raw in-flight capacity, so no concurrency cap in front of the stub.
+        props.put("openai.limit.enabled", false);
+        props.put("server.tomcat.max-connections", 40_000);
+        props.put("server.tomcat.accept-count", 10_000);
+        props.put("spring.threads.virtual.enabled", virtual);
+        props.put("logging.level.root", "WARN");
+        spring.setDefaultProperties(props);
+        return spring.run();
+    }
+
+    private static final class Result {
+        long completed;
+        long errors;
+        long llmTimeouts;
+        int liveThreadsAtEnd;
+        long[] latencies;
+
+        long percentile(double p) {
+            if (latencies.length == 0) return 0;
+            int idx = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, idx)];
+        }
+    }
+
+    private static Result runRound(HttpClient client, URI uri, int inflight, int seconds,
+                                   ThreadMXBean threads) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong llmTimeouts = new AtomicLong();
+        AtomicInteger seq = new AtomicInteger();
+        // latency samples in ms, enough slots for any realistic run
+        AtomicLongArray samples = new AtomicLongArray(4_000_000);
+        AtomicInteger sampleCount = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(inflight);
+
+        for (int i = 0; i < inflight; i++) {
+            sendNext(client, uri, deadline, seq, completed, errors, llmTimeouts, samples, sampleCount, done);
+        }
+        done.await();
+
+        Result r = new Result();
+        r.completed = completed.get();
+        r.errors = errors.get();
+        r.llmTimeouts = llmTimeouts.get();
+        r.liveThreadsAtEnd = (threads != null) ? threads.getThreadCount() : 0;
+        int n = Math.min(sampleCount.get(), samples.length());
+        long[] lat = new long[n];
+        for (int i = 0; i < n; i++) lat[i] = samples.get(i);
+        Arrays.sort(lat);
+        r.latencies = lat;
+        return r;
+    }
+
+    private static void sendNext(HttpClient client, URI uri, long deadline, AtomicInteger seq,
+                                 AtomicLong completed, AtomicLong errors, AtomicLong llmTimeouts,
+                                 AtomicLongArray samples, AtomicInteger sampleCount, CountDownLatch done) {
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+        // Unique text per ask so coalescing/caching do not hide the upstream wait.
+        int n = seq.incrementAndGet();
+        String json = "{\"question\":\"Can I get Starbucks for $" + (3 + n % 9) + "? #" + n + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(120))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        completed.incrementAndGet();
+                        if (response.body().contains("\"llmTimedOut\":true")) {
+                            llmTimeouts.incrementAndGet();
+                        }
+                        int slot = sampleCount.getAndIncrement();
+                        if (slot < samples.length()) {
+                            samples.set(slot, (System.nanoTime() - start) / 1_000_000);
+                        }
+                    }
+                    sendNext(client, uri, deadline, seq, completed, errors, llmTimeouts, samples, sampleCount, done);
+                });
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,154 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Open-loop peak-hour load on OpenAIChatClient.getAdviceAsync, with and
+ * without micro-batching.
+ *
+ * --rate advice calls per second arrive for --seconds (questions parsed up
+ * front, each unique so coalescing does not merge them). The stub answers
+ * after --delay-ms, plus --item-ms per extra item in a batch, and allows
+ * only --max-concurrent requests at once (429 past that), standing in for
+ * the account's rate limit. --drop-rate of batched items are left out of
+ * the reply to exercise the per-item fallback.
+ *
+ * Reports answered calls per second, answer latency and upstream requests:
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.BatchScenario \
+ *       -Dloadtest.args="--batch=true --rate=300"
+ */
+public class BatchScenario {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        boolean batch = Boolean.parseBoolean(opts.getOrDefault("batch", "true"));
+        int rate = Integer.parseInt(opts.getOrDefault("rate", "300"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "20"));
+        long delayMs = Long.parseLong(opts.getOrDefault("delay-ms", "300"));
+        long itemMs = Long.parseLong(opts.getOrDefault("item-ms", "15"));
+        int maxConcurrent = Integer.parseInt(opts.getOrDefault("max-concurrent", "20"));
+        double dropRate = Double.parseDouble(opts.getOrDefault("drop-rate", "0.02"));
+        int maxItems = Integer.parseInt(opts.getOrDefault("max-items", "16"));
+        int maxWaitMs = Integer.parseInt(opts.getOrDefault("max-wait-ms", "5"));
+
+        try (LlmStub stub = new LlmStub(0, delayMs, delayMs / 10)) {
+            stub.setBatch(itemMs, dropRate);
+            stub.setMaxConcurrent(maxConcurrent);
+            SpringApplication spring = new SpringApplication(BudgetBotApplication.class);
+            Map<String, Object> props = new HashMap<>();
+            props.put("server.port", 0);
+            props.put("openai.api.key", "stub-key");
+            props.put("openai.base-url", stub.baseUrl());
+            props.put("openai.batch.enabled", batch);
+            // Only shared prompts are batched, and those come with the cache. A zero
+            // TTL keeps every ask a miss, so each one still reaches the model.
+            props.put("openai.cache.enabled", true);
+            props.put("openai.cache.ttl-seconds", 0);
+            props.put("openai.cache.tight-ttl-seconds", 0);
+            props.put("openai.batch.max-items", maxItems);
+            props.put("openai.batch.max-wait-ms", maxWaitMs);
+            props.put("logging.level.root", "WARN");
+            props.put("logging.level.com.cwru.budgetbot.OpenAIChatClient", "ERROR");
+            spring.setDefaultProperties(props);
+            ConfigurableApplicationContext app = spring.run();
+
+            OpenAIChatClient client = app.getBean(OpenAIChatClient.class);
+            IntentParser parser = app.getBean(IntentParser.class);
+            DecisionEngine engine = app.getBean(DecisionEngine.class);
+            BudgetSnapshot snap = BudgetSnapshot.demo();
+
+            int total = rate * seconds;
+            String[] questions = new String[total];
+            PurchaseQuery[] queries = new PurchaseQuery[total];
+            Decision[] decisions = new Decision[total];
+            for (int i = 0; i < total; i++) {
+                questions[i] = "Can I get Starbucks for $" + (3 + i % 9) + "? #" + i;
+                queries[i] = parser.parse(questions[i]);
+                decisions[i] = engine.decide(queries[i], snap);
+            }
+
+            long stubBefore = stub.requestCount();
+            AtomicLong answered = new AtomicLong();
+            AtomicLongArray latencies = new AtomicLongArray(total);
+            AtomicInteger next = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(total);
+
+            // 100 ticks a second, each starting its share of the calls.
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+            long start = System.nanoTime();
+            ticker.scheduleAtFixedRate(() -> {
+                long due = Math.min(total, (System.nanoTime() - start) * rate / 1_000_000_000L + 1);
+                int i;
+                while ((i = next.get()) < due && next.compareAndSet(i, i + 1)) {
+                    final int idx = i;
+                    long t0 = System.nanoTime();
+                    client.getAdviceAsync(questions[idx], queries[idx], decisions[idx], snap, "ok")
+                            .whenComplete((answer, error) -> {
+                                if (answer != null) {
+                                    answered.incrementAndGet();
+                                    latencies.set(idx, (System.nanoTime() - t0) / 1_000_000 + 1);
+                                }
+                                done.countDown();
+                            });
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+            done.await(seconds + 60L, TimeUnit.SECONDS);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            ticker.shutdownNow();
+
+            long[] lat = new long[total];
+            int n = 0;
+            for (int i = 0; i < total; i++) {
+                long v = latencies.get(i);
+                if (v > 0) lat[n++] = v - 1;
+            }
+            lat = Arrays.copyOf(lat, n);
+            Arrays.sort(lat);
+
+            String batchStats = new ObjectMapper().writeValueAsString(client.stats().get("batch"));
+            System.out.printf("batch=%s rate=%d/s for %ds, stub delay=%dms +%dms/item, max concurrent=%d, drop=%.0f%%%n",
+                    batch, rate, seconds, delayMs, itemMs, maxConcurrent, dropRate * 100);
+            System.out.printf("answered=%d of %d (%.1f%%), %.1f answers/s%n", n, total, 100.0 * n / total,
+                    n * 1000.0 / elapsedMs);
+            System.out.printf("answer latency ms p50=%d p90=%d p99=%d max=%d%n",
+                    pct(lat, 0.50), pct(lat, 0.90), pct(lat, 0.99), pct(lat, 1.0));
+            System.out.printf("upstream requests=%d (batched %d), throttled 429=%d%n",
+                    stub.requestCount() - stubBefore, stub.batchRequestCount(), stub.throttledCount());
+            System.out.println("batch stats=" + batchStats);
+            System.out.println("limiter=" + new ObjectMapper().writeValueAsString(client.stats().get("limiter")));
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    private static long pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)];
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,198 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives /assistant/ask through a failing and recovering LLM upstream and
+ * shows what the circuit breaker and concurrency limit do about it.
+ *
+ * Phases of --phase-seconds each, --clients closed-loop askers throughout:
+ *
+ *   healthy    stub answers after --delay-ms
+ *   errors     stub fails --error-rate of requests with HTTP 503
+ *   slow       stub answers after --slow-ms (past the slow-call threshold)
+ *   recovered  back to healthy
+ *
+ * Per phase: asks, how many got an LLM answer, latency percentiles, stub
+ * requests, and the breaker / limiter stats at the end of the phase.
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.BreakerScenario \
+ *       -Dloadtest.args="--clients=50 --phase-seconds=10"
+ */
+public class BreakerScenario {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "50"));
+        int phaseSeconds = Integer.parseInt(opts.getOrDefault("phase-seconds", "10"));
+        long delayMs = Long.parseLong(opts.getOrDefault("delay-ms", "200"));
+        long slowMs = Long.parseLong(opts.getOrDefault("slow-ms", "3000"));
+        double errorRate = Double.parseDouble(opts.getOrDefault("error-rate", "0.8"));
+        int port = Integer.parseInt(opts.getOrDefault("port", "18092"));
+        boolean protect = !opts.containsKey("unprotected");
+
+        try (LlmStub stub = new LlmStub(0, delayMs, delayMs / 10)) {
+            ConfigurableApplicationContext app = startApp(stub.baseUrl(), port, protect);
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newFixedThreadPool(4))
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            URI ask = URI.create("http://127.0.0.1:" + port + "/assistant/ask");
+            URI stats = URI.create("http://127.0.0.1:" + port + "/assistant/stats");
+            ObjectMapper mapper = new ObjectMapper();
+
+            System.out.printf("clients=%d phase=%ds delay=%dms slow=%dms errorRate=%.2f protection=%s%n",
+                    clients, phaseSeconds, delayMs, slowMs, errorRate, protect);
+            runPhase(client, ask, clients, 2);  // warm-up
+
+            String[] names = {"healthy", "errors", "slow", "recovered"};
+            for (String name : names) {
+                switch (name) {
+                    case "errors":
+                        stub.setErrors(errorRate, 503);
+                        break;
+                    case "slow":
+                        stub.setErrors(0, 503);
+                        stub.setDelay(slowMs, slowMs / 10);
+                        break;
+                    case "recovered":
+                        stub.setDelay(delayMs, delayMs / 10);
+                        break;
+                    default:
+                        break;
+                }
+                long stubBefore = stub.requestCount();
+                Phase p = runPhase(client, ask, clients, phaseSeconds);
+                JsonNode openai = mapper.readTree(client.send(HttpRequest.newBuilder(stats).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()).body()).path("openai");
+
+                System.out.printf("%-10s asks=%6d llmAnswered=%6d errors=%d  latency ms p50=%d p99=%d max=%d  stubRequests=%d%n",
+                        name, p.asks, p.llmAnswered, p.errors, p.percentile(0.50), p.percentile(0.99),
+                        p.percentile(1.0), stub.requestCount() - stubBefore);
+                System.out.printf("           breaker=%s%n           limiter=%s%n", openai.path("breaker"), openai.path("limiter"));
+            }
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApp(String stubUrl, int port, boolean protect) {
+        SpringApplication spring = new SpringApplication(BudgetBotApplication.class);
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", port);
+        props.put("openai.api.key", "stub-key");
+        props.put("openai.base-url", stubUrl);
+        props.put("assistant.llm.latency-budget-ms", 4000);
+        props.put("openai.breaker.enabled", protect);
+        props.put("openai.limit.enabled", protect);
+        // Short enough to see open -> half-open -> closed inside one phase.
+        props.put("openai.breaker.open-ms", 3000);
+        props.put("openai.breaker.slow-call-ms", 2000);
+        props.put("openai.limit.slow-call-ms", 2000);
+        props.put("logging.level.root", "WARN");
+        props.put("logging.level.com.cwru.budgetbot.CircuitBreaker", "INFO");
+        spring.setDefaultProperties(props);
+        return spring.run();
+    }
+
+    private static final class Phase {
+        long asks;
+        long llmAnswered;
+        long errors;
+        long[] latencies;
+
+        long percentile(double p) {
+            if (latencies.length == 0) return 0;
+            int idx = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, idx)];
+        }
+    }
+
+    private static Phase runPhase(HttpClient client, URI uri, int clients, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong asks = new AtomicLong();
+        AtomicLong answered = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicInteger seq = new AtomicInteger();
+        AtomicLongArray samples = new AtomicLongArray(1_000_000);
+        AtomicInteger sampleCount = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            sendNext(client, uri, deadline, seq, asks, answered, errors, samples, sampleCount, done);
+        }
+        done.await();
+
+        Phase p = new Phase();
+        p.asks = asks.get();
+        p.llmAnswered = answered.get();
+        p.errors = errors.get();
+        int n = Math.min(sampleCount.get(), samples.length());
+        long[] lat = new long[n];
+        for (int i = 0; i < n; i++) lat[i] = samples.get(i);
+        Arrays.sort(lat);
+        p.latencies = lat;
+        return p;
+    }
+
+    private static void sendNext(HttpClient client, URI uri, long deadline, AtomicInteger seq,
+                                 AtomicLong asks, AtomicLong answered, AtomicLong errors,
+                                 AtomicLongArray samples, AtomicInteger sampleCount, CountDownLatch done) {
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+        // Unique text per ask so coalescing does not hide the upstream.
+        int n = seq.incrementAndGet();
+        String json = "{\"question\":\"Can I get Starbucks for $" + (3 + n % 9) + "? #" + n + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        asks.incrementAndGet();
+                        if (!response.body().contains("\"llmMessage\":null")) {
+                            answered.incrementAndGet();
+                        }
+                        int slot = sampleCount.getAndIncrement();
+                        if (slot < samples.length()) {
+                            samples.set(slot, (System.nanoTime() - start) / 1_000_000);
+                        }
+                    }
+                    sendNext(client, uri, deadline, seq, asks, answered, errors, samples, sampleCount, done);
+                });
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
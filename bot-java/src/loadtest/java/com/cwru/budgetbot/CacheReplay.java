@@ -0,0 +1,127 @@
+package com.cwru.budgetbot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Replays a question log through the parse / decide pipeline and counts how
+ * many LLM calls each cache keying would have made:
+ *
+ *   none       every ask goes to the LLM
+ *   prompt     exact prompt (question text + snapshot numbers)
+ *   semantic   AdviceCache (canonical parse + amount bucket + health band)
+ *
+ * The log has questions only, so each ask is given to one of --users
+ * simulated students with random limits, whose spending grows as their
+ * YES purchases go through. Entries never expire during a replay (it runs
+ * in well under one TTL), so the numbers are for a --ttl-sized window of
+ * traffic; cap the log accordingly.
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.CacheReplay \
+ *       -Dloadtest.args="--log=src/jmh/resources/questions.txt --users=200"
+ */
+public class CacheReplay {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        Path log = Path.of(opts.getOrDefault("log", "src/jmh/resources/questions.txt"));
+        int users = Integer.parseInt(opts.getOrDefault("users", "200"));
+        int repeat = Integer.parseInt(opts.getOrDefault("repeat", "1"));
+        long seed = Long.parseLong(opts.getOrDefault("seed", "1"));
+        Set<IntentType> bypass = EnumSet.noneOf(IntentType.class);
+        for (String name : opts.getOrDefault("bypass", "").split(",")) {
+            if (!name.isBlank()) bypass.add(IntentType.valueOf(name.trim()));
+        }
+
+        List<String> questions = new ArrayList<>();
+        for (String line : Files.readAllLines(log)) {
+            if (!line.isBlank()) questions.add(line.trim());
+        }
+
+        IntentParser parser = new IntentParser(new MerchantLexicon(), new MoneyParser(), new SwipeParser());
+        DecisionEngine engine = new DecisionEngine();
+        AdviceCache cache = new AdviceCache(Integer.MAX_VALUE, Long.MAX_VALUE / 4, Long.MAX_VALUE / 4,
+                AdviceCache.DEFAULT_AMOUNT_BUCKETS, bypass);
+
+        Random random = new Random(seed);
+        long[][] students = new long[users][];
+        for (int u = 0; u < users; u++) {
+            students[u] = new long[] {
+                    (40 + random.nextInt(120)) * 100L,   // weekly personal budget
+                    random.nextInt(60) * 100L,           // personal spent
+                    (150 + random.nextInt(500)) * 100L,  // CaseCash semester total
+                    random.nextInt(40) * 100L,           // CaseCash spent this week
+                    10 + random.nextInt(11),             // swipes per week
+                    random.nextInt(8),                   // swipes used
+            };
+        }
+
+        Set<String> prompts = new HashSet<>();
+        Map<IntentType, long[]> byIntent = new HashMap<>();
+        long asks = 0;
+        long promptCalls = 0;
+        long semanticCalls = 0;
+        for (int round = 0; round < repeat; round++) {
+            for (String question : questions) {
+                long[] s = students[random.nextInt(users)];
+                BudgetSnapshot snap = BudgetSnapshot.ofCents(s[0], s[1], s[2], s[3], (int) s[4], (int) s[5]);
+                PurchaseQuery q = parser.parse(question);
+                Decision decision = engine.decide(q, snap);
+                asks++;
+
+                String prompt = question + '|' + s[0] + '|' + s[1] + '|' + s[2] + '|' + s[3] + '|' + s[4] + '|' + s[5];
+                if (prompts.add(prompt)) promptCalls++;
+
+                long[] counts = byIntent.computeIfAbsent(q.getIntent(), k -> new long[2]);
+                counts[0]++;
+                AdviceCache.Key key = cache.keyFor(question, q, decision, snap);
+                if (key == null || cache.get(key) == null) {
+                    semanticCalls++;
+                    counts[1]++;
+                    if (key != null) cache.put(key, "answer");
+                }
+
+                // Spending moves students between health bands as the replay goes on.
+                if (decision == Decision.YES && q.hasAmount()) {
+                    if (q.getSource() == SourceType.CASE_CASH) s[3] += q.getAmountCents();
+                    else s[1] += q.getAmountCents();
+                } else if (decision == Decision.YES && q.getSource() == SourceType.MEAL_SWIPE) {
+                    s[5]++;
+                }
+            }
+        }
+
+        System.out.printf("log=%s questions=%d repeat=%d users=%d bypass=%s%n", log, questions.size(), repeat, users, bypass);
+        System.out.printf("asks=%d%n", asks);
+        System.out.printf("LLM calls  none=%d  prompt=%d (%.1f%% saved)  semantic=%d (%.1f%% saved)%n",
+                asks, promptCalls, saved(asks, promptCalls), semanticCalls, saved(asks, semanticCalls));
+        System.out.printf("semantic cache entries=%d%n", cache.size());
+        for (Map.Entry<IntentType, long[]> e : byIntent.entrySet()) {
+            long[] c = e.getValue();
+            System.out.printf("  %-15s asks=%6d calls=%6d (%.1f%% saved)%n", e.getKey(), c[0], c[1], saved(c[0], c[1]));
+        }
+    }
+
+    private static double saved(long asks, long calls) {
+        return asks == 0 ? 0.0 : 100.0 * (asks - calls) / asks;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
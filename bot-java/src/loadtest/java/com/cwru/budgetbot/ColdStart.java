@@ -0,0 +1,111 @@
+package com.cwru.budgetbot;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Latency of the first LLM calls after startup, with and without the
+ * OpenAIChatClient connection warm-up.
+ *
+ * Boots the app against LlmStub, then sends --burst concurrent getAdviceAsync
+ * calls straight to OpenAIChatClient (questions parsed and decided up front,
+ * so only the client's cold path is timed), followed by a second, warm burst.
+ * The stub charges --handshake-ms on each new connection, standing in for
+ * TLS and round trips to the real API. Startup does not wait for the
+ * warm-up, so the first burst is sent once it has finished. Only the first
+ * burst in a JVM is cold, so run it once per setting:
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.ColdStart -Dloadtest.args="--warmup=false"
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.ColdStart -Dloadtest.args="--warmup=true"
+ */
+public class ColdStart {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        boolean warmup = Boolean.parseBoolean(opts.getOrDefault("warmup", "true"));
+        int burst = Integer.parseInt(opts.getOrDefault("burst", "8"));
+        int warmupConnections = Integer.parseInt(opts.getOrDefault("warmup-connections", Integer.toString(burst)));
+        long delayMs = Long.parseLong(opts.getOrDefault("delay-ms", "200"));
+        long handshakeMs = Long.parseLong(opts.getOrDefault("handshake-ms", "150"));
+        String version = opts.getOrDefault("version", "HTTP_2");
+
+        try (LlmStub stub = new LlmStub(0, delayMs, 0)) {
+            stub.setHandshakeDelay(handshakeMs);
+            SpringApplication spring = new SpringApplication(BudgetBotApplication.class);
+            Map<String, Object> props = new HashMap<>();
+            props.put("server.port", 0);
+            props.put("openai.api.key", "stub-key");
+            props.put("openai.base-url", stub.baseUrl());
+            props.put("openai.http.version", version);
+            props.put("openai.http.warmup.enabled", warmup);
+            props.put("openai.http.warmup.connections", warmupConnections);
+            props.put("openai.limit.enabled", false);
+            props.put("logging.level.root", "WARN");
+            props.put("logging.level.com.cwru.budgetbot.OpenAIChatClient", "INFO");
+            spring.setDefaultProperties(props);
+            ConfigurableApplicationContext app = spring.run();
+
+            OpenAIChatClient client = app.getBean(OpenAIChatClient.class);
+            IntentParser parser = app.getBean(IntentParser.class);
+            DecisionEngine engine = app.getBean(DecisionEngine.class);
+            BudgetSnapshot snap = BudgetSnapshot.demo();
+            client.warmup().handle((ok, e) -> null).join();
+
+            long[] first = burst(client, parser, engine, snap, burst, 0);
+            long[] second = burst(client, parser, engine, snap, burst, burst);
+            System.out.printf("warmup=%s (%d connections) version=%s burst=%d stub delay=%dms handshake=%dms%n",
+                    warmup, warmupConnections, version, burst, delayMs, handshakeMs);
+            report("cold burst", first);
+            report("warm burst", second);
+            System.out.println("stub connections=" + stub.connectionCount());
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    private static long[] burst(OpenAIChatClient client, IntentParser parser, DecisionEngine engine,
+                                BudgetSnapshot snap, int n, int offset) {
+        // Unique questions so coalescing does not merge the calls.
+        String[] questions = new String[n];
+        PurchaseQuery[] queries = new PurchaseQuery[n];
+        Decision[] decisions = new Decision[n];
+        for (int i = 0; i < n; i++) {
+            questions[i] = "Can I get Starbucks for $" + (3 + i % 9) + "? #" + (offset + i);
+            queries[i] = parser.parse(questions[i]);
+            decisions[i] = engine.decide(queries[i], snap);
+        }
+
+        long[] latencies = new long[n];
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[n];
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            long start = System.nanoTime();
+            calls[i] = client.getAdviceAsync(questions[i], queries[i], decisions[i], snap, "ok")
+                    .thenAccept(answer -> latencies[idx] = (System.nanoTime() - start) / 1_000_000);
+        }
+        CompletableFuture.allOf(calls).join();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String label, long[] sorted) {
+        System.out.printf("%s latency ms: p50=%d p99=%d max=%d%n", label,
+                sorted[sorted.length / 2], sorted[(int) Math.ceil(0.99 * sorted.length) - 1], sorted[sorted.length - 1]);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
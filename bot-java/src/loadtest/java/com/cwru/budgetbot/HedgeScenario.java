@@ -0,0 +1,153 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * /assistant/ask latency against an LLM stub with a long tail, with and
+ * without request hedging.
+ *
+ * The stub answers after --delay-ms (+/- --jitter-ms), and --tail-rate of
+ * requests take --tail-ms longer. --clients closed-loop askers run for
+ * --seconds after a warm-up that fills the hedger's latency histogram.
+ * Reports ask latency percentiles and how many extra upstream requests
+ * hedging cost. Run once with --hedge=false and once with --hedge=true:
+ *
+ *   mvn -Ploadtest compile exec:exec -Dloadtest.main=com.cwru.budgetbot.HedgeScenario \
+ *       -Dloadtest.args="--hedge=true --clients=20 --seconds=30"
+ */
+public class HedgeScenario {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        boolean hedge = Boolean.parseBoolean(opts.getOrDefault("hedge", "true"));
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "20"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "30"));
+        long delayMs = Long.parseLong(opts.getOrDefault("delay-ms", "200"));
+        long jitterMs = Long.parseLong(opts.getOrDefault("jitter-ms", "50"));
+        double tailRate = Double.parseDouble(opts.getOrDefault("tail-rate", "0.02"));
+        long tailMs = Long.parseLong(opts.getOrDefault("tail-ms", "2000"));
+        int port = Integer.parseInt(opts.getOrDefault("port", "18094"));
+
+        try (LlmStub stub = new LlmStub(0, delayMs, jitterMs)) {
+            stub.setTail(tailRate, tailMs);
+            SpringApplication spring = new SpringApplication(BudgetBotApplication.class);
+            Map<String, Object> props = new HashMap<>();
+            props.put("server.port", port);
+            props.put("openai.api.key", "stub-key");
+            props.put("openai.base-url", stub.baseUrl());
+            props.put("openai.hedge.enabled", hedge);
+            props.put("assistant.llm.latency-budget-ms", 10_000);
+            props.put("logging.level.root", "WARN");
+            spring.setDefaultProperties(props);
+            ConfigurableApplicationContext app = spring.run();
+
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newFixedThreadPool(4))
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            URI ask = URI.create("http://127.0.0.1:" + port + "/assistant/ask");
+            URI stats = URI.create("http://127.0.0.1:" + port + "/assistant/stats");
+
+            run(client, ask, clients, 10);  // warm-up: JIT, connections, histogram
+            long stubBefore = stub.requestCount();
+            long abandonedBefore = stub.abandonedCount();
+            long[] lat = run(client, ask, clients, seconds);
+            long upstream = stub.requestCount() - stubBefore;
+
+            String hedgeStats = new ObjectMapper().readTree(client.send(HttpRequest.newBuilder(stats).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body()).path("openai").path("hedge").toString();
+            System.out.printf("hedge=%s clients=%d delay=%d+/-%dms tail=%.1f%% +%dms%n",
+                    hedge, clients, delayMs, jitterMs, tailRate * 100, tailMs);
+            System.out.printf("asks=%d latency ms p50=%d p90=%d p99=%d p99.9=%d max=%d%n", lat.length,
+                    pct(lat, 0.50), pct(lat, 0.90), pct(lat, 0.99), pct(lat, 0.999), pct(lat, 1.0));
+            System.out.printf("upstream requests=%d (%.1f%% extra), abandoned by client=%d%n",
+                    upstream, 100.0 * (upstream - lat.length) / Math.max(1, lat.length),
+                    stub.abandonedCount() - abandonedBefore);
+            System.out.println("hedge stats=" + hedgeStats);
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    private static long pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)];
+    }
+
+    private static long[] run(HttpClient client, URI uri, int clients, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicInteger seq = new AtomicInteger();
+        AtomicLongArray samples = new AtomicLongArray(1_000_000);
+        AtomicInteger count = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            sendNext(client, uri, deadline, seq, samples, count, errors, done);
+        }
+        done.await();
+        if (errors.get() > 0) System.out.println("errors=" + errors.get());
+        int n = Math.min(count.get(), samples.length());
+        long[] lat = new long[n];
+        for (int i = 0; i < n; i++) lat[i] = samples.get(i);
+        Arrays.sort(lat);
+        return lat;
+    }
+
+    private static void sendNext(HttpClient client, URI uri, long deadline, AtomicInteger seq,
+                                 AtomicLongArray samples, AtomicInteger count, AtomicLong errors,
+                                 CountDownLatch done) {
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+        // Unique text per ask so coalescing does not merge calls.
+        int n = seq.incrementAndGet();
+        String json = "{\"question\":\"Can I get Starbucks for $" + (3 + n % 9) + "? #" + n + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        int slot = count.getAndIncrement();
+                        if (slot < samples.length()) {
+                            samples.set(slot, (System.nanoTime() - start) / 1_000_000);
+                        }
+                    }
+                    sendNext(client, uri, deadline, seq, samples, count, errors, done);
+                });
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) out.put(a.substring(2), "true");
+            else out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+}
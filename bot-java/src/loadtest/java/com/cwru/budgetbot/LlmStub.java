@@ -0,0 +1,316 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenAI Responses API.
+ *
+ * POST {base}/responses answers with a fixed Responses-shaped body after
+ * delayMs (+/- jitterMs). The delay is a scheduled callback, not a sleeping
+ * thread, so the stub itself can hold tens of thousands of requests open.
+ *
+ * With "stream": true in the request it answers with Server-Sent Events
+ * instead, spreading the text deltas evenly over the delay.
+ *
+ * Faults can be injected while it runs: setDelay changes the latency of
+ * new requests, and setErrors makes a share of them fail right away with
+ * the given HTTP status (like an overloaded upstream shedding load).
+ * setTail makes a share of requests slower by a fixed extra amount (the
+ * long tail real LLM latency has). setHandshakeDelay adds a one-off cost to the first request on each new
+ * connection, standing in for the TLS handshake and extra round trips a
+ * fresh connection to the real API pays.
+ *
+ * A JSON-mode request (a batch from BatchPrompt) gets one answer per
+ * element of the REQUESTS array in the prompt, takes batchItemMs longer per item after the
+ * first (output tokens are generated one after another), and can leave
+ * out a share of items (setBatch) to exercise the per-item fallback.
+ * setMaxConcurrent caps non-streaming requests in progress and answers
+ * 429 past it, like an account's rate limit.
+ *
+ * GET {base}/models answers 200 with an empty list (no delay beyond the
+ * handshake), for the client's connection warm-up.
+ *
+ * Standalone: java ... com.cwru.budgetbot.LlmStub [port] [delayMs] [jitterMs] [errorRate] [errorStatus]
+ * then run the app with openai.base-url=http://localhost:{port}/v1
+ */
+public class LlmStub implements AutoCloseable {
+
+    private static final String ANSWER = "Stub answer: that purchase looks fine for this week.";
+
+    private static final byte[] BODY = ("{\"output\":[{\"content\":[{\"type\":\"output_text\","
+            + "\"text\":\"" + ANSWER + "\"}]}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final byte[] ERROR_BODY = "{\"error\":{\"message\":\"stub injected error\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] MODELS_BODY = "{\"object\":\"list\",\"data\":[]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final String[] STREAM_TOKENS = ANSWER.split("(?<= )");
+
+    private final HttpServer server;
+    private final ScheduledExecutorService timer;
+    private volatile long delayMs;
+    private volatile long jitterMs;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile long handshakeDelayMs;
+    private volatile double tailRate;
+    private volatile long tailExtraMs;
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong batchRequests = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile int maxConcurrent;
+    private volatile long batchItemMs;
+    private volatile double batchDropRate;
+
+    public LlmStub(int port, long delayMs, long jitterMs) throws IOException {
+        this.delayMs = delayMs;
+        this.jitterMs = jitterMs;
+        this.timer = Executors.newScheduledThreadPool(1);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 16384);
+        this.server.setExecutor(Executors.newFixedThreadPool(4));
+        this.server.createContext("/v1/responses", this::handle);
+        this.server.createContext("/v1/models", this::models);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long errorCount() {
+        return errors.get();
+    }
+
+    /** Latency for requests that arrive from now on. */
+    public void setDelay(long delayMs, long jitterMs) {
+        this.delayMs = delayMs;
+        this.jitterMs = jitterMs;
+    }
+
+    /** This share (0..1) of new requests takes extraMs longer. */
+    public void setTail(double rate, long extraMs) {
+        this.tailExtraMs = extraMs;
+        this.tailRate = rate;
+    }
+
+    /** Extra latency per batched item after the first, and the share of items left out of a batch reply. */
+    public void setBatch(long itemMs, double dropRate) {
+        this.batchItemMs = itemMs;
+        this.batchDropRate = dropRate;
+    }
+
+    /** Answer 429 to non-streaming requests beyond this many in progress (0 = no cap). */
+    public void setMaxConcurrent(int max) {
+        this.maxConcurrent = max;
+    }
+
+    public long throttledCount() {
+        return throttled.get();
+    }
+
+    public long batchRequestCount() {
+        return batchRequests.get();
+    }
+
+    /** Responses the client had already given up on (e.g. a cancelled hedge). */
+    public long abandonedCount() {
+        return abandoned.get();
+    }
+
+    /** Extra delay for the first request on each connection. */
+    public void setHandshakeDelay(long delayMs) {
+        this.handshakeDelayMs = delayMs;
+    }
+
+    /** Distinct client connections seen so far. */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    /** Fail this share (0..1) of new requests immediately with the given status. */
+    public void setErrors(double rate, int status) {
+        this.errorStatus = status;
+        this.errorRate = rate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        double rate = errorRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            errors.incrementAndGet();
+            respond(exchange, errorStatus, ERROR_BODY);
+            return;
+        }
+        long delay = delayMs;
+        if (jitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+        }
+        delay = Math.max(0, delay) + handshakeDelay(exchange);
+        double tail = tailRate;
+        if (tail > 0 && ThreadLocalRandom.current().nextDouble() < tail) {
+            delay += tailExtraMs;
+        }
+
+        if (request.contains("\"stream\":true")) {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            long step = delay / STREAM_TOKENS.length;
+            for (int i = 0; i < STREAM_TOKENS.length; i++) {
+                final int idx = i;
+                timer.schedule(() -> streamToken(exchange, idx), step * (i + 1), TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        int cap = maxConcurrent;
+        if (cap > 0 && active.incrementAndGet() > cap) {
+            active.decrementAndGet();
+            throttled.incrementAndGet();
+            respond(exchange, 429, ERROR_BODY);
+            return;
+        }
+        byte[] body = BODY;
+        if (request.contains("json_object")) {
+            int items = countItems(request);
+            batchRequests.incrementAndGet();
+            delay += batchItemMs * Math.max(0, items - 1);
+            body = batchBody(items);
+        }
+        final byte[] reply = body;
+        timer.schedule(() -> {
+            try {
+                respond(exchange, 200, reply);
+            } finally {
+                if (cap > 0) active.decrementAndGet();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** Elements of the JSON array after "REQUESTS:" in the prompt; 0 if there is none. */
+    private static int countItems(String request) {
+        try {
+            String input = JSON.readTree(request).path("input").asText();
+            int at = input.lastIndexOf("REQUESTS:\n");
+            if (at < 0) return 0;
+            JsonNode items = JSON.readTree(input.substring(at + "REQUESTS:\n".length()));
+            return items.isArray() ? items.size() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Responses body whose output text is {"answers":[...]} for items 1..n, minus the dropped ones. */
+    private byte[] batchBody(int items) {
+        StringBuilder answers = new StringBuilder("{\"answers\":[");
+        boolean first = true;
+        for (int id = 1; id <= items; id++) {
+            if (batchDropRate > 0 && ThreadLocalRandom.current().nextDouble() < batchDropRate) continue;
+            if (!first) answers.append(',');
+            first = false;
+            answers.append("{\"id\":").append(id).append(",\"text\":\"").append(ANSWER).append("\"}");
+        }
+        answers.append("]}");
+        String text = answers.toString().replace("\\", "\\\\").replace("\"", "\\\"");
+        return ("{\"output\":[{\"content\":[{\"type\":\"output_text\",\"text\":\"" + text + "\"}]}]}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void models(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        timer.schedule(() -> respond(exchange, 200, MODELS_BODY), handshakeDelay(exchange), TimeUnit.MILLISECONDS);
+    }
+
+    /** handshakeDelayMs the first time a connection (client address + port) is seen, else 0. */
+    private long handshakeDelay(HttpExchange exchange) {
+        boolean fresh = connections.add(exchange.getRemoteAddress().toString());
+        return fresh ? handshakeDelayMs : 0;
+    }
+
+    private void streamToken(HttpExchange exchange, int idx) {
+        try {
+            OutputStream out = exchange.getResponseBody();
+            String delta = STREAM_TOKENS[idx].replace("\"", "\\\"");
+            String event = "event: response.output_text.delta\n"
+                    + "data: {\"type\":\"response.output_text.delta\",\"delta\":\"" + delta + "\"}\n\n";
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            if (idx == STREAM_TOKENS.length - 1) {
+                out.write(("event: response.completed\n"
+                        + "data: {\"type\":\"response.completed\"}\n\n").getBytes(StandardCharsets.UTF_8));
+                out.close();
+                exchange.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) {
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // client went away; nothing to do
+            abandoned.incrementAndGet();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timer.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18081;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        long jitter = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        int errorStatus = args.length > 4 ? Integer.parseInt(args[4]) : 503;
+        LlmStub stub = new LlmStub(port, delay, jitter);
+        stub.setErrors(errorRate, errorStatus);
+        System.out.println("LLM stub listening at " + stub.baseUrl() + " (delay " + delay + "ms +/- " + jitter
+                + "ms, errors " + errorRate + " -> HTTP " + errorStatus + ")");
+    }
+}
@@ -0,0 +1,88 @@
+package com.cwru.budgetbot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AIMD concurrency limit for calls to one upstream.
+ *
+ * tryAcquire never waits: past the limit it says no and the caller falls
+ * back (for the LLM, to the rule-based message). Each successful call that
+ * finished within slowCallMillis adds 1/limit, i.e. about +1 per limit's
+ * worth of calls, but only while at least half the limit is in use, so a
+ * quiet period does not inflate it. Until the first backoff each success
+ * adds a whole 1 instead (slow start), so a cold limit finds the real load
+ * in a few round trips rather than minutes.
+ *
+ * A failure or slow call multiplies the limit by backoff, once per round:
+ * calls that started before the last backoff do not back off again, so a
+ * burst of in-flight calls failing together (one upstream hiccup) costs one
+ * step, not one per call. The limit stays within [minLimit, maxLimit].
+ */
+public final class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoff;
+    private final long slowCallNanos;
+
+    // Guarded by "this".
+    private double limit;
+    private int inFlight;
+    private long rejected;
+    private long drops;
+    private boolean slowStart = true;
+    private long lastBackoffAt = System.nanoTime();
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double backoff, long slowCallMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoff = (backoff > 0 && backoff < 1) ? backoff : 0.9;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /** True if the call may go ahead; it must then end in onResult or cancel. */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /** Release a permit without a measurement (the call was never made). */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    /** startNanos is System.nanoTime() when the call was made. */
+    public synchronized void onResult(boolean success, long startNanos, long elapsedNanos) {
+        inFlight--;
+        if (!success || elapsedNanos > slowCallNanos) {
+            drops++;
+            if (startNanos - lastBackoffAt >= 0) {
+                limit = Math.max(minLimit, limit * backoff);
+                lastBackoffAt = System.nanoTime();
+                slowStart = false;
+            }
+        } else if (inFlight * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + (slowStart ? 1.0 : 1.0 / limit));
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("limit", (int) limit);
+        out.put("inFlight", inFlight);
+        out.put("rejected", rejected);
+        out.put("drops", drops);
+        out.put("slowStart", slowStart);
+        return out;
+    }
+}
@@ -0,0 +1,344 @@
+package com.cwru.budgetbot;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small in-process LRU cache for LLM answers, bounded by size and TTL.
+ *
+ * The key is the canonical parse, not the prompt: intent, canonical merchant,
+ * amount bucket, source, decision, cheap preference and a coarse budget-health
+ * band. So "can i grab sbux for 5" and "is $5 starbucks ok?" share an answer,
+ * and so do two students whose budgets are in the same shape.
+ *
+ * The raw question text is NOT part of the key. The one exception is
+ * UNKNOWN intent, where the LLM answers the question itself, so the
+ * normalized question is added to the key.
+ *
+ * Amount bucket: amounts are grouped by upper bounds (default $5, $10, $15,
+ * $20, $30, $50, $75, $100, $150, $250, $500, more). Because a bucket spans
+ * several amounts, the asker's own amount is written into a cached answer:
+ * on put, "$5.00" / "$5" in the answer become placeholders, and get fills
+ * them in with the current question's amount.
+ *
+ * Health band: for personal money, CaseCash (pace vs. expected-by-now, like
+ * DecisionEngine) and swipes, the share left: out (none), tight (under 25%),
+ * half (under 50%) or ok. A CAN_I_BUY answer is about the money it would
+ * come out of, so only that source's level is in the key; other intents
+ * (how am I doing, recommendations) get all three. A key whose band is
+ * tight or out gets the shorter tightTtl, since the student is near a limit
+ * and the numbers in the answer matter more.
+ *
+ * Intents in the bypass set are neither looked up nor stored.
+ *
+ * Because an answer is shared by everyone whose key matches, it must not be
+ * built from one student's exact figures: for a cacheable request the
+ * client sends the model only the bands in the key (see Key.bandLevels and
+ * OpenAIChatClient.buildSharedPrompt), never the snapshot numbers.
+ */
+public class AdviceCache {
+
+    /** Default amount bucket upper bounds, in cents. */
+    public static final long[] DEFAULT_AMOUNT_BUCKETS =
+            {500, 1000, 1500, 2000, 3000, 5000, 7500, 10000, 15000, 25000, 50000};
+
+    // Placeholders for the asker's amount inside a stored answer (private-use chars).
+    private static final char AMOUNT_FULL = '\uE000';   // "$5.00"
+    private static final char AMOUNT_SHORT = '\uE001';  // "$5"
+
+    private static final char[] LEVELS = {'0', '1', '2', '3'};
+    private static final int OUT = 0;
+    private static final int TIGHT = 1;
+    private static final int OK = 3;
+
+    /** Band level of a source that is not part of the key. */
+    public static final int NOT_IN_KEY = -1;
+
+    private static final String[] BAND_NAMES = {
+            "used up", "under 25% left", "under 50% left", "at least half left"};
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long tightTtlMillis;
+    private final long[] amountBuckets;
+    private final Set<IntentType> bypass;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // accessOrder=true turns LinkedHashMap into an LRU list; guarded by "this".
+    private final LinkedHashMap<String, CachedAnswer> map;
+
+    private static final class CachedAnswer {
+        final String text;
+        final long expiresAt;
+        final boolean hasAmount;
+
+        CachedAnswer(String text, long expiresAt, boolean hasAmount) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+            this.hasAmount = hasAmount;
+        }
+    }
+
+    /** Cache key for one advice request, plus what get/put need besides the text. */
+    public static final class Key {
+        final String text;
+        final long ttlMillis;
+        final long amountCents;
+        // Band level per source (personal, CaseCash, swipes); NOT_IN_KEY where the key ignores it.
+        final int[] levels;
+
+        Key(String text, long ttlMillis, long amountCents, int[] levels) {
+            this.text = text;
+            this.ttlMillis = ttlMillis;
+            this.amountCents = amountCents;
+            this.levels = levels;
+        }
+
+        /** Personal, CaseCash and swipes band levels (0 out .. 3 ok), NOT_IN_KEY for a source the key ignores. */
+        public int[] bandLevels() {
+            return levels.clone();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * @param amountBuckets ascending bucket upper bounds in cents
+     * @param bypass        intents that are never cached
+     */
+    public AdviceCache(int maxEntries, long ttlMillis, long tightTtlMillis,
+                       long[] amountBuckets, Set<IntentType> bypass) {
+        for (int i = 1; i < amountBuckets.length; i++) {
+            if (amountBuckets[i] <= amountBuckets[i - 1]) {
+                throw new IllegalArgumentException("Amount buckets must be ascending");
+            }
+        }
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.tightTtlMillis = Math.max(0, Math.min(tightTtlMillis, this.ttlMillis));
+        this.amountBuckets = amountBuckets.clone();
+        this.bypass = bypass.isEmpty() ? EnumSet.noneOf(IntentType.class) : EnumSet.copyOf(bypass);
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+                if (size() > AdviceCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Build the cache key for one advice request, or null if its intent bypasses the cache. */
+    public Key keyFor(String question, PurchaseQuery q, Decision decision, BudgetSnapshot snap) {
+        if (bypass.contains(q.getIntent())) {
+            bypassed.incrementAndGet();
+            return null;
+        }
+        int personal = level(snap.getWeeklyBudgetPersonalCents(), snap.getPersonalPaceSpentCents());
+        int caseCash = level(snap.getCaseCashPaceExpectedCents(), snap.getCaseCashPaceSpentCents());
+        int swipes = level(snap.getMealSwipesWeeklyTotal(), snap.getMealSwipesUsedThisWeek());
+        int[] levels = {personal, caseCash, swipes};
+        if (q.getIntent() == IntentType.CAN_I_BUY && q.getSource() != null) {
+            // Only the source being spent from; the others read as ok.
+            if (q.getSource() != SourceType.PERSONAL) {
+                personal = OK;
+                levels[0] = NOT_IN_KEY;
+            }
+            if (q.getSource() != SourceType.CASE_CASH) {
+                caseCash = OK;
+                levels[1] = NOT_IN_KEY;
+            }
+            if (q.getSource() != SourceType.MEAL_SWIPE) {
+                swipes = OK;
+                levels[2] = NOT_IN_KEY;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(q.getIntent()).append('|')
+                .append(q.getMerchant() == null ? "" : q.getMerchant().toLowerCase(Locale.ROOT)).append('|')
+                .append(q.hasAmount() ? Integer.toString(amountBucket(q.getAmountCents())) : "").append('|')
+                .append(q.getSource()).append('|')
+                .append(decision).append('|')
+                .append(q.isCheapPreference() ? 'c' : '-').append('|')
+                .append(LEVELS[personal]).append(LEVELS[caseCash]).append(LEVELS[swipes]);
+        if (q.getIntent() == IntentType.UNKNOWN) {
+            sb.append('|').append(Normalizer.normalize(question));
+        }
+        boolean tight = Math.min(personal, Math.min(caseCash, swipes)) <= TIGHT;
+        return new Key(sb.toString(), tight ? tightTtlMillis : ttlMillis,
+                q.hasAmount() ? q.getAmountCents() : Money.NO_AMOUNT, levels);
+    }
+
+    /** Cached answer for the key (with the key's amount filled in), or null on a miss / expired entry. */
+    public String get(Key key) {
+        long now = System.currentTimeMillis();
+        CachedAnswer cached;
+        synchronized (this) {
+            cached = map.get(key.text);
+            if (cached != null && cached.expiresAt <= now) {
+                map.remove(key.text);
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.hasAmount ? fillAmount(cached.text, key.amountCents) : cached.text;
+    }
+
+    public void put(Key key, String answer) {
+        if (answer == null) return; // never cache failures
+        String text = Money.isPresent(key.amountCents) ? markAmount(answer, key.amountCents) : answer;
+        CachedAnswer cached = new CachedAnswer(text, System.currentTimeMillis() + key.ttlMillis, text != answer);
+        synchronized (this) {
+            map.put(key.text, cached);
+        }
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBypassed() {
+        return bypassed.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /** Hit/miss counters in the same Map shape the controller already returns. */
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRate", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        out.put("bypassed", bypassed.get());
+        out.put("evictions", evictions.get());
+        out.put("size", size());
+        out.put("maxEntries", maxEntries);
+        return out;
+    }
+
+    // ---------- key parts ----------
+
+    /** Index of the first bucket whose upper bound is >= cents; amountBuckets.length for "more". */
+    int amountBucket(long cents) {
+        for (int i = 0; i < amountBuckets.length; i++) {
+            if (cents <= amountBuckets[i]) return i;
+        }
+        return amountBuckets.length;
+    }
+
+    /** 0 out, 1 tight (< 25% left), 2 half (< 50% left), 3 ok. No limit at all counts as ok. */
+    static int level(long limit, long used) {
+        if (limit <= 0) return OK;
+        long left = limit - used;
+        if (left <= 0) return OUT;
+        if (left < limit / 4) return TIGHT;
+        if (left < limit / 2) return 2;
+        return OK;
+    }
+
+    /** Words for a band level, for prompts. */
+    public static String bandName(int level) {
+        return BAND_NAMES[Math.max(OUT, Math.min(OK, level))];
+    }
+
+    // ---------- amount placeholders ----------
+
+    /**
+     * Replace "$d.cc" and (for whole dollars) "$d" spellings of cents in the
+     * answer with placeholders. Thousands separators are accepted. Returns
+     * the same instance if there was nothing to replace.
+     */
+    static String markAmount(String answer, long cents) {
+        String dollars = Long.toString(cents / 100);
+        int rest = (int) (cents % 100);
+        StringBuilder out = null;
+        int copied = 0;
+        for (int i = answer.indexOf('$'); i >= 0; i = answer.indexOf('$', i + 1)) {
+            // Digits (and commas) after '$' must spell the dollar part exactly.
+            int j = i + 1;
+            int matched = 0;
+            while (j < answer.length()) {
+                char c = answer.charAt(j);
+                if (c == ',' && matched > 0 && isDigit(answer, j + 1)) {
+                    j++;
+                } else if (c >= '0' && c <= '9' && matched < dollars.length() && dollars.charAt(matched) == c) {
+                    matched++;
+                    j++;
+                } else {
+                    break;
+                }
+            }
+            if (matched != dollars.length() || (j < answer.length() && isDigit(answer, j))) continue;
+
+            char mark;
+            int end;
+            if (j < answer.length() && answer.charAt(j) == '.' && isDigit(answer, j + 1) && isDigit(answer, j + 2)) {
+                int shown = (answer.charAt(j + 1) - '0') * 10 + (answer.charAt(j + 2) - '0');
+                if (shown != rest || isDigit(answer, j + 3)) continue;
+                mark = AMOUNT_FULL;
+                end = j + 3;
+            } else if (rest == 0 && !(j < answer.length() && answer.charAt(j) == '.' && isDigit(answer, j + 1))) {
+                mark = AMOUNT_SHORT;
+                end = j;
+            } else {
+                continue;
+            }
+            if (out == null) out = new StringBuilder(answer.length());
+            out.append(answer, copied, i).append(mark);
+            copied = end;
+            i = end - 1;
+        }
+        if (out == null) return answer;
+        return out.append(answer, copied, answer.length()).toString();
+    }
+
+    /** Put cents back where markAmount left placeholders. */
+    static String fillAmount(String text, long cents) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == AMOUNT_FULL || (c == AMOUNT_SHORT && cents % 100 != 0)) {
+                StringUtil.appendMoney(out, cents);
+            } else if (c == AMOUNT_SHORT) {
+                out.append('$').append(cents / 100);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isDigit(String s, int i) {
+        return i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9';
+    }
+}
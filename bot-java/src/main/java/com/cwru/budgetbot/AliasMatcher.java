@@ -0,0 +1,204 @@
+package com.cwru.budgetbot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over normalized merchant aliases.
+ *
+ * Built once from the lexicon entries, then {@link #find(String)} scans the
+ * normalized question in a single left-to-right pass and reports every alias
+ * occurrence (plain substring semantics, same as the old String.contains loop).
+ *
+ * Overlap rule: the LONGEST alias wins. If two hits have the same length, the
+ * one that appears first in the text wins. If the very same alias was
+ * registered by more than one entry, the entry added first keeps it.
+ *
+ * So "north dining hall" resolves to North Dining Hall, not Dining Hall,
+ * no matter what order the entries were added in.
+ */
+public final class AliasMatcher {
+
+    private static final int ROOT = 0;
+
+    // Sparse transitions, CSR style: state s owns labels/targets in
+    // [first[s], first[s + 1]), sorted by label. A handful of flat arrays
+    // instead of two small arrays per state keeps a rebuild of a large
+    // catalog (see MerchantLexicon.reload) cheap for the garbage collector.
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] first;
+    private final int[] fail;
+
+    // Longest alias that ends in each state (own or via failure links), -1 if none.
+    private final int[] output;
+
+    private final MerchantLexicon.Entry[] patternEntries;
+    private final int[] patternLengths;
+
+    private AliasMatcher(char[] labels,
+                         int[] targets,
+                         int[] first,
+                         int[] fail,
+                         int[] output,
+                         MerchantLexicon.Entry[] patternEntries,
+                         int[] patternLengths) {
+        this.labels = labels;
+        this.targets = targets;
+        this.first = first;
+        this.fail = fail;
+        this.output = output;
+        this.patternEntries = patternEntries;
+        this.patternLengths = patternLengths;
+    }
+
+    /** Compile every normalized alias of every entry into one automaton. */
+    public static AliasMatcher build(List<MerchantLexicon.Entry> entries) {
+        // Dedupe aliases up front; first entry to register an alias keeps it.
+        Map<String, MerchantLexicon.Entry> patterns = new LinkedHashMap<>();
+        int totalChars = 0;
+        for (MerchantLexicon.Entry e : entries) {
+            for (String alias : e.aliases()) {
+                if (!alias.isEmpty() && patterns.putIfAbsent(alias, e) == null) {
+                    totalChars += alias.length();
+                }
+            }
+        }
+
+        // Trie as first-child / next-sibling lists, siblings kept sorted by
+        // label. Every state but the root is reached by exactly one alias
+        // character, so totalChars + 1 bounds the state count.
+        int cap = totalChars + 1;
+        char[] edge = new char[cap];      // label on the edge into the state
+        int[] child = new int[cap];
+        int[] sibling = new int[cap];
+        int[] terminal = new int[cap];
+        Arrays.fill(child, -1);
+        Arrays.fill(sibling, -1);
+        Arrays.fill(terminal, -1);
+        int n = 1;
+
+        MerchantLexicon.Entry[] patternEntries = new MerchantLexicon.Entry[patterns.size()];
+        int[] patternLengths = new int[patterns.size()];
+
+        int p = 0;
+        for (Map.Entry<String, MerchantLexicon.Entry> pattern : patterns.entrySet()) {
+            String alias = pattern.getKey();
+            int state = ROOT;
+            for (int i = 0; i < alias.length(); i++) {
+                char c = alias.charAt(i);
+                int prev = -1;
+                int cur = child[state];
+                while (cur >= 0 && edge[cur] < c) {
+                    prev = cur;
+                    cur = sibling[cur];
+                }
+                if (cur < 0 || edge[cur] != c) {
+                    int fresh = n++;
+                    edge[fresh] = c;
+                    sibling[fresh] = cur;
+                    if (prev < 0) child[state] = fresh; else sibling[prev] = fresh;
+                    cur = fresh;
+                }
+                state = cur;
+            }
+            terminal[state] = p;
+            patternEntries[p] = pattern.getValue();
+            patternLengths[p] = alias.length();
+            p++;
+        }
+
+        // Flatten into CSR; there is one edge per non-root state.
+        char[] labels = new char[n - 1];
+        int[] targets = new int[n - 1];
+        int[] first = new int[n + 1];
+        int k = 0;
+        for (int s = 0; s < n; s++) {
+            first[s] = k;
+            for (int c = child[s]; c >= 0; c = sibling[c]) {
+                labels[k] = edge[c];
+                targets[k] = c;
+                k++;
+            }
+        }
+        first[n] = k;
+
+        // BFS to wire failure links and fold outputs down the failure chain.
+        int[] fail = new int[n];
+        int[] output = new int[n];
+        output[ROOT] = -1;
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = first[ROOT]; i < first[ROOT + 1]; i++) {
+            int c = targets[i];
+            fail[c] = ROOT;
+            output[c] = terminal[c];
+            queue[tail++] = c;
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int i = first[s]; i < first[s + 1]; i++) {
+                char c = labels[i];
+                int to = targets[i];
+
+                int f = fail[s];
+                int next;
+                while ((next = step(labels, targets, first, f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[to] = (next < 0) ? ROOT : next;
+
+                int own = terminal[to];
+                // A state's own alias is always longer than anything on its failure chain.
+                output[to] = (own >= 0) ? own : output[fail[to]];
+                queue[tail++] = to;
+            }
+        }
+
+        return new AliasMatcher(labels, targets, first, fail, output, patternEntries, patternLengths);
+    }
+
+    /**
+     * Scan already-normalized text once and return the winning entry,
+     * or null if no alias occurs in it.
+     */
+    public MerchantLexicon.Entry find(String normalized) {
+        int state = ROOT;
+        int bestPattern = -1;
+        int bestLength = 0;
+
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            int next;
+            while ((next = step(labels, targets, first, state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = (next < 0) ? ROOT : next;
+
+            int hit = output[state];
+            // Strictly longer only, so the earlier hit keeps a tie.
+            if (hit >= 0 && patternLengths[hit] > bestLength) {
+                bestPattern = hit;
+                bestLength = patternLengths[hit];
+            }
+        }
+        return (bestPattern < 0) ? null : patternEntries[bestPattern];
+    }
+
+    /** Number of distinct aliases compiled into the automaton. */
+    public int size() {
+        return patternEntries.length;
+    }
+
+    private static int step(char[] labels, int[] targets, int[] first, int state, char c) {
+        // Fan-out is tiny (normalized text is [a-z0-9 ]), a linear scan beats binary search here.
+        for (int i = first[state], end = first[state + 1]; i < end; i++) {
+            if (labels[i] == c) return targets[i];
+            if (labels[i] > c) break;
+        }
+        return -1;
+    }
+}
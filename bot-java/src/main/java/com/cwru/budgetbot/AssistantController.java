@@ -1,10 +1,29 @@
 package com.cwru.budgetbot;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 /**
  * REST controller for the chatbot API.
@@ -12,48 +31,90 @@ import java.util.Map;
  * POST /assistant/ask
  * Body: AssistantRequest (question + optional budget fields)
  * Response: JSON with parsed data, decision, and an LLM-generated message.
+ *
+ * With the ledger enabled, a "userId" the ledger knows replaces the budget
+ * fields with the ledger's own totals (see LedgerService), but only when the
+ * request carries the server's X-Ledger-Token; from anyone else "userId" is
+ * ignored, so a browser cannot read another student's ledger through it.
+ *
+ * The request is handled asynchronously: no servlet thread waits on OpenAI.
+ * If the LLM does not answer within assistant.llm.latency-budget-ms, the
+ * rule-based message is returned right away with "llmTimedOut": true.
+ *
+ * POST /assistant/ask/stream
+ * Same body; Server-Sent Events with the rule-based answer first, then LLM tokens.
+ * The LLM gets the same latency budget; the upstream stream is cancelled
+ * when that runs out or the client goes away.
+ *
+ * POST /assistant/ask/batch
+ * Body: BatchRequest (questions + one snapshot or a list of snapshots)
+ * Response: JSON with one result per (snapshot, question), in order.
+ *
+ * GET /assistant/stats
+ * Response: JSON with OpenAI client counters (cache hits/misses, ...) and,
+ * when enabled, ledger counters.
  */
 @RestController
 @RequestMapping("/assistant")
 public class AssistantController {
 
+    // Outcome of one /ask/batch item's LLM call; LLM_PENDING items never finished.
+    private static final int LLM_PENDING = 0;
+    private static final int LLM_DONE = 1;
+    private static final int LLM_TIMED_OUT = 2;
+
     private final IntentParser intentParser;
     private final DecisionEngine decisionEngine;
     private final BudgetBotResponder responder;
     private final OpenAIChatClient openAIChatClient;
+    private final LedgerService ledgerService;
+
+    // End-to-end time we are willing to wait for the LLM before answering without it.
+    @Value("${assistant.llm.latency-budget-ms:4000}")
+    private long llmLatencyBudgetMs;
+
+    // Upper bound on snapshots x questions per /ask/batch call.
+    @Value("${assistant.batch.max-items:100000}")
+    private int batchMaxItems;
+
+    // Max concurrent LLM calls for one /ask/batch call with "llm": true.
+    @Value("${assistant.batch.llm-concurrency:4}")
+    private int batchLlmConcurrency;
+
+    // Upper bound on items per /ask/batch call with "llm": true; each one is a paid call.
+    @Value("${assistant.batch.llm-max-items:20}")
+    private int batchLlmMaxItems;
+
+    // Whole-call deadline for the LLM step of /ask/batch; items not answered by then get none.
+    @Value("${assistant.batch.llm-timeout-ms:20000}")
+    private long batchLlmTimeoutMs;
+
+    // How long a /ask/stream connection may stay open in total.
+    @Value("${assistant.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
 
     @Autowired
     public AssistantController(IntentParser intentParser,
                                DecisionEngine decisionEngine,
                                BudgetBotResponder responder,
-                               OpenAIChatClient openAIChatClient) {
+                               OpenAIChatClient openAIChatClient,
+                               LedgerService ledgerService) {
         this.intentParser = intentParser;
         this.decisionEngine = decisionEngine;
         this.responder = responder;
         this.openAIChatClient = openAIChatClient;
+        this.ledgerService = ledgerService;
     }
 
     @PostMapping("/ask")
-    public Map<String, Object> ask(@RequestBody AssistantRequest request) {
+    public CompletableFuture<Map<String, Object>> ask(
+            @RequestHeader(value = LedgerService.TOKEN_HEADER, required = false) String ledgerToken,
+            @RequestBody AssistantRequest request) {
 
         String question = request.getQuestion() == null ? "" : request.getQuestion().trim();
 
         // 1) Build BudgetSnapshot from request (with safe defaults if fields are missing)
-        double weeklyBudgetPersonal   = orDefault(request.getWeeklyBudgetPersonal(),   80.0);
-        double spentThisWeekPersonal  = orDefault(request.getSpentThisWeekPersonal(),  35.0);
-        double caseCashTotalSemester  = orDefault(request.getCaseCashTotalSemester(),  300.0);
-        double caseCashSpentThisWeek  = orDefault(request.getCaseCashSpentThisWeek(), 15.0);
-        int    mealSwipesWeeklyTotal  = orDefault(request.getMealSwipesWeeklyTotal(), 17);
-        int    mealSwipesUsedThisWeek = orDefault(request.getMealSwipesUsedThisWeek(), 5);
-
-        BudgetSnapshot snapshot = new BudgetSnapshot(
-                weeklyBudgetPersonal,
-                spentThisWeekPersonal,
-                caseCashTotalSemester,
-                caseCashSpentThisWeek,
-                mealSwipesWeeklyTotal,
-                mealSwipesUsedThisWeek
-        );
+        BudgetSnapshot snapshot = snapshotFrom(request, ledgerToken);
 
         // 2) Parse the natural language question into a PurchaseQuery
         PurchaseQuery q = intentParser.parse(question);
@@ -64,9 +125,271 @@ public class AssistantController {
         // 4) Let the original responder generate a suggestion message
         String botMessage = responder.pickResponse(q, decision);
 
-        // 5) Call OpenAI with the question + structured data + botMessage
-        String llmMessage = openAIChatClient.getAdvice(question, q, decision, snapshot, botMessage);
+        // 5) Call OpenAI with the question + structured data + botMessage,
+        //    but never wait longer than the latency budget for it
+        return openAIChatClient.getAdviceAsync(question, q, decision, snapshot, botMessage)
+                .orTimeout(llmLatencyBudgetMs, TimeUnit.MILLISECONDS)
+                .handle((llmMessage, error) -> {
+                    boolean timedOut = error != null && unwrap(error) instanceof TimeoutException;
+                    return buildResult(q, decision, botMessage, error == null ? llmMessage : null, timedOut);
+                });
+    }
+
+    /**
+     * Streaming version of /ask (Server-Sent Events).
+     *
+     *   event "answer": parsed intent/merchant/amount/source, decision and the
+     *                   rule-based botMessage, sent immediately
+     *   event "token":  {"text": "..."} for each LLM fragment as it arrives
+     *   event "done":   {"message", "llmMessage", "llmTimedOut"} once the LLM
+     *                   is finished (llmMessage is null when there is no LLM
+     *                   answer), or with the rule-based message and
+     *                   llmTimedOut true once the latency budget is spent
+     *
+     * When the emitter ends early (client disconnect, stream timeout, send
+     * error) the upstream OpenAI stream is cancelled with it.
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askStream(
+            @RequestHeader(value = LedgerService.TOKEN_HEADER, required = false) String ledgerToken,
+            @RequestBody AssistantRequest request) {
+
+        String question = request.getQuestion() == null ? "" : request.getQuestion().trim();
+        BudgetSnapshot snapshot = snapshotFrom(request, ledgerToken);
+        PurchaseQuery q = intentParser.parse(question);
+        Decision decision = decisionEngine.decide(q, snapshot);
+        String botMessage = responder.pickResponse(q, decision);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        Map<String, Object> answer = new LinkedHashMap<>();
+        answer.put("source",     q.getSource() != null ? q.getSource().name() : null);
+        answer.put("intent",     q.getIntent() != null ? q.getIntent().name() : null);
+        answer.put("merchant",   q.getMerchant());
+        answer.put("amount",     q.getAmount());
+        answer.put("decision",   decision != null ? decision.toString() : null);
+        answer.put("botMessage", botMessage);
+        if (!sendEvent(emitter, "answer", answer)) {
+            return emitter;
+        }
 
+        CompletableFuture<String> llm = openAIChatClient.streamAdvice(question, q, decision, snapshot, botMessage,
+                delta -> sendEvent(emitter, "token", Map.of("text", delta)));
+        // Nobody left to read the tokens: stop paying for them.
+        emitter.onCompletion(() -> llm.cancel(true));
+        emitter.onTimeout(() -> llm.cancel(true));
+        emitter.onError(e -> llm.cancel(true));
+
+        llm.orTimeout(llmLatencyBudgetMs, TimeUnit.MILLISECONDS)
+                .handle((llmMessage, error) -> {
+                    boolean timedOut = error != null && unwrap(error) instanceof TimeoutException;
+                    if (error != null && !timedOut) {
+                        return null;  // cancelled: the emitter is already done
+                    }
+                    String message = (error == null) ? llmMessage : null;
+                    Map<String, Object> done = new LinkedHashMap<>();
+                    done.put("message", message != null ? message : botMessage);
+                    done.put("llmMessage", message);
+                    done.put("llmTimedOut", timedOut);
+                    if (sendEvent(emitter, "done", done)) {
+                        emitter.complete();
+                    }
+                    return null;
+                });
+
+        return emitter;
+    }
+
+    /**
+     * Evaluate many questions against one snapshot, or every snapshot x every
+     * question. Parsing and deciding run in parallel (each distinct question is
+     * parsed once); the optional LLM step runs at most
+     * assistant.batch.llm-concurrency calls at a time, for at most
+     * assistant.batch.llm-max-items items.
+     *
+     * The LLM step stops starting calls once assistant.batch.llm-timeout-ms
+     * has passed, the async request times out, or the client goes away;
+     * items without an answer by then come back with llmTimedOut true.
+     *
+     * Results come back in order: snapshot-major, then question order, each
+     * tagged with snapshotIndex / questionIndex.
+     */
+    @PostMapping("/ask/batch")
+    public DeferredResult<Map<String, Object>> askBatch(
+            @RequestHeader(value = LedgerService.TOKEN_HEADER, required = false) String ledgerToken,
+            @RequestBody BatchRequest request) {
+        List<String> questions = request.getQuestions() == null ? List.of() : request.getQuestions();
+
+        List<AssistantRequest> snapshotRequests;
+        if (request.getSnapshots() != null && !request.getSnapshots().isEmpty()) {
+            snapshotRequests = request.getSnapshots();
+        } else {
+            snapshotRequests = Collections.singletonList(
+                    request.getSnapshot() != null ? request.getSnapshot() : new AssistantRequest());
+        }
+
+        int nullSnapshot = snapshotRequests.indexOf(null);
+        if (nullSnapshot >= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "snapshots[" + nullSnapshot + "] is null");
+        }
+
+        boolean withLlm = Boolean.TRUE.equals(request.getLlm());
+        long total = (long) questions.size() * snapshotRequests.size();
+        if (total > batchMaxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch has " + total + " items; the limit is " + batchMaxItems);
+        }
+        if (withLlm && total > batchLlmMaxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch has " + total + " items; the limit with \"llm\": true is " + batchLlmMaxItems);
+        }
+
+        int nq = questions.size();
+        int n = (int) total;
+
+        String[] texts = new String[nq];
+        PurchaseQuery[] parsed = new PurchaseQuery[nq];
+        IntStream.range(0, nq).parallel().forEach(i -> {
+            String question = questions.get(i) == null ? "" : questions.get(i).trim();
+            texts[i] = question;
+            parsed[i] = intentParser.parse(question);
+        });
+
+        BudgetSnapshot[] snaps = new BudgetSnapshot[snapshotRequests.size()];
+        for (int s = 0; s < snaps.length; s++) {
+            snaps[s] = snapshotFrom(snapshotRequests.get(s), ledgerToken);
+        }
+
+        Decision[] decisions = new Decision[n];
+        String[] botMessages = new String[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            PurchaseQuery q = parsed[i % nq];
+            decisions[i] = decisionEngine.decide(q, snaps[i / nq]);
+            botMessages[i] = responder.pickResponse(q, decisions[i]);
+        });
+
+        DeferredResult<Map<String, Object>> response = new DeferredResult<>();
+        if (!withLlm) {
+            response.setResult(batchResult(n, nq, parsed, decisions, botMessages, null, null));
+            return response;
+        }
+
+        // Each item gets the same latency budget as /ask, and says whether it ran out.
+        // Read while calls may still be finishing (the deadline), so the message is
+        // written before the outcome.
+        AtomicReferenceArray<String> llmMessages = new AtomicReferenceArray<>(n);
+        AtomicIntegerArray llmOutcomes = new AtomicIntegerArray(n);
+        CompletableFuture<Void> llmDone = runBounded(n, batchLlmConcurrency, i ->
+                openAIChatClient.getAdviceAsync(texts[i % nq], parsed[i % nq], decisions[i], snaps[i / nq], botMessages[i])
+                        .orTimeout(llmLatencyBudgetMs, TimeUnit.MILLISECONDS)
+                        .handle((llmMessage, error) -> {
+                            boolean timedOut = error != null && unwrap(error) instanceof TimeoutException;
+                            llmMessages.set(i, error == null ? llmMessage : null);
+                            llmOutcomes.set(i, timedOut ? LLM_TIMED_OUT : LLM_DONE);
+                            return null;
+                        }));
+        // Once the deadline passes or the request ends, no further calls are started.
+        llmDone.orTimeout(batchLlmTimeoutMs, TimeUnit.MILLISECONDS);
+        response.onTimeout(() -> llmDone.cancel(true));
+        response.onError(e -> llmDone.cancel(true));
+        response.onCompletion(() -> llmDone.cancel(true));
+        llmDone.whenComplete((v, error) ->
+                response.setResult(batchResult(n, nq, parsed, decisions, botMessages, llmMessages, llmOutcomes)));
+        return response;
+    }
+
+    /** The /ask/batch body; llmMessages / llmOutcomes are null when the LLM was not asked. */
+    private Map<String, Object> batchResult(int n, int nq, PurchaseQuery[] parsed, Decision[] decisions,
+                                            String[] botMessages, AtomicReferenceArray<String> llmMessages,
+                                            AtomicIntegerArray llmOutcomes) {
+        List<Map<String, Object>> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("snapshotIndex", i / nq);
+            item.put("questionIndex", i % nq);
+            if (llmOutcomes == null) {
+                item.putAll(buildResult(parsed[i % nq], decisions[i], botMessages[i], null, false));
+                item.remove("llmMessage");
+                item.remove("llmTimedOut");
+            } else {
+                int outcome = llmOutcomes.get(i);
+                String llmMessage = (outcome == LLM_DONE) ? llmMessages.get(i) : null;
+                item.putAll(buildResult(parsed[i % nq], decisions[i], botMessages[i], llmMessage, outcome != LLM_DONE));
+            }
+            results.add(item);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", n);
+        out.put("results", results);
+        return out;
+    }
+
+    /**
+     * Run task(0..n-1) with at most maxConcurrent futures outstanding; each
+     * task records its own outcome. Each finished task starts the next one.
+     * The returned future completes once every task has finished; completing
+     * it early (cancel, orTimeout) stops any further task from starting.
+     */
+    private static CompletableFuture<Void> runBounded(int n,
+                                                      int maxConcurrent,
+                                                      IntFunction<CompletableFuture<?>> task) {
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        if (n == 0) {
+            all.complete(null);
+            return all;
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(n);
+
+        // Loops while tasks finish synchronously (cache hits, no API key) so a
+        // large batch cannot recurse down the stack; otherwise hands off to the
+        // completion callback.
+        Runnable[] pump = new Runnable[1];
+        pump[0] = () -> {
+            while (true) {
+                if (all.isDone()) return;
+                int i = next.getAndIncrement();
+                if (i >= n) return;
+                CompletableFuture<?> f = task.apply(i);
+                if (f.isDone()) {
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete(null);
+                    }
+                    continue;
+                }
+                f.whenComplete((value, error) -> {
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete(null);
+                    } else {
+                        pump[0].run();
+                    }
+                });
+                return;
+            }
+        };
+        for (int k = 0; k < Math.max(1, Math.min(maxConcurrent, n)); k++) {
+            pump[0].run();
+        }
+        return all;
+    }
+
+    /** Send one SSE event; false (and the emitter closed) if the client is gone. */
+    private boolean sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private Map<String, Object> buildResult(PurchaseQuery q,
+                                            Decision decision,
+                                            String botMessage,
+                                            String llmMessage,
+                                            boolean llmTimedOut) {
         // 6) Choose which message to expose as the main "message"
         String primaryMessage = (llmMessage != null && !llmMessage.isBlank())
                 ? llmMessage
@@ -85,19 +408,40 @@ public class AssistantController {
         // Optional debug fields (helpful for your write-up)
         result.put("botMessage", botMessage);
         result.put("llmMessage", llmMessage);
+        result.put("llmTimedOut", llmTimedOut);
 
         result.put("amount", q.getAmount());
 
         return result;
     }
 
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("openai", openAIChatClient.stats());
+        if (ledgerService.isEnabled()) {
+            result.put("ledger", ledgerService.stats());
+        }
+        return result;
+    }
+
     // ------- small helpers for defaults -------
 
-    private double orDefault(Double value, double defaultValue) {
-        return (value == null || value.isNaN()) ? defaultValue : value;
+    /**
+     * Snapshot for one request: the ledger's totals when a trusted caller
+     * (see LedgerService.isTrustedCaller) names a user the ledger knows,
+     * otherwise the request fields (with defaults).
+     */
+    private BudgetSnapshot snapshotFrom(AssistantRequest request, String ledgerToken) {
+        BudgetSnapshot given = BudgetSnapshot.from(request);
+        if (request.getUserId() == null || !ledgerService.isTrustedCaller(ledgerToken)) {
+            return given;
+        }
+        BudgetSnapshot fromLedger = ledgerService.snapshotFor(request.getUserId(), given);
+        return fromLedger != null ? fromLedger : given;
     }
 
-    private int orDefault(Integer value, int defaultValue) {
-        return (value == null) ? defaultValue : value;
+    private static Throwable unwrap(Throwable t) {
+        return (t instanceof CompletionException && t.getCause() != null) ? t.getCause() : t;
     }
 }
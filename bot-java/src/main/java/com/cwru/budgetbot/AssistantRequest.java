@@ -9,6 +9,11 @@ public class AssistantRequest {
 
     private String question;
 
+    // Optional: with the ledger enabled, a known user's spending comes from the
+    // ledger; the fields below only fill in limits the ledger has no record of.
+    // Only honoured on requests with the server's X-Ledger-Token (see LedgerService).
+    private Long userId;
+
     // All of these can be null in JSON; we default later if needed
     private Double weeklyBudgetPersonal;
     private Double spentThisWeekPersonal;
@@ -33,6 +38,14 @@ public class AssistantRequest {
         this.question = question;
     }
 
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     public Double getWeeklyBudgetPersonal() {
         return weeklyBudgetPersonal;
     }
@@ -0,0 +1,61 @@
+package com.cwru.budgetbot;
+
+import java.util.List;
+
+/**
+ * Request body for /assistant/ask/batch.
+ *
+ * Either one "snapshot" applied to every question, or a list of
+ * "snapshots" evaluated against every question (snapshots x questions).
+ * Snapshot objects use the budget fields of AssistantRequest; their
+ * "question" field is ignored. Missing budget fields get the same
+ * defaults as /ask.
+ */
+public class BatchRequest {
+
+    private List<String> questions;
+
+    private AssistantRequest snapshot;
+    private List<AssistantRequest> snapshots;
+
+    // Also ask the LLM for every item (slow; off by default)
+    private Boolean llm;
+
+    public BatchRequest() {
+        // Required by Jackson
+    }
+
+    // ---- getters & setters ----
+
+    public List<String> getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(List<String> questions) {
+        this.questions = questions;
+    }
+
+    public AssistantRequest getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(AssistantRequest snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public List<AssistantRequest> getSnapshots() {
+        return snapshots;
+    }
+
+    public void setSnapshots(List<AssistantRequest> snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    public Boolean getLlm() {
+        return llm;
+    }
+
+    public void setLlm(Boolean llm) {
+        this.llm = llm;
+    }
+}
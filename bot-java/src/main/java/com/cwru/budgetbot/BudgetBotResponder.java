@@ -2,6 +2,18 @@ package com.cwru.budgetbot;
 
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule-based YES / CAUTION / NO messages.
+ *
+ * Bundles that do not depend on the query (RECS cheap / regular,
+ * HOW_AM_I_DOING, the default) are built once when the class loads.
+ * CAN_I_BUY messages depend on merchant and amount, so they are kept as
+ * precompiled templates and only the one for the chosen Decision is
+ * rendered in pickResponse.
+ */
 @Service
 public class BudgetBotResponder {
 
@@ -12,6 +24,16 @@ public class BudgetBotResponder {
         public ResponseBundle(String yes, String caution, String no) {
             this.yes = yes; this.caution = caution; this.no = no;
         }
+
+        String pick(Decision decision) {
+            if (decision == null) return caution;
+            switch (decision) {
+                case YES:      return yes;
+                case CAUTION:  return caution;
+                case NO:       return no;
+                default:       return caution;
+            }
+        }
     }
 
     private static final String[] DINING_HALLS = {
@@ -49,131 +71,158 @@ public class BudgetBotResponder {
             "Mitchell's Ice Cream", "Starbucks", "Dunkin", "Einstein Bros Bagels"
     };
 
-    public ResponseBundle draftResponses(PurchaseQuery q) {
-        final String merchant = StringUtil.orUnknown(q.getMerchant(), "this place");
-        final String amountPhrase = amountPhrase(q);
-        final String sourcePhrase = sourcePhrase(q.getSource());
-        final boolean isDiningHall =
-                "Dining Hall".equalsIgnoreCase(merchant)
-                        || "North Dining Hall".equalsIgnoreCase(merchant)
-                        || "South Dining Hall".equalsIgnoreCase(merchant);
-        final boolean isSwipeSource = q.getSource() == SourceType.MEAL_SWIPE;
-        final boolean isSwipeContext = isSwipeSource || isDiningHall;
-        final boolean hasAmount = q.getAmount() != null;
+    // ==================== Static bundles (built once) ====================
 
-        switch (q.getIntent()) {
-            case CAN_I_BUY: {
+    private static final ResponseBundle HOW_AM_I_DOING_BUNDLE = new ResponseBundle(
+            "✅ You’re on track with your budget this week. At your current pace, you can afford a small extra purchase without hurting your goals.",
+            "⚠️ You’re getting close to the edge of your weekly budget. New non-essential spending is possible, but you should keep it small and selective.",
+            "⛔ You’ve effectively used up this week’s budget. It’s best to pause extra spending until the new week starts and let your budget reset."
+    );
 
-                String yes;
-                String caution;
-                String no;
-
-                if (isSwipeContext && !hasAmount) {
-                    // Talk purely in terms of swipes when no dollar amount was given
-                    yes = "✅ YES: Using a meal swipe at " + merchant +
-                            " fits comfortably into your current swipe usage this week.";
-                    caution = "⚠️ CAUTION: A swipe at " + merchant +
-                            " might be okay, but you’re getting closer to your weekly swipe limit. " +
-                            "Use it only if this meal matters more than a later one.";
-                    no = "⛔ NO: You’re too close to using up your swipes for the week. " +
-                            "It’s safer to save this swipe for a more important meal.";
-                } else {
-                    // Dollar-amount mode: talk about money, even if it's technically a swipe
-                    yes = "✅ YES: " + capFirst(merchant) + " for " + amountPhrase +
-                            " fits within your current weekly budget pace.";
-                    caution = "⚠️ CAUTION: " + amountPhrase + " at " + merchant +
-                            " is doable, but it puts pressure on the rest of your week. " +
-                            "If you go ahead, try to cut back slightly on other non-essentials.";
-                    no = "⛔ NO: " + amountPhrase + " at " + merchant +
-                            " would push you past a realistic weekly spending level. " +
-                            "Choosing a cheaper option or waiting until next week is safer.";
-                }
+    private static final ResponseBundle RECS_CHEAP_BUNDLE = new ResponseBundle(
+            "✅ Your budget can handle some low-cost options. Here are cheap places to consider:\n" +
+                    " • Dining halls: " + joinList(DINING_HALLS) + "\n" +
+                    " • Cheap meals: " + joinList(CHEAP_MEALS) + "\n" +
+                    " • Budget groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
+                    "Sticking mostly to these will keep your spending low while still giving you variety.",
 
-                return new ResponseBundle(yes, caution, no);
-            }
+            "⚠️ Your budget is tight, so you should stay very budget-focused. Best cheap options are:\n" +
+                    " • Primary meals from: " + joinList(DINING_HALLS) + "\n" +
+                    " • Occasional cheap meals: " + joinList(CHEAP_MEALS) + "\n" +
+                    " • Budget groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
+                    "Use dining halls whenever possible and treat cheap restaurants as an occasional break.",
 
-            case HOW_AM_I_DOING: {
-                String yes = "✅ You’re on track with your budget this week. At your current pace, you can afford a small extra purchase without hurting your goals.";
-                String caution = "⚠️ You’re getting close to the edge of your weekly budget. New non-essential spending is possible, but you should keep it small and selective.";
-                String no = "⛔ You’ve effectively used up this week’s budget. It’s best to pause extra spending until the new week starts and let your budget reset.";
-                return new ResponseBundle(yes, caution, no);
-            }
+            "⛔ Right now your budget is under pressure. The safest cheap options are:\n" +
+                    " • Almost all meals from: " + joinList(DINING_HALLS) + "\n" +
+                    " • Groceries mainly from: " + joinList(CHEAP_GROCERIES) + "\n" +
+                    "Until your spending resets, avoid even the cheaper restaurant options and lean hard on dining halls and basic groceries."
+    );
 
-            case RECS: {
-                if (q.isCheapPreference()) {
-                    String yes = "✅ Your budget can handle some low-cost options. Here are cheap places to consider:\n" +
-                            " • Dining halls: " + joinList(DINING_HALLS) + "\n" +
-                            " • Cheap meals: " + joinList(CHEAP_MEALS) + "\n" +
-                            " • Budget groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
-                            "Sticking mostly to these will keep your spending low while still giving you variety.";
-
-                    String caution = "⚠️ Your budget is tight, so you should stay very budget-focused. Best cheap options are:\n" +
-                            " • Primary meals from: " + joinList(DINING_HALLS) + "\n" +
-                            " • Occasional cheap meals: " + joinList(CHEAP_MEALS) + "\n" +
-                            " • Budget groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
-                            "Use dining halls whenever possible and treat cheap restaurants as an occasional break.";
-
-                    String no = "⛔ Right now your budget is under pressure. The safest cheap options are:\n" +
-                            " • Almost all meals from: " + joinList(DINING_HALLS) + "\n" +
-                            " • Groceries mainly from: " + joinList(CHEAP_GROCERIES) + "\n" +
-                            "Until your spending resets, avoid even the cheaper restaurant options and lean hard on dining halls and basic groceries.";
-
-                    return new ResponseBundle(yes, caution, no);
-                } else {
-                    String yes = "✅ You’re in a comfortable spot this week. Here are good options:\n" +
-                            " • Treats & coffee: " + joinList(TREATS_AND_COFFEE) + "\n" +
-                            " • Regular meals out: " + joinList(MID_MEALS) + "\n" +
-                            " • Groceries to stock up: " + joinList(MID_GROCERIES) + "\n" +
-                            "Mixing a treat or two with normal meals and a grocery run keeps you on pace.";
-
-                    String caution = "⚠️ Your budget is tight but manageable. Safer choices right now are:\n" +
-                            " • Most meals from: " + joinList(DINING_HALLS) + "\n" +
-                            " • Occasional meals out: " + joinList(MID_MEALS) + "\n" +
-                            " • Budget-friendly groceries: " + joinList(CHEAP_GROCERIES) + " or " + joinList(MID_GROCERIES) + "\n" +
-                            "Lean on dining halls and groceries for most meals and treat restaurant trips as occasional.";
-
-                    String no = "⛔ Your budget is under real pressure this week. Best options are:\n" +
-                            " • Primary meals: " + joinList(DINING_HALLS) + "\n" +
-                            " • Groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
-                            "Stick to dining halls and basic groceries until your weekly spending resets, then reintroduce extras.";
-
-                    return new ResponseBundle(yes, caution, no);
-                }
-            }
+    private static final ResponseBundle RECS_BUNDLE = new ResponseBundle(
+            "✅ You’re in a comfortable spot this week. Here are good options:\n" +
+                    " • Treats & coffee: " + joinList(TREATS_AND_COFFEE) + "\n" +
+                    " • Regular meals out: " + joinList(MID_MEALS) + "\n" +
+                    " • Groceries to stock up: " + joinList(MID_GROCERIES) + "\n" +
+                    "Mixing a treat or two with normal meals and a grocery run keeps you on pace.",
+
+            "⚠️ Your budget is tight but manageable. Safer choices right now are:\n" +
+                    " • Most meals from: " + joinList(DINING_HALLS) + "\n" +
+                    " • Occasional meals out: " + joinList(MID_MEALS) + "\n" +
+                    " • Budget-friendly groceries: " + joinList(CHEAP_GROCERIES) + " or " + joinList(MID_GROCERIES) + "\n" +
+                    "Lean on dining halls and groceries for most meals and treat restaurant trips as occasional.",
+
+            "⛔ Your budget is under real pressure this week. Best options are:\n" +
+                    " • Primary meals: " + joinList(DINING_HALLS) + "\n" +
+                    " • Groceries: " + joinList(CHEAP_GROCERIES) + "\n" +
+                    "Stick to dining halls and basic groceries until your weekly spending resets, then reintroduce extras."
+    );
+
+    private static final ResponseBundle DEFAULT_BUNDLE = new ResponseBundle(
+            "✅ This looks manageable based on a typical student budget. For more precise advice, mention where you’re going and roughly how much you’ll spend.",
+            "⚠️ I can give a clearer answer if you share the place and approximate cost, or ask how you’re doing on your budget this week.",
+            "⛔ I don’t have enough details to judge this. Tell me the location, an approximate price, or ask for recommendations based on your budget."
+    );
+
+    // ==================== CAN_I_BUY templates ====================
+    // {merchant}, {Merchant} (first letter capitalised) and {amount} are the only slots.
+
+    // Swipe context with no dollar amount: talk purely in terms of swipes
+    private static final Template SWIPE_YES = Template.compile(
+            "✅ YES: Using a meal swipe at {merchant} fits comfortably into your current swipe usage this week.");
+    private static final Template SWIPE_CAUTION = Template.compile(
+            "⚠️ CAUTION: A swipe at {merchant} might be okay, but you’re getting closer to your weekly swipe limit. " +
+                    "Use it only if this meal matters more than a later one.");
+    private static final Template SWIPE_NO = Template.compile(
+            "⛔ NO: You’re too close to using up your swipes for the week. " +
+                    "It’s safer to save this swipe for a more important meal.");
 
-            default: {
-                String yes = "✅ This looks manageable based on a typical student budget. For more precise advice, mention where you’re going and roughly how much you’ll spend.";
-                String caution = "⚠️ I can give a clearer answer if you share the place and approximate cost, or ask how you’re doing on your budget this week.";
-                String no = "⛔ I don’t have enough details to judge this. Tell me the location, an approximate price, or ask for recommendations based on your budget.";
-                return new ResponseBundle(yes, caution, no);
+    // Dollar-amount mode: talk about money, even if it's technically a swipe
+    private static final Template MONEY_YES = Template.compile(
+            "✅ YES: {Merchant} for {amount} fits within your current weekly budget pace.");
+    private static final Template MONEY_CAUTION = Template.compile(
+            "⚠️ CAUTION: {amount} at {merchant} is doable, but it puts pressure on the rest of your week. " +
+                    "If you go ahead, try to cut back slightly on other non-essentials.");
+    private static final Template MONEY_NO = Template.compile(
+            "⛔ NO: {amount} at {merchant} would push you past a realistic weekly spending level. " +
+                    "Choosing a cheaper option or waiting until next week is safer.");
+
+    /** All three messages for a query (renders every CAN_I_BUY template). */
+    public ResponseBundle draftResponses(PurchaseQuery q) {
+        switch (q.getIntent()) {
+            case CAN_I_BUY: {
+                String merchant = merchantName(q);
+                String amount = amountPhrase(q);
+                boolean swipeMode = isSwipeMode(q, merchant);
+                return new ResponseBundle(
+                        canIBuyTemplate(swipeMode, Decision.YES).render(merchant, amount),
+                        canIBuyTemplate(swipeMode, Decision.CAUTION).render(merchant, amount),
+                        canIBuyTemplate(swipeMode, Decision.NO).render(merchant, amount));
             }
+            default:
+                return staticBundle(q);
         }
     }
 
     /** Pick one of the three strings based on Decision. */
     public String pickResponse(PurchaseQuery q, Decision decision) {
-        ResponseBundle bundle = draftResponses(q);
-        switch (decision) {
-            case YES:      return bundle.yes;
-            case CAUTION:  return bundle.caution;
-            case NO:       return bundle.no;
-            default:       return bundle.caution;
+        if (q.getIntent() != IntentType.CAN_I_BUY) {
+            return staticBundle(q).pick(decision);
+        }
+        String merchant = merchantName(q);
+        boolean swipeMode = isSwipeMode(q, merchant);
+        Template template = canIBuyTemplate(swipeMode, decision);
+        // Only format the amount when the chosen template actually uses it.
+        if (template.usesAmount() && q.hasAmount()) {
+            return template.render(merchant, q.getAmountCents());
+        }
+        return template.render(merchant, template.usesAmount() ? amountPhrase(q) : null);
+    }
+
+    private ResponseBundle staticBundle(PurchaseQuery q) {
+        switch (q.getIntent()) {
+            case HOW_AM_I_DOING:
+                return HOW_AM_I_DOING_BUNDLE;
+            case RECS:
+                return q.isCheapPreference() ? RECS_CHEAP_BUNDLE : RECS_BUNDLE;
+            default:
+                return DEFAULT_BUNDLE;
+        }
+    }
+
+    private Template canIBuyTemplate(boolean swipeMode, Decision decision) {
+        Decision d = (decision == null) ? Decision.CAUTION : decision;
+        switch (d) {
+            case YES: return swipeMode ? SWIPE_YES : MONEY_YES;
+            case NO:  return swipeMode ? SWIPE_NO : MONEY_NO;
+            case CAUTION:
+            default:  return swipeMode ? SWIPE_CAUTION : MONEY_CAUTION;
         }
     }
 
+    private String merchantName(PurchaseQuery q) {
+        return StringUtil.orUnknown(q.getMerchant(), "this place");
+    }
+
+    /** Swipe source or dining hall, and no dollar amount given. */
+    private boolean isSwipeMode(PurchaseQuery q, String merchant) {
+        boolean isSwipeContext = q.getSource() == SourceType.MEAL_SWIPE || isDiningHall(merchant);
+        return isSwipeContext && !q.hasAmount();
+    }
+
+    private static boolean isDiningHall(String merchant) {
+        return "Dining Hall".equalsIgnoreCase(merchant)
+                || "North Dining Hall".equalsIgnoreCase(merchant)
+                || "South Dining Hall".equalsIgnoreCase(merchant);
+    }
+
     private String amountPhrase(PurchaseQuery q) {
         // If user gave a dollar amount, always talk in dollars.
-        if (q.getAmount() != null) {
-            return StringUtil.money(q.getAmount());
+        if (q.hasAmount()) {
+            return StringUtil.money(q.getAmountCents());
         }
 
         // No dollar amount: treat dining halls/swipes as "a swipe"
-        boolean isDiningHall =
-                "Dining Hall".equalsIgnoreCase(q.getMerchant()) ||
-                        "North Dining Hall".equalsIgnoreCase(q.getMerchant()) ||
-                        "South Dining Hall".equalsIgnoreCase(q.getMerchant());
-
-        if (q.getSource() == SourceType.MEAL_SWIPE || isDiningHall) {
+        if (q.getSource() == SourceType.MEAL_SWIPE || isDiningHall(q.getMerchant())) {
             return "a swipe";
         }
 
@@ -181,22 +230,7 @@ public class BudgetBotResponder {
         return "this purchase";
     }
 
-    private String sourcePhrase(SourceType s) {
-        if (s == null) return "your usual payment";
-        switch (s) {
-            case CASE_CASH:  return "CaseCash";
-            case PERSONAL:   return "your personal card";
-            case MEAL_SWIPE: return "a meal swipe";
-            default:         return "your usual payment";
-        }
-    }
-
-    private String capFirst(String s) {
-        if (s == null || s.isEmpty()) return s;
-        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
-    }
-
-    private String joinList(String[] items) {
+    private static String joinList(String[] items) {
         if (items == null || items.length == 0) return "";
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < items.length; i++) {
@@ -207,4 +241,111 @@ public class BudgetBotResponder {
         }
         return sb.toString();
     }
+
+    // ==================== Template ====================
+
+    /**
+     * A message split once into literal text and slots, so rendering is a
+     * single pre-sized StringBuilder pass with no intermediate Strings.
+     */
+    static final class Template {
+        private static final int LITERAL = 0;
+        private static final int MERCHANT = 1;
+        private static final int MERCHANT_CAP = 2;
+        private static final int AMOUNT = 3;
+
+        private final int[] kinds;
+        private final String[] literals;
+        private final int literalLength;
+        private final boolean usesAmount;
+
+        private Template(int[] kinds, String[] literals) {
+            this.kinds = kinds;
+            this.literals = literals;
+            int len = 0;
+            boolean amount = false;
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == LITERAL) len += literals[i].length();
+                if (kinds[i] == AMOUNT) amount = true;
+            }
+            this.literalLength = len;
+            this.usesAmount = amount;
+        }
+
+        static Template compile(String pattern) {
+            List<Integer> kinds = new ArrayList<>();
+            List<String> literals = new ArrayList<>();
+            int i = 0;
+            while (i < pattern.length()) {
+                int open = pattern.indexOf('{', i);
+                if (open < 0) {
+                    kinds.add(LITERAL);
+                    literals.add(pattern.substring(i));
+                    break;
+                }
+                if (open > i) {
+                    kinds.add(LITERAL);
+                    literals.add(pattern.substring(i, open));
+                }
+                int close = pattern.indexOf('}', open);
+                String slot = pattern.substring(open + 1, close);
+                switch (slot) {
+                    case "merchant": kinds.add(MERCHANT); break;
+                    case "Merchant": kinds.add(MERCHANT_CAP); break;
+                    case "amount":   kinds.add(AMOUNT); break;
+                    default: throw new IllegalArgumentException("Unknown template slot {" + slot + "}");
+                }
+                literals.add(null);
+                i = close + 1;
+            }
+            int[] k = new int[kinds.size()];
+            for (int j = 0; j < k.length; j++) k[j] = kinds.get(j);
+            return new Template(k, literals.toArray(new String[0]));
+        }
+
+        boolean usesAmount() {
+            return usesAmount;
+        }
+
+        String render(String merchant, String amount) {
+            return render(merchant, amount, Money.NO_AMOUNT);
+        }
+
+        /** Same as render(merchant, StringUtil.money(amountCents)), formatting straight into the reply. */
+        String render(String merchant, long amountCents) {
+            return render(merchant, null, amountCents);
+        }
+
+        // Exactly one of amount / amountCents is used for the {amount} slot.
+        private String render(String merchant, String amount, long amountCents) {
+            int len = literalLength;
+            for (int kind : kinds) {
+                if (kind == MERCHANT || kind == MERCHANT_CAP) len += merchant.length();
+                else if (kind == AMOUNT) len += (amount != null) ? amount.length() : StringUtil.MAX_MONEY_CHARS;
+            }
+            StringBuilder sb = new StringBuilder(len);
+            for (int i = 0; i < kinds.length; i++) {
+                switch (kinds[i]) {
+                    case LITERAL:
+                        sb.append(literals[i]);
+                        break;
+                    case MERCHANT:
+                        sb.append(merchant);
+                        break;
+                    case MERCHANT_CAP:
+                        if (!merchant.isEmpty()) {
+                            sb.append(Character.toUpperCase(merchant.charAt(0))).append(merchant, 1, merchant.length());
+                        }
+                        break;
+                    case AMOUNT:
+                        if (amount != null) sb.append(amount);
+                        else StringUtil.appendMoney(sb, amountCents);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return sb.toString();
+        }
+    }
 }
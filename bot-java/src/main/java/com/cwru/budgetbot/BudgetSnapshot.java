@@ -6,30 +6,105 @@ package com.cwru.budgetbot;
  *  - personal weekly budget + spent
  *  - CaseCash totals and this week's CaseCash spending
  *  - meal swipe totals and swipes used this week
+ *
+ * Dollar values are stored as long cents (see Money); the double getters
+ * are derived from them for the prompt / cache key.
+ *
+ * Snapshots built from the TransactionLedger also carry Pacing (rolling and
+ * semester-to-date spending); the *Pace* getters are what DecisionEngine
+ * paces against, and fall back to this week's numbers without it.
  */
 public class BudgetSnapshot {
 
-    private final double weeklyBudgetPersonal;
-    private final double spentThisWeekPersonal;
+    // Rough semester length used for the per-week CaseCash budget.
+    public static final int SEMESTER_WEEKS = 15;
 
-    private final double caseCashTotalSemester;
-    private final double caseCashSpentThisWeek;
+    private final long weeklyBudgetPersonalCents;
+    private final long spentThisWeekPersonalCents;
+
+    private final long caseCashTotalSemesterCents;
+    private final long caseCashSpentThisWeekCents;
 
     private final int mealSwipesWeeklyTotal;
     private final int mealSwipesUsedThisWeek;
 
+    // null unless the snapshot came from the ledger
+    private final Pacing pacing;
+
+    /** Dollar amounts, rounded to the nearest cent (NaN / infinite become 0). */
     public BudgetSnapshot(double weeklyBudgetPersonal,
                           double spentThisWeekPersonal,
                           double caseCashTotalSemester,
                           double caseCashSpentThisWeek,
                           int mealSwipesWeeklyTotal,
                           int mealSwipesUsedThisWeek) {
-        this.weeklyBudgetPersonal   = weeklyBudgetPersonal;
-        this.spentThisWeekPersonal  = spentThisWeekPersonal;
-        this.caseCashTotalSemester  = caseCashTotalSemester;
-        this.caseCashSpentThisWeek  = caseCashSpentThisWeek;
-        this.mealSwipesWeeklyTotal  = mealSwipesWeeklyTotal;
-        this.mealSwipesUsedThisWeek = mealSwipesUsedThisWeek;
+        this(Money.fromDollars(weeklyBudgetPersonal),
+                Money.fromDollars(spentThisWeekPersonal),
+                Money.fromDollars(caseCashTotalSemester),
+                Money.fromDollars(caseCashSpentThisWeek),
+                mealSwipesWeeklyTotal,
+                mealSwipesUsedThisWeek,
+                null);
+    }
+
+    // Private on purpose: a public long overload would silently capture
+    // callers passing int dollars ("new BudgetSnapshot(80, 35, ...)").
+    private BudgetSnapshot(long weeklyBudgetPersonalCents,
+                           long spentThisWeekPersonalCents,
+                           long caseCashTotalSemesterCents,
+                           long caseCashSpentThisWeekCents,
+                           int mealSwipesWeeklyTotal,
+                           int mealSwipesUsedThisWeek,
+                           Pacing pacing) {
+        this.weeklyBudgetPersonalCents  = Money.clamp(weeklyBudgetPersonalCents);
+        this.spentThisWeekPersonalCents = Money.clamp(spentThisWeekPersonalCents);
+        this.caseCashTotalSemesterCents = Money.clamp(caseCashTotalSemesterCents);
+        this.caseCashSpentThisWeekCents = Money.clamp(caseCashSpentThisWeekCents);
+        this.mealSwipesWeeklyTotal      = mealSwipesWeeklyTotal;
+        this.mealSwipesUsedThisWeek     = mealSwipesUsedThisWeek;
+        this.pacing                     = pacing;
+    }
+
+    /** Snapshot straight from cents, no double round trip. */
+    public static BudgetSnapshot ofCents(long weeklyBudgetPersonalCents,
+                                         long spentThisWeekPersonalCents,
+                                         long caseCashTotalSemesterCents,
+                                         long caseCashSpentThisWeekCents,
+                                         int mealSwipesWeeklyTotal,
+                                         int mealSwipesUsedThisWeek) {
+        return new BudgetSnapshot(weeklyBudgetPersonalCents, spentThisWeekPersonalCents,
+                caseCashTotalSemesterCents, caseCashSpentThisWeekCents,
+                mealSwipesWeeklyTotal, mealSwipesUsedThisWeek, null);
+    }
+
+    /** Same snapshot with pacing attached. */
+    public BudgetSnapshot withPacing(Pacing pacing) {
+        return new BudgetSnapshot(weeklyBudgetPersonalCents, spentThisWeekPersonalCents,
+                caseCashTotalSemesterCents, caseCashSpentThisWeekCents,
+                mealSwipesWeeklyTotal, mealSwipesUsedThisWeek, pacing);
+    }
+
+    /**
+     * Snapshot from the budget fields of a request; missing fields get the
+     * defaults /assistant/ask has always used.
+     */
+    public static BudgetSnapshot from(AssistantRequest request) {
+        return new BudgetSnapshot(
+                orDefault(request.getWeeklyBudgetPersonal(),   80.0),
+                orDefault(request.getSpentThisWeekPersonal(),  35.0),
+                orDefault(request.getCaseCashTotalSemester(),  300.0),
+                orDefault(request.getCaseCashSpentThisWeek(),  15.0),
+                orDefault(request.getMealSwipesWeeklyTotal(),  17),
+                orDefault(request.getMealSwipesUsedThisWeek(), 5)
+        );
+    }
+
+    private static double orDefault(Double value, double defaultValue) {
+        return (value == null || value.isNaN()) ? defaultValue : value;
+    }
+
+    private static int orDefault(Integer value, int defaultValue) {
+        return (value == null) ? defaultValue : value;
     }
 
     /** Demo snapshot so controller / Main always have safe, non-null data. */
@@ -47,37 +122,58 @@ public class BudgetSnapshot {
 
     // --- PERSONAL ---
 
+    public long getWeeklyBudgetPersonalCents() {
+        return weeklyBudgetPersonalCents;
+    }
+
+    public long getSpentThisWeekPersonalCents() {
+        return spentThisWeekPersonalCents;
+    }
+
     public double getWeeklyBudgetPersonal() {
-        return weeklyBudgetPersonal;
+        return Money.toDollars(weeklyBudgetPersonalCents);
     }
 
     public double getSpentThisWeekPersonal() {
-        return spentThisWeekPersonal;
+        return Money.toDollars(spentThisWeekPersonalCents);
     }
 
     // Convenience methods used by older code:
     public double getWeeklyBudget() {
-        return weeklyBudgetPersonal;
+        return getWeeklyBudgetPersonal();
     }
 
     public double getSpentThisWeek() {
-        return spentThisWeekPersonal;
+        return getSpentThisWeekPersonal();
     }
 
     // --- CASECASH ---
 
+    public long getCaseCashTotalSemesterCents() {
+        return caseCashTotalSemesterCents;
+    }
+
+    public long getCaseCashSpentThisWeekCents() {
+        return caseCashSpentThisWeekCents;
+    }
+
     public double getCaseCashTotalSemester() {
-        return caseCashTotalSemester;
+        return Money.toDollars(caseCashTotalSemesterCents);
     }
 
     public double getCaseCashSpentThisWeek() {
-        return caseCashSpentThisWeek;
+        return Money.toDollars(caseCashSpentThisWeekCents);
     }
 
-    // Rough “per week” CaseCash budget, assuming ~15-week semester.
+    // “Per week” CaseCash budget: over the configured semester when the ledger
+    // knows it, else assuming a ~15-week semester.
+    // DecisionEngine works from the semester total instead, so it never divides.
     public double getCaseCashWeeklyBudgetApprox() {
-        if (caseCashTotalSemester <= 0) return 0.0;
-        return caseCashTotalSemester / 15.0;
+        if (caseCashTotalSemesterCents <= 0) return 0.0;
+        if (pacing != null && pacing.getSemesterDays() > 0) {
+            return Money.toDollars(caseCashTotalSemesterCents) * 7 / pacing.getSemesterDays();
+        }
+        return Money.toDollars(caseCashTotalSemesterCents) / SEMESTER_WEEKS;
     }
 
     // --- MEAL SWIPES ---
@@ -89,4 +185,40 @@ public class BudgetSnapshot {
     public int getMealSwipesUsedThisWeek() {
         return mealSwipesUsedThisWeek;
     }
+
+    // --- PACING (what DecisionEngine compares) ---
+
+    /** Rolling / semester windows, or null for snapshots not built by the ledger. */
+    public Pacing getPacing() {
+        return pacing;
+    }
+
+    /**
+     * Personal spending to hold against one weekly budget: the last 7 days
+     * with pacing (no cliff at the week boundary), else this week so far.
+     */
+    public long getPersonalPaceSpentCents() {
+        return pacing != null ? pacing.getRollingPersonalCents() : spentThisWeekPersonalCents;
+    }
+
+    /**
+     * CaseCash spending to hold against {@link #getCaseCashPaceExpectedCents()}.
+     * During a configured semester: spent so far this semester. Otherwise a
+     * week of spending (rolling, or this week) scaled up to SEMESTER_WEEKS.
+     */
+    public long getCaseCashPaceSpentCents() {
+        if (pacing != null && pacing.hasSemester()) {
+            return pacing.getSemesterCaseCashCents();
+        }
+        long week = pacing != null ? Money.clamp(pacing.getRollingCaseCashCents()) : caseCashSpentThisWeekCents;
+        return SEMESTER_WEEKS * Math.max(0L, week);
+    }
+
+    /** CaseCash that should be spent by now, or the semester total outside a configured semester. */
+    public long getCaseCashPaceExpectedCents() {
+        if (pacing != null && pacing.hasSemester()) {
+            return pacing.expectedByNowCents(caseCashTotalSemesterCents);
+        }
+        return caseCashTotalSemesterCents;
+    }
 }
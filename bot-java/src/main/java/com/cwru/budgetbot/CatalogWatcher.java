@@ -0,0 +1,92 @@
+package com.cwru.budgetbot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls onChange on its own daemon thread whenever one file changes.
+ *
+ * It watches the file's directory rather than the file, because editors and
+ * deploy tools usually write a new file and rename it over the old one.
+ * Events less than DEBOUNCE_MS apart are coalesced, so one save (which can
+ * be several create/modify events) triggers one call.
+ *
+ * The request path never runs onChange; see MerchantLexicon.reload.
+ */
+public final class CatalogWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogWatcher.class);
+
+    private static final long DEBOUNCE_MS = 250;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private CatalogWatcher(Path file, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath().normalize();
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "catalog-watcher-" + this.file.getFileName());
+        this.thread.setDaemon(true);
+    }
+
+    public static CatalogWatcher start(Path file, Runnable onChange) throws IOException {
+        CatalogWatcher watcher = new CatalogWatcher(file, onChange);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!drain(watchService.take())) continue;
+                // Wait for the burst of events from one save to settle.
+                WatchKey more;
+                while ((more = watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    log.warn("[CatalogWatcher] Reload of {} failed", file, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /** Consume the key's events; true if any of them concern our file. */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,175 @@
+package com.cwru.budgetbot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker for one upstream (closed / open / half-open).
+ *
+ * CLOSED: every call goes through; the outcomes of the last `window` calls
+ * are kept, and once at least minCalls are in and the failure share reaches
+ * failureRate the breaker opens. A call slower than slowCallMillis counts
+ * as a failure even if it succeeded.
+ *
+ * OPEN: tryAcquire rejects instantly for openMillis.
+ *
+ * HALF_OPEN: up to halfOpenProbes calls are let through. All of them
+ * succeeding closes the breaker; any failure opens it again.
+ *
+ * tryAcquire hands out the current generation, bumped on every state change,
+ * and onResult ignores outcomes from an older generation, so a slow call
+ * started while CLOSED cannot close a breaker that has since opened.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Returned by tryAcquire when the call must not be made. */
+    public static final long REJECTED = -1;
+
+    private final String name;
+    private final int minCalls;
+    private final double failureRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    // Guarded by "this".
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private final boolean[] outcomes;  // true = failed, ring buffer while CLOSED
+    private int next;
+    private int recorded;
+    private int failures;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private long opens;
+    private long rejected;
+    private String lastFailure;
+
+    public CircuitBreaker(String name, int window, int minCalls, double failureRate,
+                          long slowCallMillis, long openMillis, int halfOpenProbes) {
+        this.name = name;
+        this.outcomes = new boolean[Math.max(1, window)];
+        this.minCalls = Math.max(1, Math.min(minCalls, outcomes.length));
+        this.failureRate = failureRate;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openNanos = openMillis * 1_000_000L;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    }
+
+    /** A generation to pass to onResult / cancel, or REJECTED. */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected++;
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                rejected++;
+                return REJECTED;
+            }
+            probesStarted++;
+        }
+        return generation;
+    }
+
+    /** Give back a permit that was acquired but never used. */
+    public synchronized void cancel(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Record the outcome of a call made with the permit. failure describes
+     * what went wrong (for the log when the breaker opens); null on success.
+     */
+    public synchronized void onResult(long permit, String failure, long elapsedNanos) {
+        if (permit != generation) return;
+        if (failure == null && elapsedNanos > slowCallNanos) {
+            failure = "slow call (" + elapsedNanos / 1_000_000 + " ms)";
+        }
+        if (failure != null) lastFailure = failure;
+
+        if (state == State.HALF_OPEN) {
+            if (failure != null) {
+                transition(State.OPEN);
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) return;
+
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure != null;
+        if (failure != null) failures++;
+        next = (next + 1) % outcomes.length;
+
+        if (recorded >= minCalls && failures >= failureRate * recorded) {
+            transition(State.OPEN);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("state", state.name());
+        out.put("failureRate", recorded == 0 ? 0.0 : (double) failures / recorded);
+        out.put("window", recorded);
+        out.put("opens", opens);
+        out.put("rejected", rejected);
+        out.put("lastFailure", lastFailure);
+        return out;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        generation++;
+        switch (to) {
+            case OPEN:
+                opens++;
+                openedAt = System.nanoTime();
+                if (from == State.HALF_OPEN) {
+                    log.warn("[CircuitBreaker] {} HALF_OPEN -> OPEN for {} ms (probe failed: {})",
+                            name, openNanos / 1_000_000, lastFailure);
+                } else {
+                    log.warn("[CircuitBreaker] {} CLOSED -> OPEN for {} ms ({} of last {} calls failed; last: {})",
+                            name, openNanos / 1_000_000, failures, recorded, lastFailure);
+                }
+                break;
+            case HALF_OPEN:
+                probesStarted = 0;
+                probesSucceeded = 0;
+                log.info("[CircuitBreaker] {} OPEN -> HALF_OPEN, trying {} calls", name, halfOpenProbes);
+                break;
+            case CLOSED:
+            default:
+                log.info("[CircuitBreaker] {} {} -> CLOSED", name, from);
+                break;
+        }
+        // Every state starts with a clean window.
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
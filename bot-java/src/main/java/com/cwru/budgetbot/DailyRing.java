@@ -0,0 +1,82 @@
+package com.cwru.budgetbot;
+
+import java.util.Arrays;
+
+/**
+ * Per-day totals for the last {@link #DAYS} days, for a few columns at once
+ * (personal cents, CaseCash cents, swipes), with a running sum per column.
+ *
+ * Slot = epoch day mod DAYS. Adding for a newer day first clears the slots
+ * of the days that fell out of the window, so an add touches at most DAYS
+ * slots and a sum for the newest day is a single read: nothing is ever
+ * rescanned, however long the history.
+ *
+ * Slots saturate at +/- Money.MAX_CENTS, so a sum is at most DAYS times
+ * that and cannot overflow. Not thread-safe; the ledger locks the account.
+ */
+public final class DailyRing {
+
+    public static final int DAYS = 7;
+
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private final int columns;
+    private final long[] slots;   // [slot * columns + column]
+    private final long[] sums;    // per column, over the days (newest - DAYS, newest]
+    private long newest = NO_DAY;
+
+    public DailyRing(int columns) {
+        this.columns = columns;
+        this.slots = new long[DAYS * columns];
+        this.sums = new long[columns];
+    }
+
+    /** Add amount to column on day; days before the window are ignored. */
+    public void add(long day, int column, long amount) {
+        if (newest == NO_DAY || day > newest) {
+            advanceTo(day);
+        } else if (day <= newest - DAYS) {
+            return;
+        }
+        int at = slot(day) * columns + column;
+        long before = slots[at];
+        slots[at] = Money.clamp(before + amount);
+        sums[column] += slots[at] - before;
+    }
+
+    /**
+     * Sum of column over the DAYS days ending on today. Days with no entries
+     * count as 0; if today is before the newest day, the newest window is used.
+     */
+    public long sum(long today, int column) {
+        if (newest == NO_DAY) return 0;
+        if (today <= newest) return sums[column];
+        if (today - newest >= DAYS) return 0;
+        long sum = sums[column];
+        // Days newest-DAYS+1 .. today-DAYS have slid out of the window.
+        for (long d = newest - DAYS + 1; d <= today - DAYS; d++) {
+            sum -= slots[slot(d) * columns + column];
+        }
+        return sum;
+    }
+
+    private void advanceTo(long day) {
+        if (newest == NO_DAY || day - newest >= DAYS) {
+            Arrays.fill(slots, 0);
+            Arrays.fill(sums, 0);
+        } else {
+            for (long d = newest + 1; d <= day; d++) {
+                int base = slot(d) * columns;
+                for (int c = 0; c < columns; c++) {
+                    sums[c] -= slots[base + c];
+                    slots[base + c] = 0;
+                }
+            }
+        }
+        newest = day;
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) DAYS);
+    }
+}
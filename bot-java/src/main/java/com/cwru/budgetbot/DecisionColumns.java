@@ -0,0 +1,128 @@
+package com.cwru.budgetbot;
+
+/**
+ * Structure-of-arrays input for DecisionEngine.decideAll: row i is one
+ * candidate purchase/question scored against one budget snapshot.
+ *
+ * Intents and sources are IntentType / SourceType ordinals, money is long
+ * cents (Money.NO_AMOUNT for "no amount"), swipes are plain counts. All
+ * columns must have the same length; the arrays are used as-is, not copied.
+ */
+public final class DecisionColumns {
+
+    final byte[] intents;
+    final byte[] sources;
+    final long[] amountCents;
+
+    final long[] weeklyBudgetPersonalCents;
+    final long[] spentThisWeekPersonalCents;
+    final long[] caseCashTotalSemesterCents;
+    final long[] caseCashSpentThisWeekCents;
+    final int[] mealSwipesWeeklyTotal;
+    final int[] mealSwipesUsedThisWeek;
+
+    // Pacing inputs for HOW_AM_I_DOING / RECS (BudgetSnapshot's *Pace*
+    // getters); all null = pace on this week's columns above.
+    final long[] personalPaceSpentCents;
+    final long[] caseCashPaceSpentCents;
+    final long[] caseCashPaceExpectedCents;
+
+    public DecisionColumns(byte[] intents,
+                           byte[] sources,
+                           long[] amountCents,
+                           long[] weeklyBudgetPersonalCents,
+                           long[] spentThisWeekPersonalCents,
+                           long[] caseCashTotalSemesterCents,
+                           long[] caseCashSpentThisWeekCents,
+                           int[] mealSwipesWeeklyTotal,
+                           int[] mealSwipesUsedThisWeek) {
+        this(intents, sources, amountCents, weeklyBudgetPersonalCents, spentThisWeekPersonalCents,
+                caseCashTotalSemesterCents, caseCashSpentThisWeekCents,
+                mealSwipesWeeklyTotal, mealSwipesUsedThisWeek, null, null, null);
+    }
+
+    /** With pacing columns; pass all three or none (null). */
+    public DecisionColumns(byte[] intents,
+                           byte[] sources,
+                           long[] amountCents,
+                           long[] weeklyBudgetPersonalCents,
+                           long[] spentThisWeekPersonalCents,
+                           long[] caseCashTotalSemesterCents,
+                           long[] caseCashSpentThisWeekCents,
+                           int[] mealSwipesWeeklyTotal,
+                           int[] mealSwipesUsedThisWeek,
+                           long[] personalPaceSpentCents,
+                           long[] caseCashPaceSpentCents,
+                           long[] caseCashPaceExpectedCents) {
+        int n = intents.length;
+        if (sources.length != n || amountCents.length != n
+                || weeklyBudgetPersonalCents.length != n || spentThisWeekPersonalCents.length != n
+                || caseCashTotalSemesterCents.length != n || caseCashSpentThisWeekCents.length != n
+                || mealSwipesWeeklyTotal.length != n || mealSwipesUsedThisWeek.length != n) {
+            throw new IllegalArgumentException("all decision columns must have " + n + " rows");
+        }
+        boolean paced = personalPaceSpentCents != null;
+        if (paced != (caseCashPaceSpentCents != null) || paced != (caseCashPaceExpectedCents != null)) {
+            throw new IllegalArgumentException("pass all three pacing columns or none");
+        }
+        if (paced && (personalPaceSpentCents.length != n || caseCashPaceSpentCents.length != n
+                || caseCashPaceExpectedCents.length != n)) {
+            throw new IllegalArgumentException("all decision columns must have " + n + " rows");
+        }
+        this.intents = intents;
+        this.sources = sources;
+        this.amountCents = amountCents;
+        this.weeklyBudgetPersonalCents = weeklyBudgetPersonalCents;
+        this.spentThisWeekPersonalCents = spentThisWeekPersonalCents;
+        this.caseCashTotalSemesterCents = caseCashTotalSemesterCents;
+        this.caseCashSpentThisWeekCents = caseCashSpentThisWeekCents;
+        this.mealSwipesWeeklyTotal = mealSwipesWeeklyTotal;
+        this.mealSwipesUsedThisWeek = mealSwipesUsedThisWeek;
+        this.personalPaceSpentCents = personalPaceSpentCents;
+        this.caseCashPaceSpentCents = caseCashPaceSpentCents;
+        this.caseCashPaceExpectedCents = caseCashPaceExpectedCents;
+    }
+
+    /** Columns for queries[i] x snapshots[i]. */
+    public static DecisionColumns of(PurchaseQuery[] queries, BudgetSnapshot[] snapshots) {
+        if (queries.length != snapshots.length) {
+            throw new IllegalArgumentException(queries.length + " queries but " + snapshots.length + " snapshots");
+        }
+        int n = queries.length;
+        byte[] intents = new byte[n];
+        byte[] sources = new byte[n];
+        long[] amounts = new long[n];
+        long[] budgets = new long[n];
+        long[] spent = new long[n];
+        long[] ccTotals = new long[n];
+        long[] ccSpent = new long[n];
+        int[] swipesTotal = new int[n];
+        int[] swipesUsed = new int[n];
+        long[] paceSpent = new long[n];
+        long[] ccPaceSpent = new long[n];
+        long[] ccPaceExpected = new long[n];
+        for (int i = 0; i < n; i++) {
+            PurchaseQuery q = queries[i];
+            BudgetSnapshot s = snapshots[i];
+            intents[i] = (byte) q.getIntent().ordinal();
+            sources[i] = (byte) q.getSource().ordinal();
+            amounts[i] = q.getAmountCents();
+            budgets[i] = s.getWeeklyBudgetPersonalCents();
+            spent[i] = s.getSpentThisWeekPersonalCents();
+            ccTotals[i] = s.getCaseCashTotalSemesterCents();
+            ccSpent[i] = s.getCaseCashSpentThisWeekCents();
+            swipesTotal[i] = s.getMealSwipesWeeklyTotal();
+            swipesUsed[i] = s.getMealSwipesUsedThisWeek();
+            paceSpent[i] = s.getPersonalPaceSpentCents();
+            ccPaceSpent[i] = s.getCaseCashPaceSpentCents();
+            ccPaceExpected[i] = s.getCaseCashPaceExpectedCents();
+        }
+        return new DecisionColumns(intents, sources, amounts, budgets, spent,
+                ccTotals, ccSpent, swipesTotal, swipesUsed,
+                paceSpent, ccPaceSpent, ccPaceExpected);
+    }
+
+    public int size() {
+        return intents.length;
+    }
+}
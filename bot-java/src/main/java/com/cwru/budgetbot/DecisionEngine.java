@@ -1,5 +1,8 @@
 package com.cwru.budgetbot;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import org.springframework.stereotype.Service;
 
 /**
@@ -8,12 +11,27 @@ import org.springframework.stereotype.Service;
  *
  * It considers:
  *  - personal weekly budget
- *  - CaseCash pacing (approx per-week budget)
+ *  - CaseCash pacing (approx per-week budget, or spent vs. expected-by-now
+ *    over the semester when the snapshot carries ledger Pacing)
  *  - meal swipes remaining this week
+ *
+ * All money is long cents and every threshold is checked by cross-multiplying
+ * (spent * 100 < 75 * budget rather than spent / budget < 0.75), so a
+ * purchase that lands exactly on a boundary always gets the same answer.
+ *
+ * The rules are written once as static "band" kernels over primitives
+ * (0 = YES, 1 = CAUTION, 2 = NO, same as the Decision ordinals). decide()
+ * feeds them from one query/snapshot pair; decideAll() feeds them from
+ * DecisionColumns arrays for whole-population scoring.
  */
 @Service
 public class DecisionEngine {
 
+    private static final Decision[] DECISIONS = Decision.values();
+
+    // Rows per fork-join leaf in decideAllParallel.
+    private static final int PARALLEL_CHUNK = 16_384;
+
     public Decision decide(PurchaseQuery q, BudgetSnapshot snap) {
         if (q == null || snap == null) {
             return Decision.CAUTION;
@@ -40,36 +58,8 @@ public class DecisionEngine {
      *  - adjusted if CaseCash or swipes are clearly overused
      */
     private Decision decideHowAmIDoing(BudgetSnapshot snap) {
-        double personalBudget = safePositive(snap.getWeeklyBudgetPersonal());
-        double personalSpent  = safeNonNegative(snap.getSpentThisWeekPersonal());
-
-        double personalRatio;
-        if (personalBudget <= 0) {
-            personalRatio = 1.0; // treat as neutral/borderline
-        } else {
-            personalRatio = personalSpent / personalBudget;
-        }
-
-        // CaseCash “pacing”
-        double ccWeeklyBudget = safePositive(snap.getCaseCashWeeklyBudgetApprox());
-        double ccSpentWeek    = safeNonNegative(snap.getCaseCashSpentThisWeek());
-        double ccRatio = (ccWeeklyBudget > 0) ? ccSpentWeek / ccWeeklyBudget : 1.0;
-
-        // Meal swipe usage
-        int swipesTotal = snap.getMealSwipesWeeklyTotal();
-        int swipesUsed  = snap.getMealSwipesUsedThisWeek();
-        double swipeRatio = (swipesTotal > 0) ? (double) swipesUsed / swipesTotal : 0.5;
-
-        // Combine into a rough “worst-case” ratio
-        double combined = Math.max(personalRatio, Math.max(ccRatio, swipeRatio));
-
-        if (combined < 0.75) {
-            return Decision.YES;       // comfortably on track
-        } else if (combined <= 1.05) {
-            return Decision.CAUTION;   // borderline
-        } else {
-            return Decision.NO;        // clearly overpacing
-        }
+        // Worst of the three pacing ratios: < 0.75 on track, <= 1.05 borderline, else overpacing
+        return DECISIONS[pacingBand(snap, HOW_LOW_PCT, HOW_HIGH_PCT)];
     }
 
     /**
@@ -80,115 +70,239 @@ public class DecisionEngine {
      *  - MEAL_SWIPE uses remaining swipes this week
      */
     private Decision decideCanIBuy(PurchaseQuery q, BudgetSnapshot snap) {
-        Double amtObj = q.getAmount();
-        double amount = (amtObj == null || amtObj <= 0) ? 0.0 : amtObj;
+        long amount = purchaseAmount(q.getAmountCents());
 
         switch (q.getSource()) {
             case CASE_CASH:
-                return decideCaseCashPurchase(amount, snap);
+                return DECISIONS[caseCashPurchaseBand(
+                        snap.getCaseCashTotalSemesterCents(), snap.getCaseCashSpentThisWeekCents(), amount)];
 
             case MEAL_SWIPE:
-                return decideSwipePurchase(snap);
+                return DECISIONS[swipeBand(snap.getMealSwipesWeeklyTotal(), snap.getMealSwipesUsedThisWeek())];
 
             case PERSONAL:
             default:
-                return decidePersonalPurchase(amount, snap);
+                return DECISIONS[personalPurchaseBand(
+                        snap.getWeeklyBudgetPersonalCents(), snap.getSpentThisWeekPersonalCents(), amount)];
         }
     }
 
-    private Decision decidePersonalPurchase(double amount, BudgetSnapshot snap) {
-        if (amount <= 0.0) return Decision.CAUTION;
+    /**
+     * Recommendations: if combined pacing is good, suggest more freedom.
+     * If pacing is tight or bad, favor cheaper / on-campus options.
+     */
+    private Decision decideRecs(BudgetSnapshot snap) {
+        // Same combined heuristic as HOW_AM_I_DOING, slightly stricter cut-offs
+        return DECISIONS[pacingBand(snap, RECS_LOW_PCT, RECS_HIGH_PCT)];
+    }
 
-        double weeklyBudget   = safePositive(snap.getWeeklyBudgetPersonal());
-        double spent          = safeNonNegative(snap.getSpentThisWeekPersonal());
-        double remainingBefore = weeklyBudget - spent;
+    private static int pacingBand(BudgetSnapshot snap, int lowPct, int highPct) {
+        return pacingBand(snap.getWeeklyBudgetPersonalCents(), snap.getPersonalPaceSpentCents(),
+                snap.getCaseCashPaceExpectedCents(), snap.getCaseCashPaceSpentCents(),
+                snap.getMealSwipesWeeklyTotal(), snap.getMealSwipesUsedThisWeek(),
+                lowPct, highPct);
+    }
 
-        if (weeklyBudget <= 0) return Decision.CAUTION;
+    // ---------- columnar batch ----------
 
-        double remainingAfter  = remainingBefore - amount;
-        double minComfortBuffer = weeklyBudget * 0.20;
+    /**
+     * Score every row of the columns into out[i] as a Decision ordinal.
+     * Same answers as decide() row by row, without touching any objects:
+     * one pass over primitive arrays, kernels written as compare-and-add
+     * rather than if/else chains.
+     */
+    public void decideAll(DecisionColumns in, byte[] out) {
+        checkOutput(in, out);
+        decideRange(in, out, 0, in.size());
+    }
 
-        if (remainingAfter >= minComfortBuffer) {
-            return Decision.YES;
-        } else if (remainingAfter >= 0) {
-            return Decision.CAUTION;
-        } else {
-            return Decision.NO;
+    /** decideAll split across the common fork-join pool. */
+    public void decideAllParallel(DecisionColumns in, byte[] out) {
+        checkOutput(in, out);
+        if (in.size() <= PARALLEL_CHUNK) {
+            decideRange(in, out, 0, in.size());
+            return;
         }
+        ForkJoinPool.commonPool().invoke(new DecideRange(in, out, 0, in.size()));
     }
 
-    private Decision decideCaseCashPurchase(double amount, BudgetSnapshot snap) {
-        if (amount <= 0.0) return Decision.CAUTION;
+    private static void checkOutput(DecisionColumns in, byte[] out) {
+        if (out.length < in.size()) {
+            throw new IllegalArgumentException("output has " + out.length + " slots for " + in.size() + " rows");
+        }
+    }
 
-        double ccWeeklyBudget = safePositive(snap.getCaseCashWeeklyBudgetApprox());
-        double ccSpentWeek    = safeNonNegative(snap.getCaseCashSpentThisWeek());
-        double remainingBefore = ccWeeklyBudget - ccSpentWeek;
+    private static final class DecideRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
 
-        if (ccWeeklyBudget <= 0) return Decision.CAUTION;
+        private final DecisionColumns in;
+        private final byte[] out;
+        private final int from;
+        private final int to;
 
-        double remainingAfter   = remainingBefore - amount;
-        double minComfortBuffer = ccWeeklyBudget * 0.20;
+        DecideRange(DecisionColumns in, byte[] out, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
 
-        if (remainingAfter >= minComfortBuffer) {
-            return Decision.YES;
-        } else if (remainingAfter >= 0) {
-            return Decision.CAUTION;
-        } else {
-            return Decision.NO;
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                decideRange(in, out, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecideRange(in, out, from, mid), new DecideRange(in, out, mid, to));
         }
     }
 
-    private Decision decideSwipePurchase(BudgetSnapshot snap) {
-        int total = snap.getMealSwipesWeeklyTotal();
-        int used  = snap.getMealSwipesUsedThisWeek();
+    private static final int INTENT_CAN_I_BUY = IntentType.CAN_I_BUY.ordinal();
+    private static final int INTENT_HOW = IntentType.HOW_AM_I_DOING.ordinal();
+    private static final int INTENT_RECS = IntentType.RECS.ordinal();
+    private static final int SOURCE_CASE_CASH = SourceType.CASE_CASH.ordinal();
+    private static final int SOURCE_MEAL_SWIPE = SourceType.MEAL_SWIPE.ordinal();
+    private static final int BAND_CAUTION = Decision.CAUTION.ordinal();
+
+    private static void decideRange(DecisionColumns in, byte[] out, int from, int to) {
+        byte[] intents = in.intents;
+        byte[] sources = in.sources;
+        long[] amounts = in.amountCents;
+        long[] budgets = in.weeklyBudgetPersonalCents;
+        long[] spent = in.spentThisWeekPersonalCents;
+        long[] ccTotals = in.caseCashTotalSemesterCents;
+        long[] ccSpent = in.caseCashSpentThisWeekCents;
+        int[] swipesTotal = in.mealSwipesWeeklyTotal;
+        int[] swipesUsed = in.mealSwipesUsedThisWeek;
+        // null when the caller has no pacing: pace on this week's columns
+        long[] paceSpent = in.personalPaceSpentCents;
+        long[] ccPaceSpent = in.caseCashPaceSpentCents;
+        long[] ccPaceExpected = in.caseCashPaceExpectedCents;
+
+        for (int i = from; i < to; i++) {
+            int intent = intents[i];
+            int band;
+            // Only the rule the row needs is evaluated, so only its columns are
+            // read; the loop is memory-bound and that beats computing every rule.
+            if (intent == INTENT_CAN_I_BUY) {
+                long amount = purchaseAmount(amounts[i]);
+                int source = sources[i];
+                if (source == SOURCE_CASE_CASH) {
+                    band = caseCashPurchaseBand(ccTotals[i], ccSpent[i], amount);
+                } else if (source == SOURCE_MEAL_SWIPE) {
+                    band = swipeBand(swipesTotal[i], swipesUsed[i]);
+                } else {
+                    band = personalPurchaseBand(budgets[i], spent[i], amount);
+                }
+            } else if (intent == INTENT_HOW || intent == INTENT_RECS) {
+                boolean recs = intent == INTENT_RECS;
+                boolean paced = paceSpent != null;
+                band = pacingBand(budgets[i],
+                        paced ? paceSpent[i] : spent[i],
+                        paced ? ccPaceExpected[i] : ccTotals[i],
+                        paced ? ccPaceSpent[i] : weekPace(ccSpent[i]),
+                        swipesTotal[i], swipesUsed[i],
+                        recs ? RECS_LOW_PCT : HOW_LOW_PCT,
+                        recs ? RECS_HIGH_PCT : HOW_HIGH_PCT);
+            } else {
+                band = BAND_CAUTION;
+            }
+            out[i] = (byte) band;
+        }
+    }
 
-        if (total <= 0) return Decision.CAUTION;
+    // ---------- rule kernels (shared by decide and decideAll) ----------
 
-        int remaining = total - used;
+    private static final int HOW_LOW_PCT = 75;
+    private static final int HOW_HIGH_PCT = 105;
+    private static final int RECS_LOW_PCT = 70;
+    private static final int RECS_HIGH_PCT = 100;
 
-        if (remaining > total * 0.5) {
-            return Decision.YES;       // more than half of swipes left
-        } else if (remaining > 0) {
-            return Decision.CAUTION;   // low but not zero
-        } else {
-            return Decision.NO;        // no swipes left on paper
-        }
+    /** Missing or non-positive amounts count as 0 (CAUTION); huge ones are clamped. */
+    private static long purchaseAmount(long cents) {
+        return (cents == Money.NO_AMOUNT || cents <= 0) ? 0L : Math.min(cents, Money.MAX_CENTS);
     }
 
     /**
-     * Recommendations: if combined pacing is good, suggest more freedom.
-     * If pacing is tight or bad, favor cheaper / on-campus options.
+     * Personal purchase: YES if at least 20% of the weekly budget is left
+     * afterwards, CAUTION if it still fits, NO if it overdraws.
      */
-    private Decision decideRecs(BudgetSnapshot snap) {
-        // Use same combined heuristic as HOW_AM_I_DOING
-        double personalBudget = safePositive(snap.getWeeklyBudgetPersonal());
-        double personalSpent  = safeNonNegative(snap.getSpentThisWeekPersonal());
-        double personalRatio  = (personalBudget > 0) ? personalSpent / personalBudget : 1.0;
+    static int personalPurchaseBand(long weeklyBudgetCents, long spentCents, long amount) {
+        long weeklyBudget = money(weeklyBudgetCents);
+        long remainingAfter = weeklyBudget - money(spentCents) - amount;
+
+        // comfort buffer is 20% of the weekly budget: remainingAfter >= budget / 5
+        int band = (remainingAfter * 5 < weeklyBudget ? 1 : 0) + (remainingAfter < 0 ? 1 : 0);
+        return (amount <= 0 || weeklyBudget <= 0) ? BAND_CAUTION : band;
+    }
 
-        double ccWeeklyBudget = safePositive(snap.getCaseCashWeeklyBudgetApprox());
-        double ccSpentWeek    = safeNonNegative(snap.getCaseCashSpentThisWeek());
-        double ccRatio        = (ccWeeklyBudget > 0) ? ccSpentWeek / ccWeeklyBudget : 1.0;
+    /**
+     * Same rule against the weekly CaseCash budget (semester total / 15).
+     * Everything is multiplied through by 15 so there is no division.
+     */
+    static int caseCashPurchaseBand(long semesterTotalCents, long spentWeekCents, long amount) {
+        long semesterTotal = money(semesterTotalCents);
+        long remainingAfterTimesWeeks =
+                semesterTotal - BudgetSnapshot.SEMESTER_WEEKS * (money(spentWeekCents) + amount);
+
+        int band = (remainingAfterTimesWeeks * 5 < semesterTotal ? 1 : 0)
+                + (remainingAfterTimesWeeks < 0 ? 1 : 0);
+        return (amount <= 0 || semesterTotal <= 0) ? BAND_CAUTION : band;
+    }
+
+    /** YES with more than half the week's swipes left, CAUTION while any remain, else NO. */
+    static int swipeBand(int total, int used) {
+        long remaining = (long) total - used;
+        int band = (2 * remaining <= total ? 1 : 0) + (remaining <= 0 ? 1 : 0);
+        return (total <= 0) ? BAND_CAUTION : band;
+    }
 
-        int swipesTotal = snap.getMealSwipesWeeklyTotal();
-        int swipesUsed  = snap.getMealSwipesUsedThisWeek();
-        double swipeRatio = (swipesTotal > 0) ? (double) swipesUsed / swipesTotal : 0.5;
+    /**
+     * Band of the worst pacing ratio: personal spent / weekly budget, CaseCash
+     * spent / expected, swipes used / total. 0 if below lowPct percent, 1 if
+     * at most highPct percent, 2 above that. A missing budget counts as ratio
+     * 1.0, missing swipes as 0.5.
+     *
+     * The CaseCash pair is either semester-to-date spending vs. what should be
+     * spent by now, or a week's spending times SEMESTER_WEEKS (weekPace) vs.
+     * the semester total; see BudgetSnapshot.getCaseCashPaceSpentCents.
+     */
+    static int pacingBand(long personalBudgetCents, long personalSpentCents,
+                          long ccExpectedCents, long ccSpentCents,
+                          int swipesTotal, int swipesUsed,
+                          int lowPct, int highPct) {
+        long personalBudget = money(personalBudgetCents);
+        boolean hasBudget = personalBudget > 0;
+        int personal = band(hasBudget ? money(personalSpentCents) : 1, hasBudget ? personalBudget : 1,
+                lowPct, highPct);
+
+        long ccExpected = money(ccExpectedCents);
+        boolean hasCaseCash = ccExpected > 0;
+        int caseCash = band(hasCaseCash ? Math.min(Math.max(0L, ccSpentCents), MAX_PACE_CENTS) : 1,
+                hasCaseCash ? ccExpected : 1, lowPct, highPct);
+
+        boolean hasSwipes = swipesTotal > 0;
+        int swipes = band(hasSwipes ? swipesUsed : 1, hasSwipes ? swipesTotal : 2, lowPct, highPct);
+
+        return Math.max(personal, Math.max(caseCash, swipes));
+    }
 
-        double combined = Math.max(personalRatio, Math.max(ccRatio, swipeRatio));
+    // Largest CaseCash pace value: a week at MAX_CENTS scaled to the semester.
+    private static final long MAX_PACE_CENTS = BudgetSnapshot.SEMESTER_WEEKS * Money.MAX_CENTS;
 
-        if (combined < 0.7) {
-            return Decision.YES;
-        } else if (combined <= 1.0) {
-            return Decision.CAUTION;
-        } else {
-            return Decision.NO;
-        }
+    // spent / (total / 15) == 15 * spent / total
+    static long weekPace(long caseCashSpentWeekCents) {
+        return BudgetSnapshot.SEMESTER_WEEKS * money(caseCashSpentWeekCents);
     }
 
-    private double safePositive(double v) {
-        return Double.isFinite(v) && v > 0 ? v : 0.0;
+    // Where num / den (den > 0) falls against lowPct / 100 and highPct / 100.
+    private static int band(long num, long den, int lowPct, int highPct) {
+        return (num * 100 >= lowPct * den ? 1 : 0) + (num * 100 > highPct * den ? 1 : 0);
     }
 
-    private double safeNonNegative(double v) {
-        return Double.isFinite(v) && v >= 0 ? v : 0.0;
+    // Negative balances count as 0, and everything stays within Money.MAX_CENTS.
+    private static long money(long cents) {
+        return Math.min(Math.max(0L, cents), Money.MAX_CENTS);
     }
 }
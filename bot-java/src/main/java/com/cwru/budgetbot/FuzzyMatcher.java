@@ -0,0 +1,336 @@
+package com.cwru.budgetbot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typo-tolerant fallback for AliasMatcher ("chipolte", "starbuck", "trader joe").
+ *
+ * Symmetric-deletion index (the SymSpell idea): every alias is stored under
+ * each string obtained by deleting up to maxEdits(alias) chars from its first
+ * PREFIX chars. A window of the question produces its own deletions the same
+ * way; an alias that shares one of them is a candidate and is then checked
+ * with a bounded Damerau (optimal string alignment) distance, so adjacent
+ * swaps count as one edit.
+ *
+ * Deletions are never materialized as Strings: each is hashed over char
+ * ranges and packed with the alias id into one sorted long[], so the index is
+ * a few flat arrays however big the catalog is. A directory on the top bits
+ * of the hash turns each lookup into one jump and a short scan.
+ *
+ * Windows are runs of whole words of the normalized question. Allowed edits
+ * depend on the alias length: none below MIN_LENGTH ("tjs", "bww" and even
+ * "daves" are one edit from everyday words: saves, waves, dates), one up to
+ * 8 chars, two from 9. A one-edit hit on an alias of up to 8 chars must also
+ * get the first letter right ("mining" is not "dining"); people rarely
+ * mistype the first letter, and short words differ there most often.
+ *
+ * Ranking: fewest edits relative to alias length (the score), then the longer
+ * alias, then catalog order.
+ */
+public final class FuzzyMatcher {
+
+    /** Shortest alias eligible for fuzzy matching. */
+    static final int MIN_LENGTH = 6;
+
+    // Shortest window worth comparing: one deletion away from a MIN_LENGTH alias.
+    private static final int MIN_WINDOW = MIN_LENGTH - 1;
+
+    // Aliases up to this long must match the window's first char to be one edit off.
+    private static final int FIRST_CHAR_LENGTH = 8;
+
+    // Deletions are generated from this many leading chars only.
+    private static final int PREFIX = 7;
+
+    // Packed posting: 39 bits of deletion hash, 24 bits of alias id; never
+    // negative, so signed sort order is also the directory's order.
+    private static final int ID_BITS = 24;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int MAX_PATTERNS = 1 << ID_BITS;
+    private static final int HASH_BITS = 63 - ID_BITS;
+
+    private static final FuzzyMatcher EMPTY =
+            new FuzzyMatcher(new long[0], new int[] {0, 0}, 0, new String[0], new MerchantLexicon.Entry[0], 0, 0);
+
+    /** Best fuzzy hit: the entry, its alias, the edits needed and score = 1 - edits / alias length. */
+    public static final class Candidate {
+        public final MerchantLexicon.Entry entry;
+        public final String alias;
+        public final int edits;
+        public final double score;
+
+        Candidate(MerchantLexicon.Entry entry, String alias, int edits) {
+            this.entry = entry;
+            this.alias = alias;
+            this.edits = edits;
+            this.score = 1.0 - (double) edits / alias.length();
+        }
+    }
+
+    private final long[] postings;
+    // postings[directory[b] .. directory[b + 1]) hold the hashes whose top dirBits bits are b.
+    private final int[] directory;
+    private final int dirBits;
+    private final String[] aliases;
+    private final MerchantLexicon.Entry[] entries;
+    private final int maxWords;
+    private final int maxLength;
+
+    private FuzzyMatcher(long[] postings,
+                         int[] directory,
+                         int dirBits,
+                         String[] aliases,
+                         MerchantLexicon.Entry[] entries,
+                         int maxWords,
+                         int maxLength) {
+        this.postings = postings;
+        this.directory = directory;
+        this.dirBits = dirBits;
+        this.aliases = aliases;
+        this.entries = entries;
+        this.maxWords = maxWords;
+        this.maxLength = maxLength;
+    }
+
+    /** Index every eligible normalized alias; first entry to register an alias keeps it. */
+    public static FuzzyMatcher build(List<MerchantLexicon.Entry> entries) {
+        Map<String, MerchantLexicon.Entry> patterns = new LinkedHashMap<>();
+        for (MerchantLexicon.Entry e : entries) {
+            for (String alias : e.aliases()) {
+                if (alias.length() >= MIN_LENGTH) {
+                    patterns.putIfAbsent(alias, e);
+                }
+            }
+        }
+        if (patterns.isEmpty()) {
+            return EMPTY;
+        }
+        if (patterns.size() > MAX_PATTERNS) {
+            throw new IllegalArgumentException("Too many aliases for fuzzy matching: " + patterns.size());
+        }
+
+        String[] aliases = new String[patterns.size()];
+        MerchantLexicon.Entry[] owners = new MerchantLexicon.Entry[patterns.size()];
+        int postingCount = 0;
+        int maxWords = 0;
+        int maxLength = 0;
+        int id = 0;
+        for (Map.Entry<String, MerchantLexicon.Entry> pattern : patterns.entrySet()) {
+            String alias = pattern.getKey();
+            aliases[id] = alias;
+            owners[id] = pattern.getValue();
+            postingCount += deletionCount(Math.min(alias.length(), PREFIX), maxEdits(alias.length()));
+            maxWords = Math.max(maxWords, wordCount(alias));
+            maxLength = Math.max(maxLength, alias.length());
+            id++;
+        }
+
+        long[] postings = new long[postingCount];
+        long[] keys = new long[MAX_DELETIONS];
+        int k = 0;
+        for (id = 0; id < aliases.length; id++) {
+            String alias = aliases[id];
+            int count = deletions(alias, 0, alias.length(), maxEdits(alias.length()), keys);
+            for (int i = 0; i < count; i++) {
+                postings[k++] = (keys[i] << ID_BITS) | id;
+            }
+        }
+        Arrays.sort(postings);
+
+        // Deleting either of two equal neighbours gives the same key twice.
+        int unique = 0;
+        for (int i = 0; i < postings.length; i++) {
+            if (i == 0 || postings[i] != postings[unique - 1]) {
+                postings[unique++] = postings[i];
+            }
+        }
+        postings = Arrays.copyOf(postings, unique);
+
+        // About one posting per directory slot.
+        int dirBits = Math.max(1, Math.min(HASH_BITS, 32 - Integer.numberOfLeadingZeros(unique)));
+        int[] directory = new int[(1 << dirBits) + 1];
+        int b = 0;
+        for (int i = 0; i < unique; i++) {
+            int bucket = (int) (postings[i] >>> (63 - dirBits));
+            while (b <= bucket) directory[b++] = i;
+        }
+        while (b < directory.length) directory[b++] = unique;
+
+        return new FuzzyMatcher(postings, directory, dirBits, aliases, owners, maxWords, maxLength);
+    }
+
+    /**
+     * Best alias within its edit allowance of some run of whole words in the
+     * already-normalized text, or null.
+     */
+    public Candidate find(String normalized) {
+        if (aliases.length == 0) {
+            return null;
+        }
+        int n = normalized.length();
+        // Bounded-distance scratch rows, sized for the longest comparable window.
+        int cols = maxLength + 3;
+        int[][] rows = {new int[cols], new int[cols], new int[cols]};
+
+        long[] keys = new long[MAX_DELETIONS];
+
+        int bestId = -1;
+        int bestEdits = 0;
+        for (int from = 0; from < n; from = nextWord(normalized, from)) {
+            int to = from;
+            for (int words = 0; words < maxWords && to < n; words++) {
+                to = wordEnd(normalized, (words == 0) ? from : to + 1);
+                int length = to - from;
+                if (length > maxLength + 2) break;
+                if (length < MIN_WINDOW) continue;
+
+                // Deep enough for any alias this window could be within reach of.
+                int count = deletions(normalized, from, to, maxEdits(length + 2), keys);
+                for (int d = 0; d < count; d++) {
+                    long key = keys[d];
+                    int bucket = (int) (key >>> (HASH_BITS - dirBits));
+                    for (int i = directory[bucket], end = directory[bucket + 1]; i < end; i++) {
+                        if ((postings[i] >>> ID_BITS) != key) continue;
+                        int id = (int) (postings[i] & ID_MASK);
+                        String alias = aliases[id];
+                        int allowed = maxEdits(alias.length());
+                        if (Math.abs(alias.length() - length) > allowed) continue;
+                        if (alias.length() <= FIRST_CHAR_LENGTH
+                                && alias.charAt(0) != normalized.charAt(from)) continue;
+                        int edits = distance(normalized, from, to, alias, allowed, rows);
+                        if (edits <= allowed && (bestId < 0 || better(id, edits, bestId, bestEdits))) {
+                            bestId = id;
+                            bestEdits = edits;
+                        }
+                    }
+                }
+            }
+        }
+        return (bestId < 0) ? null : new Candidate(entries[bestId], aliases[bestId], bestEdits);
+    }
+
+    /** Number of distinct aliases in the index. */
+    public int size() {
+        return aliases.length;
+    }
+
+    // ---------- ranking ----------
+
+    // Lower edits / length first, then the longer alias, then catalog order.
+    private boolean better(int id, int edits, int otherId, int otherEdits) {
+        int len = aliases[id].length();
+        int otherLen = aliases[otherId].length();
+        long lhs = (long) edits * otherLen;
+        long rhs = (long) otherEdits * len;
+        if (lhs != rhs) return lhs < rhs;
+        if (len != otherLen) return len > otherLen;
+        return id < otherId;
+    }
+
+    static int maxEdits(int length) {
+        if (length < MIN_LENGTH) return 0;
+        return (length <= 8) ? 1 : 2;
+    }
+
+    // ---------- deletions ----------
+
+    // 1 + p + p(p-1)/2 for up to two deletions from a p-char prefix.
+    private static int deletionCount(int prefix, int edits) {
+        int count = 1 + ((edits >= 1) ? prefix : 0);
+        if (edits >= 2) count += prefix * (prefix - 1) / 2;
+        return count;
+    }
+
+    private static final int MAX_DELETIONS = deletionCount(PREFIX, 2);
+
+    /**
+     * Hashes of s[from, from + PREFIX) with every set of up to edits positions
+     * skipped, written to out; returns how many. Duplicates (deleting either
+     * 'o' of "foo") are kept.
+     */
+    private static int deletions(String s, int from, int to, int edits, long[] out) {
+        int end = Math.min(to, from + PREFIX);
+        int k = 0;
+        out[k++] = hash(s, from, end, -1, -1);
+        if (edits < 1) return k;
+        for (int i = from; i < end; i++) {
+            out[k++] = hash(s, from, end, i, -1);
+            if (edits < 2) continue;
+            for (int j = i + 1; j < end; j++) {
+                out[k++] = hash(s, from, end, i, j);
+            }
+        }
+        return k;
+    }
+
+    // FNV-1a over s[from, end) minus positions skip1 and skip2, folded to HASH_BITS.
+    private static long hash(String s, int from, int end, int skip1, int skip2) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < end; i++) {
+            if (i == skip1 || i == skip2) continue;
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 29;
+        return h >>> (64 - HASH_BITS);
+    }
+
+    // ---------- distance ----------
+
+    /**
+     * Optimal string alignment distance between s[from, to) and b, or
+     * bound + 1 as soon as it is certain to exceed bound.
+     */
+    private static int distance(String s, int from, int to, String b, int bound, int[][] rows) {
+        int m = to - from;
+        int n = b.length();
+        int[] prev2 = rows[0];
+        int[] prev = rows[1];
+        int[] cur = rows[2];
+        for (int j = 0; j <= n; j++) prev[j] = j;
+
+        for (int i = 1; i <= m; i++) {
+            char a = s.charAt(from + i - 1);
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                char c = b.charAt(j - 1);
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + (a == c ? 0 : 1));
+                if (i > 1 && j > 1 && a == b.charAt(j - 2) && s.charAt(from + i - 2) == c) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > bound) return bound + 1;
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[n], bound + 1);
+    }
+
+    // ---------- words ----------
+
+    private static int wordCount(String s) {
+        int words = 1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == ' ') words++;
+        }
+        return words;
+    }
+
+    private static int wordEnd(String s, int from) {
+        int i = from;
+        while (i < s.length() && s.charAt(i) != ' ') i++;
+        return i;
+    }
+
+    private static int nextWord(String s, int from) {
+        int end = wordEnd(s, from);
+        return (end < s.length()) ? end + 1 : end;
+    }
+}
@@ -1,6 +1,5 @@
 package com.cwru.budgetbot;
 
-import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
@@ -11,6 +10,7 @@ public class IntentParser {
     private final MerchantLexicon lexicon;
     private final MoneyParser moneyParser;
     private final SwipeParser swipeParser;
+    private final PhraseMatcher phraseMatcher;
 
     public IntentParser(MerchantLexicon lexicon,
                         MoneyParser moneyParser,
@@ -18,17 +18,21 @@ public class IntentParser {
         this.lexicon = lexicon;
         this.moneyParser = moneyParser;
         this.swipeParser = swipeParser;
+        this.phraseMatcher = PhraseMatcher.defaults();
     }
 
     public PurchaseQuery parse(String input) {
-        String text = input.trim();
-        String lower = text.toLowerCase(Locale.ROOT);
+        // 0) One pass over the question: phrase table (intent, cheapness, source
+        //    keywords), normalized form for the lexicon and money spans
+        QuestionTokens tokens = QuestionTokens.of(input, phraseMatcher);
+        String text = tokens.text();
+        int phrases = tokens.phrases();
 
         // 1) INTENT: rule-based only
-        IntentType intent = detectIntent(lower);
+        IntentType intent = detectIntent(phrases);
 
         // 2) MERCHANT: canonical name via lexicon lookup
-        Optional<MerchantLexicon.Match> match = lexicon.find(text);
+        Optional<MerchantLexicon.Match> match = lexicon.find(tokens);
         // use lambda instead of method reference to avoid the compiler complaint
         String merchant = match
                 .map(MerchantLexicon.Match::canonicalName)   // note the () via method ref
@@ -36,23 +40,19 @@ public class IntentParser {
         // ^ assumes Match has a public field canonicalName (which is how we had it earlier)
 
         // 3) AMOUNT OF MONEY (if any)
-        MoneyParser.Result money = moneyParser.parse(lower);
-        Double amount = (money != null) ? money.amount : null;
+        MoneyParser.Result money = moneyParser.parse(tokens);
+        long amountCents = (money != null) ? money.cents : Money.NO_AMOUNT;
 
         // 4) SOURCE TYPE (PERSONAL / CASE_CASH / MEAL_SWIPE)
-        SourceType source = swipeParser.detectSource(lower, merchant, amount);
+        SourceType source = swipeParser.detectSource(tokens, merchant, amountCents);
 
         // 5) CHEAPNESS PREFERENCE
-        boolean cheapPreference =
-                lower.contains("cheap") ||
-                        lower.contains("tight budget") ||
-                        lower.contains("save money") ||
-                        lower.contains("broke");
+        boolean cheapPreference = PhraseCategory.CHEAP.in(phrases);
 
         return new PurchaseQuery(
                 intent,
                 merchant,
-                amount,
+                amountCents,
                 source,
                 text,
                 cheapPreference
@@ -61,40 +61,17 @@ public class IntentParser {
 
     // ----------------- helper for intent detection -----------------
 
-    private IntentType detectIntent(String lower) {
-        // status / “how am I doing” questions
-        if (lower.contains("how am i doing") ||
-                lower.contains("how'm i doing") ||
-                lower.contains("how am i doing on my budget") ||
-                lower.contains("on my budget") ||
-                lower.contains("on track") ||
-                lower.contains("over budget")) {
+    // Phrases themselves live in intent-phrases.txt; only the priority is fixed here.
+    private IntentType detectIntent(int phrases) {
+        if (PhraseCategory.HOW_AM_I_DOING.in(phrases)) {
             return IntentType.HOW_AM_I_DOING;
         }
-
-        // recommendations
-        if (lower.contains("where should i eat") ||
-                lower.contains("where can i eat") ||
-                lower.contains("any recommendations") ||
-                lower.contains("what should i get for food") ||
-                lower.contains("where can i get groceries") ||
-                lower.contains("where can i get food") ||
-                lower.contains("somewhere cheap") ||
-                lower.contains("cheap place to eat")) {
+        if (PhraseCategory.RECS.in(phrases)) {
             return IntentType.RECS;
         }
-
-        // “can I buy / spend” style questions
-        if (lower.startsWith("can i") ||
-                lower.startsWith("is it okay if") ||
-                lower.contains("okay to spend") ||
-                lower.contains("is it ok if i spend") ||
-                lower.contains("should i buy") ||
-                lower.contains("should i spend") ||
-                lower.contains("will i stay on track if i spend")) {
+        if (PhraseCategory.CAN_I_BUY.in(phrases)) {
             return IntentType.CAN_I_BUY;
         }
-
         return IntentType.UNKNOWN;
     }
 }
@@ -0,0 +1,102 @@
+package com.cwru.budgetbot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over roughly the last windowMillis.
+ *
+ * Buckets are log-linear in microseconds: exact below 8 us, then 8 buckets
+ * per power of two (about 12% wide), up to ~2^40 us. record() is one
+ * atomic increment.
+ *
+ * Two generations are kept; every windowMillis / 2 the older one is cleared
+ * and becomes current. Percentiles read both, so they cover between half
+ * and all of the window and old spikes age out instead of pinning the
+ * percentile forever.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB;
+
+    private final long halfWindowNanos;
+    private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+    private volatile long rotatedAt = System.nanoTime();
+
+    public LatencyHistogram(long windowMillis) {
+        this.halfWindowNanos = Math.max(1, windowMillis) * 1_000_000L / 2;
+    }
+
+    public void record(long nanos) {
+        rotateIfDue();
+        current.incrementAndGet(bucket(Math.max(0, nanos / 1_000)));
+    }
+
+    /** Samples in the window. */
+    public long count() {
+        rotateIfDue();
+        AtomicLongArray cur = current;
+        AtomicLongArray prev = previous;
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += cur.get(i) + prev.get(i);
+        }
+        return n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the p-th sample (0 < p <= 1), in
+     * nanoseconds; -1 when the window is empty.
+     */
+    public long percentileNanos(double p) {
+        rotateIfDue();
+        AtomicLongArray cur = current;
+        AtomicLongArray prev = previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = cur.get(i) + prev.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return -1;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, p) * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperMicros(i) * 1_000L;
+        }
+        return upperMicros(BUCKETS - 1) * 1_000L;
+    }
+
+    private void rotateIfDue() {
+        long now = System.nanoTime();
+        if (now - rotatedAt < halfWindowNanos) return;
+        synchronized (this) {
+            if (now - rotatedAt < halfWindowNanos) return;
+            // Two half-windows with no samples at all: drop both generations.
+            AtomicLongArray fresh = new AtomicLongArray(BUCKETS);
+            previous = (now - rotatedAt < 2 * halfWindowNanos) ? current : new AtomicLongArray(BUCKETS);
+            current = fresh;
+            rotatedAt = now;
+        }
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return (exponent - SUB_BITS + 1) * SUB + sub;
+    }
+
+    /** Largest value (in microseconds) that lands in the bucket. */
+    static long upperMicros(int bucket) {
+        if (bucket < SUB) return bucket;
+        int exponent = bucket / SUB + SUB_BITS - 1;
+        long sub = bucket % SUB;
+        return ((SUB + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
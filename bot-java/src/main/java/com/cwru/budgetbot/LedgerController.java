@@ -0,0 +1,164 @@
+package com.cwru.budgetbot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST controller for the transaction ledger (needs ledger.enabled=true).
+ *
+ * Server-to-server only: every request must carry ledger.api-token in the
+ * X-Ledger-Token header (401 otherwise). The Node server, which knows who
+ * the logged-in user is, is the only intended caller; the browser never
+ * talks to these endpoints.
+ *
+ * POST /ledger/transactions
+ * Body: LedgerRequest (userId, kind, amount, optional date)
+ * Response: JSON with the user's snapshot after the transaction.
+ *
+ * GET /ledger/{userId}/snapshot
+ * Response: JSON with this week's snapshot, using the same field names as
+ * AssistantRequest, plus "pacing" (rolling 7-day, week-to-date and
+ * semester-to-date spending and per-day burn rates); 404 if the ledger has
+ * no transactions for the user.
+ */
+@RestController
+@RequestMapping("/ledger")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+
+    @Autowired
+    public LedgerController(LedgerService ledgerService) {
+        this.ledgerService = ledgerService;
+    }
+
+    @PostMapping("/transactions")
+    public Map<String, Object> record(@RequestHeader(value = LedgerService.TOKEN_HEADER, required = false) String token,
+                                      @RequestBody LedgerRequest request) throws IOException {
+        requireEnabled();
+        requireTrusted(token);
+        if (request.getUserId() == null) {
+            throw badRequest("userId is required");
+        }
+        if (request.getKind() == null) {
+            throw badRequest("kind is required");
+        }
+        long amount = amountOf(request);
+        try {
+            ledgerService.record(request.getUserId(), request.getKind(), request.getDate(), amount);
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e.getMessage());
+        }
+        return snapshotOf(request.getUserId());
+    }
+
+    @GetMapping("/{userId}/snapshot")
+    public Map<String, Object> snapshot(@RequestHeader(value = LedgerService.TOKEN_HEADER, required = false) String token,
+                                        @PathVariable long userId) {
+        requireEnabled();
+        requireTrusted(token);
+        return snapshotOf(userId);
+    }
+
+    // ------- helpers -------
+
+    private Map<String, Object> snapshotOf(long userId) {
+        BudgetSnapshot snap = ledgerService.snapshotFor(userId, BudgetSnapshot.from(new AssistantRequest()));
+        if (snap == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No transactions for user " + userId);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("userId", userId);
+        result.put("weeklyBudgetPersonal",   snap.getWeeklyBudgetPersonal());
+        result.put("spentThisWeekPersonal",  snap.getSpentThisWeekPersonal());
+        result.put("caseCashTotalSemester",  snap.getCaseCashTotalSemester());
+        result.put("caseCashSpentThisWeek",  snap.getCaseCashSpentThisWeek());
+        result.put("mealSwipesWeeklyTotal",  snap.getMealSwipesWeeklyTotal());
+        result.put("mealSwipesUsedThisWeek", snap.getMealSwipesUsedThisWeek());
+        result.put("pacing", pacingMap(snap));
+        return result;
+    }
+
+    private static Map<String, Object> pacingMap(BudgetSnapshot snap) {
+        Pacing p = snap.getPacing();
+
+        Map<String, Object> rolling = new LinkedHashMap<>();
+        rolling.put("days", DailyRing.DAYS);
+        rolling.put("personal", Money.toDollars(p.getRollingPersonalCents()));
+        rolling.put("caseCash", Money.toDollars(p.getRollingCaseCashCents()));
+        rolling.put("mealSwipes", p.getRollingSwipes());
+        rolling.put("personalPerDay", p.getRollingPersonalPerDay());
+        rolling.put("caseCashPerDay", p.getRollingCaseCashPerDay());
+
+        Map<String, Object> week = new LinkedHashMap<>();
+        week.put("days", p.getWeekDaysElapsed());
+        week.put("personal", Money.toDollars(p.getWeekPersonalCents()));
+        week.put("caseCash", Money.toDollars(p.getWeekCaseCashCents()));
+        week.put("mealSwipes", p.getWeekSwipes());
+        week.put("personalPerDay", p.getWeekPersonalPerDay());
+        week.put("caseCashPerDay", p.getWeekCaseCashPerDay());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rolling", rolling);
+        result.put("week", week);
+        if (p.hasSemester()) {
+            Map<String, Object> semester = new LinkedHashMap<>();
+            semester.put("days", p.getSemesterDaysElapsed());
+            semester.put("of", p.getSemesterDays());
+            semester.put("personal", Money.toDollars(p.getSemesterPersonalCents()));
+            semester.put("caseCash", Money.toDollars(p.getSemesterCaseCashCents()));
+            semester.put("mealSwipes", p.getSemesterSwipes());
+            semester.put("personalPerDay", p.getSemesterPersonalPerDay());
+            semester.put("caseCashPerDay", p.getSemesterCaseCashPerDay());
+            semester.put("caseCashExpectedByNow",
+                    Money.toDollars(p.expectedByNowCents(snap.getCaseCashTotalSemesterCents())));
+            result.put("semester", semester);
+        }
+        return result;
+    }
+
+    /** Cents for money kinds, a whole count for the swipe kinds. */
+    private static long amountOf(LedgerRequest request) {
+        Double amount = request.getAmount();
+        switch (request.getKind()) {
+            case MEAL_SWIPE:
+            case BUDGET_MEAL_SWIPES:
+                if (amount == null && request.getKind() == LedgerKind.MEAL_SWIPE) {
+                    return 1;
+                }
+                if (amount == null || amount != Math.rint(amount) || Math.abs(amount) > Integer.MAX_VALUE) {
+                    throw badRequest("amount must be a whole number of swipes");
+                }
+                return amount.longValue();
+            default:
+                if (amount == null || !Double.isFinite(amount)) {
+                    throw badRequest("amount is required");
+                }
+                return Money.fromDollars(amount);
+        }
+    }
+
+    private void requireEnabled() {
+        if (!ledgerService.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "The ledger is disabled (ledger.enabled=false)");
+        }
+    }
+
+    private void requireTrusted(String token) {
+        if (!ledgerService.isTrustedCaller(token)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Missing or wrong " + LedgerService.TOKEN_HEADER);
+        }
+    }
+
+    private static ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.cwru.budgetbot;
+
+/**
+ * What one TransactionLedger record means.
+ *
+ * The first three are spending: amount is cents for PERSONAL / CASECASH and
+ * a swipe count for MEAL_SWIPE. Refunds and corrections are negative entries,
+ * the ledger is never rewritten.
+ *
+ * The BUDGET_* kinds set a limit instead; the latest one wins.
+ *
+ * The on-disk code is ordinal() + 1 (0 marks unused space in a segment), so
+ * only ever append new constants at the end.
+ */
+public enum LedgerKind {
+    PERSONAL,
+    CASECASH,
+    MEAL_SWIPE,
+    BUDGET_PERSONAL,          // weekly personal budget, cents
+    BUDGET_CASECASH,          // CaseCash for the whole semester, cents
+    BUDGET_MEAL_SWIPES;       // meal swipes per week
+
+    private static final LedgerKind[] VALUES = values();
+
+    byte code() {
+        return (byte) (ordinal() + 1);
+    }
+
+    /** Kind for an on-disk code, or null for 0 / unknown codes. */
+    static LedgerKind fromCode(int code) {
+        return (code >= 1 && code <= VALUES.length) ? VALUES[code - 1] : null;
+    }
+
+    /** True for the kinds that add to this week's spending. */
+    public boolean isSpending() {
+        return this == PERSONAL || this == CASECASH || this == MEAL_SWIPE;
+    }
+}
@@ -0,0 +1,56 @@
+package com.cwru.budgetbot;
+
+import java.time.LocalDate;
+
+/**
+ * Request body for POST /ledger/transactions.
+ *
+ * amount is dollars for PERSONAL, CASECASH and BUDGET_PERSONAL /
+ * BUDGET_CASECASH, and a count for MEAL_SWIPE (default 1) and
+ * BUDGET_MEAL_SWIPES. date is "yyyy-MM-dd" and defaults to today.
+ */
+public class LedgerRequest {
+
+    private Long userId;
+    private LedgerKind kind;
+    private Double amount;
+    private LocalDate date;
+
+    public LedgerRequest() {
+        // Required by Jackson
+    }
+
+    // ---- getters & setters ----
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LedgerKind getKind() {
+        return kind;
+    }
+
+    public void setKind(LedgerKind kind) {
+        this.kind = kind;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+}
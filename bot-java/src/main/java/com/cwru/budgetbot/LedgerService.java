@@ -0,0 +1,164 @@
+package com.cwru.budgetbot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+
+/**
+ * Spring wrapper around TransactionLedger.
+ *
+ * Configuration (application.properties), off by default:
+ *
+ *   ledger.enabled=true
+ *   ledger.dir=ledger
+ *   ledger.segment-bytes=67108864
+ *   ledger.force-on-append=false
+ *   ledger.zone=America/New_York
+ *   ledger.semester-start=2026-08-24
+ *   ledger.semester-weeks=15
+ *   ledger.api-token=...
+ *
+ * The ledger is written by the Node server, not by browsers: /ledger calls
+ * must carry ledger.api-token in the X-Ledger-Token header, and
+ * /assistant/ask only uses the ledger for "userId" when the request does
+ * too (see isTrustedCaller). With no token configured, every /ledger call
+ * is refused and "userId" is ignored.
+ *
+ * When enabled, /assistant/ask with a "userId" the ledger knows uses the
+ * ledger's totals instead of the ones in the request (see snapshotFor).
+ */
+@Service
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    /** Header carrying the server-to-server credential (ledger.api-token). */
+    public static final String TOKEN_HEADER = "X-Ledger-Token";
+
+    @Value("${ledger.enabled:false}")
+    private boolean enabled;
+
+    // Directory for the segment files; created if missing.
+    @Value("${ledger.dir:ledger}")
+    private String dir;
+
+    // 64 MiB = about 2M transactions per segment.
+    @Value("${ledger.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    // fsync every append (survives power loss, not just a JVM crash).
+    @Value("${ledger.force-on-append:false}")
+    private boolean forceOnAppend;
+
+    // Time zone that decides "today" and so the current week; empty = JVM default.
+    @Value("${ledger.zone:}")
+    private String zone;
+
+    // First day of the semester ("yyyy-MM-dd"); empty = no semester-to-date pacing.
+    @Value("${ledger.semester-start:}")
+    private String semesterStart;
+
+    @Value("${ledger.semester-weeks:" + BudgetSnapshot.SEMESTER_WEEKS + "}")
+    private int semesterWeeks;
+
+    // Shared secret of the server that records transactions; empty = nobody is trusted.
+    @Value("${ledger.api-token:}")
+    private String apiToken;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    // null when disabled
+    private TransactionLedger ledger;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (zone != null && !zone.isBlank()) {
+            clock = Clock.system(ZoneId.of(zone));
+        }
+        if (!enabled) {
+            return;
+        }
+        LocalDate start = (semesterStart == null || semesterStart.isBlank()) ? null : LocalDate.parse(semesterStart);
+        if (apiToken == null || apiToken.isBlank()) {
+            log.warn("[LedgerService] ledger.api-token is not set: /ledger requests will be refused "
+                    + "and /assistant will ignore userId");
+        }
+        ledger = TransactionLedger.open(Path.of(dir), segmentBytes, forceOnAppend, start, semesterWeeks);
+        Map<String, Object> stats = ledger.stats();
+        log.info("[LedgerService] Replayed {} transactions for {} users from {} in {} ms",
+                stats.get("replayedEntries"), stats.get("users"), Path.of(dir).toAbsolutePath(),
+                stats.get("replayMillis"));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (ledger != null) {
+            ledger.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return ledger != null;
+    }
+
+    /**
+     * True if token is ledger.api-token: the caller is the server that owns
+     * user identity, so it may write to and read any user's ledger. Browsers
+     * never hold it. Compared in constant time.
+     */
+    public boolean isTrustedCaller(String token) {
+        if (apiToken == null || apiToken.isBlank() || token == null) return false;
+        return MessageDigest.isEqual(apiToken.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * Record one transaction. date may be null (today); dates after today are
+     * rejected because they would start a new week early.
+     *
+     * @throws IllegalStateException if the ledger is disabled
+     * @throws IllegalArgumentException for invalid input
+     */
+    public void record(long userId, LedgerKind kind, LocalDate date, long amount) throws IOException {
+        if (ledger == null) {
+            throw new IllegalStateException("The ledger is disabled (ledger.enabled=false)");
+        }
+        LocalDate today = today();
+        LocalDate day = (date != null) ? date : today;
+        if (day.isAfter(today)) {
+            throw new IllegalArgumentException("date " + day + " is in the future");
+        }
+        ledger.append(userId, kind, day.toEpochDay(), amount);
+    }
+
+    /**
+     * This week's snapshot for userId from the ledger, with limits the user
+     * never recorded taken from defaults. Null if the ledger is disabled,
+     * userId is null, or the user has no transactions.
+     */
+    public BudgetSnapshot snapshotFor(Long userId, BudgetSnapshot defaults) {
+        if (ledger == null || userId == null) return null;
+        return ledger.snapshot(userId, today().toEpochDay(), defaults);
+    }
+
+    /** Ledger counters for /assistant/stats, or null when disabled. */
+    public Map<String, Object> stats() {
+        return ledger != null ? ledger.stats() : null;
+    }
+}
@@ -1,175 +1,330 @@
-package com.cwru.budgetbot;
-
-import java.util.*;
-import java.util.stream.Collectors;
-
-import org.springframework.stereotype.Service;
-
-@Service
-public class MerchantLexicon {
-
-    // ==================== Entry ====================
-
-    public static final class Entry {
-        private final String canonicalName;
-        private final List<String> normalizedAliases;
-        private final boolean onCampus;
-        private final boolean diningHall;
-
-        public Entry(String canonicalName,
-                     Collection<String> aliases,
-                     boolean onCampus,
-                     boolean diningHall) {
-            this.canonicalName = canonicalName;
-            this.normalizedAliases = aliases.stream()
-                    .map(Normalizer::normalize)
-                    .collect(Collectors.toList());
-            this.onCampus = onCampus;
-            this.diningHall = diningHall;
-        }
-
-        /** Canonical merchant name (what we display / reason over). */
-        public String canonicalName() {
-            return canonicalName;
-        }
-
-        public boolean onCampus() {
-            return onCampus;
-        }
-
-        public boolean isDiningHall() {
-            return diningHall;
-        }
-
-        List<String> aliases() {
-            return normalizedAliases;
-        }
-    }
-
-    // ==================== Match ====================
-
-    public static final class Match {
-        public final Entry entry;
-
-        public Match(Entry entry) {
-            this.entry = entry;
-        }
-
-        /** Convenience for IntentParser: match.canonicalName() */
-        public String canonicalName() {
-            return entry.canonicalName();
-        }
-
-        public boolean onCampus() {
-            return entry.onCampus();
-        }
-
-        public boolean isDiningHall() {
-            return entry.isDiningHall();
-        }
-    }
-
-    // ==================== Lexicon data ====================
-
-    private final List<Entry> entries = new ArrayList<>();
-
-    public MerchantLexicon() {
-        // Dining halls
-        add("Dining Hall", List.of("dining hall", "the dining hall", "dining"),
-                true, true);
-        add("North Dining Hall", List.of("north dining", "ndh", "north dh"),
-                true, true);
-        add("South Dining Hall", List.of("south dining", "sdh", "south dh"),
-                true, true);
-
-        // On-campus / Uptown food partners & common spots
-        add("Mitchell's Ice Cream", List.of("mitchells", "mitchell's", "mitchells ice cream"),
-                true, false);
-        add("Panera Bread", List.of("panera", "panera bread"),
-                true, false);
-        add("Starbucks", List.of("starbucks", "sbux"),
-                true, false);
-        add("Dunkin", List.of("dunkin", "dunkin donuts", "dd"),
-                true, false);
-        add("Rascal House Pizza", List.of("rascal house", "rascal house pizza"),
-                true, false);
-        add("Potbelly", List.of("potbelly", "potbelly sandwiches", "potbelly sandwich"),
-                true, false);
-        add("Sittoo's Pita & Salads", List.of("sittoos", "sittoo's", "sittoos pita", "sittoo's pita"),
-                true, false);
-        add("Cilantro Taqueria", List.of("cilantro", "cilantro taqueria"),
-                true, false);
-        add("Bibibop", List.of("bibibop", "bibibap", "bibimbap place"),
-                true, false);
-        add("Kenko Sushi", List.of("kenko", "kenko sushi"),
-                true, false);
-        add("Sunset Kitchen", List.of("sunset kitchen"),
-                true, false);
-        add("Phusion Cafe", List.of("phusion", "phusion cafe"),
-                true, false);
-        add("Beyond Juicery & Eatery", List.of("beyond juicery", "beyond juice"),
-                true, false);
-        add("Falafel Cafe", List.of("falafel cafe"),
-                true, false);
-        add("Indian Flame", List.of("indian flame", "indian flame restaurant"),
-                true, false);
-        add("Buffalo Wild Wings", List.of("bww", "buffalo wild wings", "buffalo wings"),
-                false, false);
-        add("The Jolly Scholar", List.of("jolly scholar", "the jolly scholar"),
-                true, false);
-
-        // Markets and convenience
-        add("Spartie Mart", List.of("spartie mart", "spartiemart", "spartimart"),
-                true, false);
-        add("Fairfax Market", List.of("fairfax market", "fairfax"),
-                false, false);
-        add("Dave's Market", List.of("daves", "dave's market", "daves market"),
-                false, false);
-        add("Aldi", List.of("aldi", "aldi's"),
-                false, false);
-        add("Grocery Outlet", List.of("grocery outlet"),
-                false, false);
-        add("Trader Joe's", List.of("trader joes", "trader joe's", "tj's", "tjs"),
-                false, false);
-        add("Giant Eagle", List.of("giant eagle"),
-                false, false);
-        add("Target", List.of("target"),
-                false, false);
-        add("Whole Foods", List.of("whole foods", "wholefoods"),
-                false, false);
-
-        // Generic chains
-        add("Chipotle", List.of("chipotle", "chipotle mexican grill"),
-                false, false);
-        add("Subway", List.of("subway"),
-                false, false);
-        // Panera already added as on-campus; keep one entry only if you prefer
-    }
-
-    private void add(String canonicalName,
-                     Collection<String> rawAliases,
-                     boolean onCampus,
-                     boolean diningHall) {
-        List<String> aliases = new ArrayList<>(rawAliases);
-        aliases.add(canonicalName);
-        entries.add(new Entry(canonicalName, aliases, onCampus, diningHall));
-    }
-
-    public Optional<Match> find(String text) {
-        if (text == null || text.isBlank()) {
-            return Optional.empty();
-        }
-        String normalized = Normalizer.normalize(text);
-
-        Entry best = null;
-        for (Entry e : entries) {
-            for (String alias : e.aliases()) {
-                if (normalized.contains(alias)) {
-                    best = e;
-                    break;
-                }
-            }
-        }
-        return (best == null) ? Optional.empty() : Optional.of(new Match(best));
-    }
-}
+package com.cwru.budgetbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Known merchants and their aliases, matched against questions.
+ *
+ * The catalog is data, not code: merchants.csv on the classpath by default,
+ * or the file named by merchants.catalog, which is watched and re-read when
+ * it changes (merchants.watch, on by default).
+ *
+ * Entries and the alias automaton built from them live in one immutable
+ * Index behind an AtomicReference. A reload builds the new Index on the
+ * watcher thread and swaps it in; find() reads the reference once and never
+ * locks, so a request sees either the old catalog or the new one, never a
+ * half-built one.
+ *
+ * When no alias occurs verbatim, find() falls back to FuzzyMatcher
+ * (merchants.fuzzy, on by default), so "chipolte" still finds Chipotle;
+ * such a Match has a score below 1.
+ */
+@Service
+public class MerchantLexicon {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantLexicon.class);
+
+    // ==================== Entry ====================
+
+    public static final class Entry {
+        private final String canonicalName;
+        private final List<String> normalizedAliases;
+        private final boolean onCampus;
+        private final boolean diningHall;
+        private final int priceTier;
+
+        public Entry(String canonicalName,
+                     Collection<String> aliases,
+                     boolean onCampus,
+                     boolean diningHall) {
+            this(canonicalName, aliases, onCampus, diningHall, 0);
+        }
+
+        public Entry(String canonicalName,
+                     Collection<String> aliases,
+                     boolean onCampus,
+                     boolean diningHall,
+                     int priceTier) {
+            this.canonicalName = canonicalName;
+            this.normalizedAliases = aliases.stream()
+                    .map(Normalizer::normalize)
+                    .collect(Collectors.toList());
+            this.onCampus = onCampus;
+            this.diningHall = diningHall;
+            this.priceTier = priceTier;
+        }
+
+        /** Canonical merchant name (what we display / reason over). */
+        public String canonicalName() {
+            return canonicalName;
+        }
+
+        public boolean onCampus() {
+            return onCampus;
+        }
+
+        public boolean isDiningHall() {
+            return diningHall;
+        }
+
+        /** 1 ($) .. 4 ($$$$), 0 if unknown. */
+        public int priceTier() {
+            return priceTier;
+        }
+
+        List<String> aliases() {
+            return normalizedAliases;
+        }
+    }
+
+    // ==================== Match ====================
+
+    public static final class Match {
+        public final Entry entry;
+        // 1 for an exact alias, 1 - edits / alias length for a fuzzy one.
+        public final double score;
+
+        public Match(Entry entry) {
+            this(entry, 1.0);
+        }
+
+        public Match(Entry entry, double score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        /** Convenience for IntentParser: match.canonicalName() */
+        public String canonicalName() {
+            return entry.canonicalName();
+        }
+
+        public boolean onCampus() {
+            return entry.onCampus();
+        }
+
+        public boolean isDiningHall() {
+            return entry.isDiningHall();
+        }
+
+        public int priceTier() {
+            return entry.priceTier();
+        }
+
+        public double score() {
+            return score;
+        }
+
+        public boolean isExact() {
+            return score == 1.0;
+        }
+    }
+
+    // ==================== Lexicon data ====================
+
+    /** Catalog used unless merchants.catalog names a file. */
+    static final String DEFAULT_CATALOG = "/merchants.csv";
+
+    /** One catalog version: its entries and the matchers compiled from them. */
+    private static final class Index {
+        final List<Entry> entries;
+        // Compiled once from all aliases; find() never walks the entry list.
+        final AliasMatcher matcher;
+        final FuzzyMatcher fuzzy;
+
+        Index(List<Entry> entries) {
+            this.entries = List.copyOf(entries);
+            this.matcher = AliasMatcher.build(this.entries);
+            this.fuzzy = FuzzyMatcher.build(this.entries);
+        }
+    }
+
+    private final AtomicReference<Index> index;
+
+    // External catalog file; empty = the built-in one.
+    @Value("${merchants.catalog:}")
+    private String catalogFile;
+
+    // Re-read merchants.catalog when it changes.
+    @Value("${merchants.watch:true}")
+    private boolean watch;
+
+    // Typo-tolerant fallback when no alias matches exactly.
+    @Value("${merchants.fuzzy:true}")
+    private boolean fuzzy = true;
+
+    private CatalogWatcher watcher;
+
+    public MerchantLexicon() {
+        this(loadDefaultCatalog());
+    }
+
+    /** Lexicon over a caller-supplied entry list (benchmarks, bigger catalogs). */
+    MerchantLexicon(Collection<Entry> customEntries) {
+        index = new AtomicReference<>(new Index(new ArrayList<>(customEntries)));
+    }
+
+    @PostConstruct
+    public void loadConfiguredCatalog() throws IOException {
+        if (catalogFile == null || catalogFile.isBlank()) {
+            return;
+        }
+        Path file = Path.of(catalogFile);
+        // A broken catalog at startup is a configuration error: fail fast.
+        reload(file);
+        if (watch) {
+            watcher = CatalogWatcher.start(file, () -> reloadKeepingOld(file));
+            log.info("[MerchantLexicon] Watching {} for changes", file.toAbsolutePath());
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Parse file, build a new index and swap it in. Runs on the caller's
+     * thread; concurrent find() calls keep using the old index until the swap.
+     *
+     * @throws IllegalArgumentException if the catalog is malformed (old index kept)
+     */
+    public void reload(Path file) throws IOException {
+        long start = System.nanoTime();
+        List<Entry> entries;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            entries = parseCatalog(reader, file.toString());
+        }
+        index.set(new Index(entries));
+        log.info("[MerchantLexicon] Loaded {} merchants from {} in {} ms",
+                entries.size(), file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Watcher callback: a bad edit must not take the lexicon down.
+    private void reloadKeepingOld(Path file) {
+        try {
+            reload(file);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("[MerchantLexicon] Could not reload {}; keeping the previous catalog: {}", file, e.getMessage());
+        }
+    }
+
+    private static List<Entry> loadDefaultCatalog() {
+        InputStream in = MerchantLexicon.class.getResourceAsStream(DEFAULT_CATALOG);
+        if (in == null) {
+            throw new IllegalStateException("Merchant catalog not found on classpath: " + DEFAULT_CATALOG);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parseCatalog(reader, DEFAULT_CATALOG);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read merchant catalog " + DEFAULT_CATALOG, e);
+        }
+    }
+
+    /**
+     * Parse catalog lines (see merchants.csv):
+     *
+     *   canonical name, alias|alias|..., onCampus, diningHall, priceTier
+     *
+     * Blank lines and "#" comments are skipped; the canonical name is added
+     * as an alias. Throws IllegalArgumentException naming the bad line.
+     */
+    static List<Entry> parseCatalog(BufferedReader reader, String source) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        String line;
+        int n = 0;
+        while ((line = reader.readLine()) != null) {
+            n++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split(",", -1);
+            if (fields.length != 5) {
+                throw new IllegalArgumentException(source + " line " + n
+                        + ": expected name, aliases, onCampus, diningHall, priceTier");
+            }
+            String name = fields[0].trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(source + " line " + n + ": empty merchant name");
+            }
+            List<String> aliases = new ArrayList<>();
+            for (String alias : fields[1].split("\\|")) {
+                if (!alias.isBlank()) aliases.add(alias.trim());
+            }
+            aliases.add(name);
+            entries.add(new Entry(name, aliases,
+                    parseFlag(fields[2], source, n),
+                    parseFlag(fields[3], source, n),
+                    parseTier(fields[4], source, n)));
+        }
+        return entries;
+    }
+
+    private static boolean parseFlag(String field, String source, int line) {
+        String f = field.trim().toLowerCase(Locale.ROOT);
+        if (f.equals("true")) return true;
+        if (f.equals("false")) return false;
+        throw new IllegalArgumentException(source + " line " + line + ": expected true or false, got '" + field.trim() + "'");
+    }
+
+    private static int parseTier(String field, String source, int line) {
+        String f = field.trim();
+        if (f.length() <= 4 && f.chars().allMatch(c -> c == '$')) {
+            return f.length();
+        }
+        throw new IllegalArgumentException(source + " line " + line + ": price tier must be $ .. $$$$ or empty");
+    }
+
+    /**
+     * Find the merchant mentioned in the text.
+     * When several aliases match, the longest one wins (see AliasMatcher),
+     * so "north dining hall" is North Dining Hall rather than Dining Hall.
+     */
+    public Optional<Match> find(String text) {
+        if (text == null || text.isBlank()) {
+            return Optional.empty();
+        }
+        return findNormalized(Normalizer.normalize(text));
+    }
+
+    /** Same as find(String), reusing the normalized form already in the token stream. */
+    public Optional<Match> find(QuestionTokens tokens) {
+        return findNormalized(tokens.normalized());
+    }
+
+    private Optional<Match> findNormalized(String normalized) {
+        Index current = index.get();
+        Entry best = current.matcher.find(normalized);
+        if (best != null) {
+            return Optional.of(new Match(best));
+        }
+        if (!fuzzy) {
+            return Optional.empty();
+        }
+        FuzzyMatcher.Candidate candidate = current.fuzzy.find(normalized);
+        return (candidate == null) ? Optional.empty() : Optional.of(new Match(candidate.entry, candidate.score));
+    }
+
+    /** Entries of the current catalog (immutable). */
+    List<Entry> entries() {
+        return index.get().entries;
+    }
+}
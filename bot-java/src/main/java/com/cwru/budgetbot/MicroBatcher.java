@@ -0,0 +1,133 @@
+package com.cwru.budgetbot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Collects items submitted close together and hands them to a sender as one
+ * batch.
+ *
+ * A batch is sent as soon as it holds maxItems, or maxWaitMillis after its
+ * first item arrived, whichever comes first; an item therefore waits at most
+ * maxWaitMillis before its batch goes out. The sender returns one result per
+ * item, in order (a short list leaves the rest null); if the sender fails,
+ * every item in the batch fails with the same error.
+ */
+public final class MicroBatcher<I, O> {
+
+    private final int maxItems;
+    private final long maxWaitNanos;
+    private final Function<List<I>, CompletableFuture<List<O>>> sender;
+    private final ScheduledThreadPoolExecutor timer;
+
+    // Guarded by "this". generation tells a late timer that its batch already left.
+    private List<I> items = new ArrayList<>();
+    private List<CompletableFuture<O>> waiters = new ArrayList<>();
+    private long generation;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedItems = new AtomicLong();
+    private final AtomicLong fullFlushes = new AtomicLong();
+    private final AtomicLong timerFlushes = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public MicroBatcher(int maxItems, long maxWaitMillis, String name,
+                        Function<List<I>, CompletableFuture<List<O>>> sender) {
+        this.maxItems = Math.max(1, maxItems);
+        this.maxWaitNanos = Math.max(0, maxWaitMillis) * 1_000_000L;
+        this.sender = sender;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, name + "-batcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        List<I> full = null;
+        List<CompletableFuture<O>> fullWaiters = null;
+        synchronized (this) {
+            items.add(item);
+            waiters.add(result);
+            if (items.size() >= maxItems) {
+                full = items;
+                fullWaiters = waiters;
+                reset();
+            } else if (items.size() == 1) {
+                long mine = generation;
+                timer.schedule(() -> flushIfStill(mine), maxWaitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            fullFlushes.incrementAndGet();
+            send(full, fullWaiters);
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        long b = batches.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("batches", b);
+        out.put("items", batchedItems.get());
+        out.put("avgBatchSize", b == 0 ? 0.0 : (double) batchedItems.get() / b);
+        out.put("fullFlushes", fullFlushes.get());
+        out.put("timerFlushes", timerFlushes.get());
+        out.put("failedBatches", failedBatches.get());
+        out.put("maxItems", maxItems);
+        out.put("maxWaitMs", maxWaitNanos / 1_000_000);
+        return out;
+    }
+
+    private void flushIfStill(long expected) {
+        List<I> batch;
+        List<CompletableFuture<O>> batchWaiters;
+        synchronized (this) {
+            if (generation != expected || items.isEmpty()) return;
+            batch = items;
+            batchWaiters = waiters;
+            reset();
+        }
+        timerFlushes.incrementAndGet();
+        send(batch, batchWaiters);
+    }
+
+    private void reset() {
+        items = new ArrayList<>(maxItems);
+        waiters = new ArrayList<>(maxItems);
+        generation++;
+    }
+
+    private void send(List<I> batch, List<CompletableFuture<O>> batchWaiters) {
+        batches.incrementAndGet();
+        batchedItems.addAndGet(batch.size());
+        CompletableFuture<List<O>> out;
+        try {
+            out = sender.apply(batch);
+        } catch (RuntimeException e) {
+            out = CompletableFuture.failedFuture(e);
+        }
+        out.whenComplete((results, error) -> {
+            if (error != null) failedBatches.incrementAndGet();
+            for (int i = 0; i < batchWaiters.size(); i++) {
+                if (error != null) {
+                    batchWaiters.get(i).completeExceptionally(error);
+                } else {
+                    batchWaiters.get(i).complete(results != null && i < results.size() ? results.get(i) : null);
+                }
+            }
+        });
+    }
+}
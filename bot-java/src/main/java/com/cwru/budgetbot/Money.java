@@ -0,0 +1,53 @@
+package com.cwru.budgetbot;
+
+/**
+ * Fixed-point money: amounts are long cents everywhere inside the bot.
+ *
+ * Doubles only appear at the edges (JSON in AssistantRequest, the LLM prompt,
+ * formatted replies) and are converted with {@link #fromDollars(double)}.
+ */
+public final class Money {
+
+    /** "No amount given". Used instead of a null Double. */
+    public static final long NO_AMOUNT = Long.MIN_VALUE;
+
+    /**
+     * Largest amount the decision math works with: $10 trillion. Clamping to it
+     * keeps the cross-multiplied threshold checks in DecisionEngine far from
+     * long overflow.
+     */
+    public static final long MAX_CENTS = 1_000_000_000_000_000L;
+
+    private Money() {}
+
+    public static boolean isPresent(long cents) {
+        return cents != NO_AMOUNT;
+    }
+
+    /**
+     * Dollars to cents, rounded half-up to the nearest cent.
+     * NaN and infinities become 0, magnitudes past MAX_CENTS are clamped.
+     */
+    public static long fromDollars(double dollars) {
+        if (!Double.isFinite(dollars)) return 0L;
+        double cents = dollars * 100.0;
+        if (cents >= MAX_CENTS) return MAX_CENTS;
+        if (cents <= -MAX_CENTS) return -MAX_CENTS;
+        return Math.round(cents);
+    }
+
+    /** Cents to dollars for display / JSON. NO_AMOUNT has no dollar value; check first. */
+    public static double toDollars(long cents) {
+        return cents / 100.0;
+    }
+
+    /** Boxed dollars, or null for NO_AMOUNT (the old nullable Double shape). */
+    public static Double toDollarsOrNull(long cents) {
+        return isPresent(cents) ? cents / 100.0 : null;
+    }
+
+    /** Clamp into [-MAX_CENTS, MAX_CENTS]. */
+    public static long clamp(long cents) {
+        return Math.max(-MAX_CENTS, Math.min(MAX_CENTS, cents));
+    }
+}
@@ -1,38 +1,222 @@
 package com.cwru.budgetbot;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.springframework.stereotype.Service;
 
 @Service
 public class MoneyParser {
 
-    // Matches things like "$5", "$5.25", "5 dollars", "5 bucks"
-    private static final Pattern MONEY_PATTERN =
-            Pattern.compile("(\\$?)(\\d+(?:\\.\\d{1,2})?)\\s*(dollars?|bucks?)?",
-                    Pattern.CASE_INSENSITIVE);
+    // Things like "$5", "$5.25", "5 dollars", "5 bucks", or just "12".
+    //
+    // Grammar (what the old regex (\$?)(\d+(?:\.\d{1,2})?)\s*(dollars?|bucks?)?
+    // matched, scanned by hand): optional "$", ASCII digits, optionally "." and
+    // one or two more digits, any whitespace, optional unit word (ASCII case
+    // insensitive). Spans never overlap; scanning resumes where the last one ended.
+
+    /** How sure we are that a span is money. Declared weakest first. */
+    public enum Confidence {
+        BARE_NUMBER,   // "2 times", "12"
+        UNIT_WORD,     // "12 dollars", "5 bucks"
+        DOLLAR_SIGN    // "$12" (also "$12 dollars")
+    }
 
     public static class Result {
-        public final Double amount;
+        public final long cents;
         public final String rawText;
+        public final int start;
+        public final int end;
+        public final Confidence confidence;
 
-        public Result(Double amount, String rawText) {
-            this.amount = amount;
+        public Result(long cents, String rawText, int start, int end, Confidence confidence) {
+            this.cents = cents;
             this.rawText = rawText;
+            this.start = start;
+            this.end = end;
+            this.confidence = confidence;
         }
     }
 
+    /**
+     * The amount the question is most likely about: the most confident span,
+     * the leftmost one on a tie. So "$12 at Chipotle 2 times" is $12, not 2.
+     */
     public Result parse(String text) {
-        Matcher m = MONEY_PATTERN.matcher(text);
-        if (m.find()) {
-            String numberPart = m.group(2);
-            try {
-                double value = Double.parseDouble(numberPart);
-                return new Result(value, m.group(0));
-            } catch (NumberFormatException e) {
-                // fall through
+        if (text == null) return null;
+        int[] span = new int[SPAN_FIELDS];
+        int bestStart = -1, bestEnd = 0, bestNumStart = 0, bestNumEnd = 0;
+        Confidence best = null;
+
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (i < from || !isDigit(text.charAt(i))) continue;
+            from = scanSpan(text, i, span, 0);
+            Confidence c = confidence(span[FLAGS]);
+            if (best == null || c.compareTo(best) > 0) {
+                best = c;
+                bestStart = span[START];
+                bestEnd = span[END];
+                bestNumStart = span[NUMBER_START];
+                bestNumEnd = span[NUMBER_END];
+            }
+        }
+        if (best == null) return null;
+        return new Result(cents(text, bestNumStart, bestNumEnd),
+                text.substring(bestStart, bestEnd), bestStart, bestEnd, best);
+    }
+
+    /** Every money span in the text, in order of appearance. */
+    public List<Result> parseAll(String text) {
+        if (text == null) return Collections.emptyList();
+        List<Result> out = new ArrayList<>();
+        int[] span = new int[SPAN_FIELDS];
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (i < from || !isDigit(text.charAt(i))) continue;
+            from = scanSpan(text, i, span, 0);
+            out.add(new Result(cents(text, span[NUMBER_START], span[NUMBER_END]),
+                    text.substring(span[START], span[END]), span[START], span[END],
+                    confidence(span[FLAGS])));
+        }
+        return out;
+    }
+
+    /** Same as parse(String), over spans QuestionTokens already found. */
+    public Result parse(QuestionTokens tokens) {
+        int best = -1;
+        Confidence bestConfidence = null;
+        for (int i = 0; i < tokens.moneyCount(); i++) {
+            Confidence c = tokens.moneyConfidence(i);
+            if (bestConfidence == null || c.compareTo(bestConfidence) > 0) {
+                best = i;
+                bestConfidence = c;
             }
         }
-        return null;
+        return (best < 0) ? null : toResult(tokens, best);
+    }
+
+    public List<Result> parseAll(QuestionTokens tokens) {
+        List<Result> out = new ArrayList<>(tokens.moneyCount());
+        for (int i = 0; i < tokens.moneyCount(); i++) {
+            out.add(toResult(tokens, i));
+        }
+        return out;
+    }
+
+    private static Result toResult(QuestionTokens tokens, int i) {
+        return new Result(tokens.moneyCents(i), tokens.moneyText(i),
+                tokens.moneyStart(i), tokens.moneyEnd(i), tokens.moneyConfidence(i));
+    }
+
+    // ---------- scanner (shared with QuestionTokens) ----------
+
+    // A span is SPAN_FIELDS ints at some offset of an int[]:
+    static final int START = 0;          // "$" included
+    static final int NUMBER_START = 1;
+    static final int NUMBER_END = 2;
+    static final int END = 3;            // trailing whitespace / unit word included
+    static final int FLAGS = 4;
+    static final int SPAN_FIELDS = 5;
+
+    static final int HAS_DOLLAR = 1;
+    static final int HAS_UNIT = 2;
+
+    /**
+     * Scan the span whose number starts at src[i] (a digit) into out[at..].
+     * Returns the span end, i.e. where the next span may start.
+     */
+    static int scanSpan(CharSequence src, int i, int[] out, int at) {
+        int n = src.length();
+        int j = i;
+        while (j < n && isDigit(src.charAt(j))) j++;
+
+        if (j + 1 < n && src.charAt(j) == '.' && isDigit(src.charAt(j + 1))) {
+            j += 2;
+            if (j < n && isDigit(src.charAt(j))) j++;
+        }
+        int numberEnd = j;
+
+        while (j < n && isSpace(src.charAt(j))) j++;
+        int unit = unitLength(src, j);
+        int end = j + unit;
+
+        int flags = (unit > 0) ? HAS_UNIT : 0;
+        int start = i;
+        if (i > 0 && src.charAt(i - 1) == '$') {
+            start = i - 1;
+            flags |= HAS_DOLLAR;
+        }
+
+        out[at + START] = start;
+        out[at + NUMBER_START] = i;
+        out[at + NUMBER_END] = numberEnd;
+        out[at + END] = end;
+        out[at + FLAGS] = flags;
+        return end;
+    }
+
+    // Whole dollars past this would overflow a long of cents.
+    private static final long MAX_WHOLE_DOLLARS = Long.MAX_VALUE / 100 - 1;
+
+    /**
+     * Integer cents of the number in src[from, to): digits, optionally "."
+     * and one or two decimals. Absurdly long digit runs saturate at
+     * Long.MAX_VALUE instead of wrapping.
+     */
+    static long cents(CharSequence src, int from, int to) {
+        long whole = 0;
+        long fraction = 0;
+        int decimals = -1;
+        for (int k = from; k < to; k++) {
+            char c = src.charAt(k);
+            if (c == '.') {
+                decimals = 0;
+            } else if (decimals < 0) {
+                whole = whole * 10 + (c - '0');
+                if (whole > MAX_WHOLE_DOLLARS) return Long.MAX_VALUE;
+            } else {
+                fraction = fraction * 10 + (c - '0');
+                decimals++;
+            }
+        }
+        return whole * 100 + (decimals == 1 ? fraction * 10 : fraction);
+    }
+
+    static Confidence confidence(int flags) {
+        if ((flags & HAS_DOLLAR) != 0) return Confidence.DOLLAR_SIGN;
+        if ((flags & HAS_UNIT) != 0) return Confidence.UNIT_WORD;
+        return Confidence.BARE_NUMBER;
+    }
+
+    // "dollars" | "dollar" | "bucks" | "buck", ASCII case-insensitive, or 0
+    private static int unitLength(CharSequence src, int at) {
+        int len = 0;
+        if (startsWithIgnoreCase(src, at, "dollar")) len = 6;
+        else if (startsWithIgnoreCase(src, at, "buck")) len = 4;
+        if (len > 0 && at + len < src.length() && lowerAscii(src.charAt(at + len)) == 's') len++;
+        return len;
+    }
+
+    private static boolean startsWithIgnoreCase(CharSequence src, int at, String word) {
+        if (at + word.length() > src.length()) return false;
+        for (int k = 0; k < word.length(); k++) {
+            if (lowerAscii(src.charAt(at + k)) != word.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private static char lowerAscii(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Same set as the regex \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 }
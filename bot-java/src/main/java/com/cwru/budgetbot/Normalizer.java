@@ -1,20 +1,86 @@
-package com.cwru.budgetbot;
-
-import java.text.Normalizer.Form;
-
-public final class Normalizer {
-    private Normalizer() {}
-
-    /** Lowercase, remove accents, collapse whitespace, drop punctuation/apostrophes. */
-    public static String normalize(String s) {
-        if (s == null) return "";
-        String t = java.text.Normalizer.normalize(s, Form.NFKD)
-                .replaceAll("\\p{M}+", "")       // strip accents
-                .toLowerCase()
-                .replace("’", "'")
-                .replaceAll("[^a-z0-9\\s]", " ") // drop punctuation to spaces
-                .replaceAll("\\s+", " ")         // collapse spaces
-                .trim();
-        return t;
-    }
-}
+package com.cwru.budgetbot;
+
+import java.text.Normalizer.Form;
+
+public final class Normalizer {
+    private Normalizer() {}
+
+    /**
+     * Lowercase, remove accents, collapse whitespace, drop punctuation/apostrophes.
+     *
+     * Output is only [a-z0-9] runs separated by single spaces, no leading or
+     * trailing space. Done in one pass over a char buffer instead of a chain of
+     * replaceAll calls; NFKD is skipped entirely for pure-ASCII input since
+     * ASCII is already in NFKD form.
+     */
+    public static String normalize(String s) {
+        if (s == null) return "";
+
+        String t = isAscii(s) ? s : java.text.Normalizer.normalize(s, Form.NFKD);
+        int n = t.length();
+        char[] out = new char[n];
+        int len = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < n; ) {
+            int cp = t.codePointAt(i);
+            i += Character.charCount(cp);
+
+            char mapped;
+            if ((cp >= 'a' && cp <= 'z') || (cp >= '0' && cp <= '9')) {
+                mapped = (char) cp;
+            } else if (cp >= 'A' && cp <= 'Z') {
+                mapped = (char) (cp + ('a' - 'A'));
+            } else if (cp < 0x80) {
+                // whitespace, apostrophes and other punctuation all become a separator
+                pendingSpace = true;
+                continue;
+            } else if (isMark(cp)) {
+                // accents vanish without splitting the word
+                continue;
+            } else {
+                int lower = Character.toLowerCase(cp);
+                if ((lower >= 'a' && lower <= 'z') || (lower >= '0' && lower <= '9')) {
+                    mapped = (char) lower;
+                } else {
+                    pendingSpace = true;
+                    continue;
+                }
+            }
+
+            if (pendingSpace && len > 0) {
+                out[len++] = ' ';
+            }
+            pendingSpace = false;
+            out[len++] = mapped;
+        }
+
+        // Already-normalized input (e.g. most aliases) comes back as-is.
+        if (len == s.length() && t == s && regionEquals(out, len, s)) {
+            return s;
+        }
+        return new String(out, 0, len);
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    // Same set as the \p{M} regex class: non-spacing, enclosing and spacing combining marks.
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static boolean regionEquals(char[] buf, int len, String s) {
+        for (int i = 0; i < len; i++) {
+            if (buf[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +14,27 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Lightweight client for the OpenAI "responses" API.
@@ -21,6 +43,87 @@ import java.net.http.HttpResponse;
  *
  *   openai.api.key=sk-...
  *   openai.model=gpt-4.1-mini
+ *   openai.base-url=https://api.openai.com/v1
+ *
+ * Optional answer cache (off by default, see AdviceCache):
+ *
+ *   openai.cache.enabled=true
+ *   openai.cache.max-entries=1000
+ *   openai.cache.ttl-seconds=600
+ *   openai.cache.tight-ttl-seconds=120
+ *   openai.cache.amount-buckets=5,10,15,20,30,50,75,100,150,250,500
+ *   openai.cache.bypass-intents=UNKNOWN
+ *
+ * A cached answer is shared by every student whose key matches, so with the
+ * cache on, cacheable asks go to the model with the key's budget bands only
+ * (buildSharedPrompt), not the student's exact figures.
+ *
+ * The HttpClient itself (defaults shown):
+ *
+ *   openai.base-url=https://api.openai.com/v1
+ *   openai.http.version=HTTP_2              (or HTTP_1_1)
+ *   openai.http.connect-timeout-ms=5000
+ *   openai.http.request-timeout-ms=30000
+ *   openai.http.executor-threads=4          (0 = the JDK's unbounded pool)
+ *   openai.http.warmup.enabled=false
+ *   openai.http.warmup.connections=2
+ *   openai.http.warmup.timeout-ms=3000
+ *
+ * With warm-up on, startup fires warmup.connections GET {base-url}/models
+ * requests so DNS, TCP, TLS and HTTP/2 setup (and the client's own class
+ * loading) are usually paid before the first ask rather than by it. Startup
+ * does not wait for them.
+ *
+ * Outbound calls go through a circuit breaker and an AIMD concurrency limit
+ * (both on by default, see CircuitBreaker / AdaptiveLimiter):
+ *
+ *   openai.breaker.enabled=true
+ *   openai.breaker.window=20
+ *   openai.breaker.min-calls=10
+ *   openai.breaker.failure-rate=0.5
+ *   openai.breaker.slow-call-ms=5000
+ *   openai.breaker.open-ms=15000
+ *   openai.breaker.half-open-probes=3
+ *   openai.limit.enabled=true
+ *   openai.limit.initial=20
+ *   openai.limit.min=2
+ *   openai.limit.max=200
+ *   openai.limit.backoff=0.9
+ *   openai.limit.slow-call-ms=4000
+ *
+ * A call either one refuses completes with null right away, like a failed
+ * call, so the controller answers with the rule-based message.
+ *
+ * Each failed call is logged at DEBUG only; a WARN with the count goes out
+ * at most once a minute, and the breaker warns when it opens.
+ *
+ * Optional request hedging (off by default, see RequestHedger): a call still
+ * out after the given percentile of recent latency gets an identical second
+ * call, the first answer wins and the other is cancelled. Streaming calls
+ * are never hedged.
+ *
+ *   openai.hedge.enabled=false
+ *   openai.hedge.percentile=0.95
+ *   openai.hedge.budget=0.05           (at most 5% extra requests)
+ *   openai.hedge.max-burst=10
+ *   openai.hedge.min-delay-ms=50
+ *   openai.hedge.min-samples=100
+ *   openai.hedge.window-seconds=60
+ *
+ * Optional micro-batching (off by default, see MicroBatcher / BatchPrompt):
+ * prompts arriving within max-wait-ms of each other, up to max-items, go to
+ * the model as one JSON-mode request and the answers are split back to
+ * their callers. An item the model left out or garbled is retried on its
+ * own; a failed batch request fails all its items. Batched calls are not
+ * hedged.
+ *
+ * Batched prompts share one model context, so only shared (banded) prompts
+ * are batched: batching needs the cache on, and a prompt carrying one
+ * student's figures (cache bypass) always goes out on its own.
+ *
+ *   openai.batch.enabled=false
+ *   openai.batch.max-items=16
+ *   openai.batch.max-wait-ms=5
  *
  * If the key is missing or invalid, this client will just return null and
  * the rule-based bot message will be used instead (no crash).
@@ -30,7 +133,16 @@ public class OpenAIChatClient {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAIChatClient.class);
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private static final long FAILURE_WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // Built in checkConfig() from the openai.http.* settings.
+    private HttpClient httpClient;
+    // The executor handed to the HttpClient (bounded pool or virtual threads);
+    // null for the JDK default. Closed in shutdown().
+    private ExecutorService httpExecutor;
+    private Duration requestTimeout;
+    // The startup warm-up, done at once when it is off (see warmUp()).
+    private CompletableFuture<?> warmup = CompletableFuture.completedFuture(null);
     private final ObjectMapper mapper   = new ObjectMapper();
 
     // Read from application.properties. If missing, default to empty string.
@@ -41,14 +153,303 @@ public class OpenAIChatClient {
     @Value("${openai.model:gpt-4.1-mini}")
     private String model;
 
+    // Point this at a local stub for load tests.
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String baseUrl;
+
+    // Same switch Spring Boot uses for Tomcat; only honoured on Java 21+.
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // HTTP_2 falls back to HTTP/1.1 when the server does not offer it.
+    @Value("${openai.http.version:HTTP_2}")
+    private String httpVersion;
+
+    // Hard upper bounds so an abandoned request cannot hang around forever;
+    // the controller applies its own, shorter latency budget on top.
+    @Value("${openai.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${openai.http.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+
+    // Threads that run response callbacks; ignored when virtual threads are on.
+    @Value("${openai.http.executor-threads:4}")
+    private int executorThreads;
+
+    @Value("${openai.http.warmup.enabled:false}")
+    private boolean warmupEnabled;
+
+    @Value("${openai.http.warmup.connections:2}")
+    private int warmupConnections;
+
+    @Value("${openai.http.warmup.timeout-ms:3000}")
+    private long warmupTimeoutMs;
+
+    @Value("${openai.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${openai.cache.max-entries:1000}")
+    private int cacheMaxEntries;
+
+    @Value("${openai.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    // TTL for answers given while some budget is nearly or fully used up.
+    @Value("${openai.cache.tight-ttl-seconds:120}")
+    private long cacheTightTtlSeconds;
+
+    // Upper bounds in dollars of the amount buckets in the cache key; empty = defaults.
+    @Value("${openai.cache.amount-buckets:}")
+    private String cacheAmountBuckets;
+
+    // Comma-separated IntentType names that always go to the LLM.
+    @Value("${openai.cache.bypass-intents:}")
+    private String cacheBypassIntents;
+
+    // null when the cache is disabled
+    private AdviceCache cache;
+
+    @Value("${openai.breaker.enabled:true}")
+    private boolean breakerEnabled;
+
+    // Outcomes of this many recent calls decide whether to open.
+    @Value("${openai.breaker.window:20}")
+    private int breakerWindow;
+
+    @Value("${openai.breaker.min-calls:10}")
+    private int breakerMinCalls;
+
+    @Value("${openai.breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    // A successful call slower than this still counts as a failure.
+    @Value("${openai.breaker.slow-call-ms:5000}")
+    private long breakerSlowCallMs;
+
+    @Value("${openai.breaker.open-ms:15000}")
+    private long breakerOpenMs;
+
+    @Value("${openai.breaker.half-open-probes:3}")
+    private int breakerHalfOpenProbes;
+
+    @Value("${openai.limit.enabled:true}")
+    private boolean limitEnabled;
+
+    @Value("${openai.limit.initial:20}")
+    private int limitInitial;
+
+    @Value("${openai.limit.min:2}")
+    private int limitMin;
+
+    @Value("${openai.limit.max:200}")
+    private int limitMax;
+
+    // Multiplier applied to the limit on a failed or slow call.
+    @Value("${openai.limit.backoff:0.9}")
+    private double limitBackoff;
+
+    // Past the default answer latency budget the call no longer helps anyone.
+    @Value("${openai.limit.slow-call-ms:4000}")
+    private long limitSlowCallMs;
+
+    @Value("${openai.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    // Hedge once a call has taken longer than this share of recent calls.
+    @Value("${openai.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    // Extra requests allowed, as a share of calls.
+    @Value("${openai.hedge.budget:0.05}")
+    private double hedgeBudget;
+
+    @Value("${openai.hedge.max-burst:10}")
+    private int hedgeMaxBurst;
+
+    @Value("${openai.hedge.min-delay-ms:50}")
+    private long hedgeMinDelayMs;
+
+    @Value("${openai.hedge.min-samples:100}")
+    private long hedgeMinSamples;
+
+    @Value("${openai.hedge.window-seconds:60}")
+    private long hedgeWindowSeconds;
+
+    @Value("${openai.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${openai.batch.max-items:16}")
+    private int batchMaxItems;
+
+    // Longest a prompt waits for company before its batch is sent.
+    @Value("${openai.batch.max-wait-ms:5}")
+    private long batchMaxWaitMs;
+
+    // null when disabled
+    private CircuitBreaker breaker;
+    private AdaptiveLimiter limiter;
+    private RequestHedger hedger;
+    private MicroBatcher<String, String> batcher;
+    private final AtomicLong batchFallbacks = new AtomicLong();
+
+    // Single-flight: identical prompts already on the wire, keyed by the prompt itself.
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    // Rate limit for the failed-call WARN (see callFailed).
+    private final AtomicLong failuresSinceWarn = new AtomicLong();
+    private final AtomicLong lastFailureWarnNanos = new AtomicLong(System.nanoTime() - FAILURE_WARN_INTERVAL_NANOS);
+
     @PostConstruct
     public void checkConfig() {
+        requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(parseVersion(httpVersion))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        ExecutorService executor = null;
+        if (virtualThreads) {
+            executor = VirtualThreads.newPerTaskExecutorOrNull();
+            if (executor != null) {
+                log.info("[OpenAIChatClient] Outbound calls run on virtual threads");
+            } else {
+                log.warn("[OpenAIChatClient] spring.threads.virtual.enabled is set but this JVM has no virtual threads "
+                        + "(need Java 21, build with -Pjava21). Using a bounded pool.");
+            }
+        }
+        if (executor == null && executorThreads > 0) {
+            executor = newHttpExecutor(executorThreads);
+        }
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        httpExecutor = executor;
+        httpClient = builder.build();
+
         if (apiKey == null || apiKey.isBlank()) {
             log.warn("[OpenAIChatClient] openai.api.key is not set. "
                     + "OpenAI calls will be skipped and the rule-based bot message will be used instead.");
         } else {
             log.info("[OpenAIChatClient] OpenAI client initialized with model '{}'", model);
         }
+
+        if (cacheEnabled) {
+            Set<IntentType> bypass = parseIntents(cacheBypassIntents);
+            cache = new AdviceCache(cacheMaxEntries, cacheTtlSeconds * 1000L, cacheTightTtlSeconds * 1000L,
+                    parseAmountBuckets(cacheAmountBuckets), bypass);
+            log.info("[OpenAIChatClient] Answer cache enabled (max {} entries, ttl {}s, tight ttl {}s, bypass {})",
+                    cacheMaxEntries, cacheTtlSeconds, cacheTightTtlSeconds, bypass);
+        }
+
+        if (breakerEnabled) {
+            breaker = new CircuitBreaker("openai", breakerWindow, breakerMinCalls, breakerFailureRate,
+                    breakerSlowCallMs, breakerOpenMs, breakerHalfOpenProbes);
+        }
+        if (limitEnabled) {
+            limiter = new AdaptiveLimiter(limitInitial, limitMin, limitMax, limitBackoff, limitSlowCallMs);
+        }
+
+        if (hedgeEnabled) {
+            hedger = new RequestHedger(hedgePercentile, hedgeMinDelayMs, hedgeMinSamples,
+                    hedgeBudget, hedgeMaxBurst, hedgeWindowSeconds * 1000L);
+            log.info("[OpenAIChatClient] Request hedging enabled (p{} of the last {}s, budget {}%)",
+                    Math.round(hedgePercentile * 100), hedgeWindowSeconds, Math.round(hedgeBudget * 100));
+        }
+
+        if (batchEnabled && cache == null) {
+            log.warn("[OpenAIChatClient] openai.batch.enabled has no effect without openai.cache.enabled: "
+                    + "only shared prompts, which carry no student's figures, are batched");
+        } else if (batchEnabled) {
+            batcher = new MicroBatcher<>(batchMaxItems, batchMaxWaitMs, "openai", this::sendBatch);
+            log.info("[OpenAIChatClient] Micro-batching enabled (up to {} prompts, {} ms)", batchMaxItems, batchMaxWaitMs);
+        }
+
+        if (warmupEnabled && apiKey != null && !apiKey.isBlank()) {
+            warmup = warmUp();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedger != null) {
+            hedger.shutdown();
+        }
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        if (httpExecutor != null) {
+            httpExecutor.shutdown();
+        }
+    }
+
+    /** Completes once the startup warm-up has finished or timed out (ColdStart waits on it). */
+    CompletableFuture<?> warmup() {
+        return warmup;
+    }
+
+    // ---------- HttpClient setup ----------
+
+    private static HttpClient.Version parseVersion(String value) {
+        String v = (value == null) ? "" : value.trim().toUpperCase(Locale.ROOT).replace('.', '_').replace('/', '_');
+        switch (v) {
+            case "HTTP_1_1":
+            case "HTTP_1":
+                return HttpClient.Version.HTTP_1_1;
+            case "HTTP_2":
+            case "":
+                return HttpClient.Version.HTTP_2;
+            default:
+                throw new IllegalArgumentException("openai.http.version must be HTTP_2 or HTTP_1_1, got: " + value);
+        }
+    }
+
+    /**
+     * Fixed-size daemon pool for HttpClient callbacks. The JDK default is an
+     * unbounded cached pool, which under a slow upstream grows a thread per
+     * waiting response; this keeps that number fixed and queues instead.
+     */
+    private static ExecutorService newHttpExecutor(int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "openai-http-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Open connections before traffic arrives: a few concurrent GET /models
+     * (free, no tokens), logged once they finish or warmup.timeout-ms passes.
+     * Startup does not wait for them. Any status counts; only the connection matters.
+     * Failures are logged and otherwise ignored.
+     */
+    private CompletableFuture<?> warmUp() {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/models"))
+                .timeout(Duration.ofMillis(warmupTimeoutMs))
+                .header("Authorization", "Bearer " + apiKey)
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[Math.max(1, warmupConnections)];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        return CompletableFuture.allOf(calls)
+                .orTimeout(warmupTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((ok, e) -> {
+                    long ms = (System.nanoTime() - start) / 1_000_000;
+                    if (e != null) {
+                        log.warn("[OpenAIChatClient] Connection warm-up failed after {} ms: {}", ms, describe(e));
+                        return;
+                    }
+                    HttpResponse<?> first = (HttpResponse<?>) calls[0].join();
+                    log.info("[OpenAIChatClient] Warmed up {} connection(s) to {} in {} ms ({}, status {})",
+                            calls.length, baseUrl, ms, first.version(), first.statusCode());
+                });
     }
 
     /**
@@ -57,26 +458,110 @@ public class OpenAIChatClient {
      *
      * AssistantController should treat a non-null return value as the primary
      * message, and only fall back to the rule-based message when this is null.
+     *
+     * Blocking convenience wrapper around {@link #getAdviceAsync}.
      */
     public String getAdvice(String question,
                             PurchaseQuery q,
                             Decision decision,
                             BudgetSnapshot snap,
                             String botMessage) {
+        return getAdviceAsync(question, q, decision, snap, botMessage).join();
+    }
+
+    /**
+     * Non-blocking version of {@link #getAdvice}. The future never completes
+     * exceptionally: errors are logged and turned into a null answer.
+     *
+     * The returned future belongs to the caller, so it is safe to apply
+     * orTimeout / completeOnTimeout to it without affecting other callers
+     * that share the same in-flight request.
+     */
+    public CompletableFuture<String> getAdviceAsync(String question,
+                                                    PurchaseQuery q,
+                                                    Decision decision,
+                                                    BudgetSnapshot snap,
+                                                    String botMessage) {
 
         // If there's no key, we just don't call OpenAI.
         if (apiKey == null || apiKey.isBlank()) {
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final AdviceCache.Key cacheKey = (cache != null) ? cache.keyFor(question, q, decision, snap) : null;
+        if (cacheKey != null) {
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
         }
 
         try {
-            String prompt = buildPrompt(question, q, decision, snap, botMessage);
-            String jsonResponse = callOpenAI(prompt);
-            return extractText(jsonResponse);
+            // A cacheable answer is shared, so it must not see this student's figures.
+            String prompt = (cacheKey != null)
+                    ? buildSharedPrompt(question, q, decision, cacheKey, botMessage)
+                    : buildPrompt(question, q, decision, snap, botMessage);
+            return callOpenAI(prompt, cacheKey != null)
+                    .thenApply(answer -> {
+                        if (cacheKey != null) {
+                            cache.put(cacheKey, answer);
+                        }
+                        return answer;
+                    })
+                    .exceptionally(e -> {
+                        // Already logged once per upstream call, in sendRequest.
+                        return null;  // fallback will be used by the controller
+                    });
         } catch (Exception e) {
             log.error("[OpenAIChatClient] Error while calling OpenAI", e);
-            return null;  // fallback will be used by the controller
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /** Client counters for /assistant/stats. */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("model", model);
+        out.put("cache", cache != null ? cache.stats() : Map.of("enabled", false));
+        out.put("inFlight", inFlight.size());
+        out.put("coalescedCalls", coalescedCalls.get());
+        out.put("breaker", breaker != null ? breaker.stats() : Map.of("enabled", false));
+        out.put("limiter", limiter != null ? limiter.stats() : Map.of("enabled", false));
+        out.put("hedge", hedger != null ? hedger.stats() : Map.of("enabled", false));
+        if (batcher != null) {
+            Map<String, Object> batch = batcher.stats();
+            batch.put("itemFallbacks", batchFallbacks.get());
+            out.put("batch", batch);
+        } else {
+            out.put("batch", Map.of("enabled", false));
+        }
+        return out;
+    }
+
+    // ---------- Cache configuration ----------
+
+    private static long[] parseAmountBuckets(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return AdviceCache.DEFAULT_AMOUNT_BUCKETS;
+        }
+        String[] parts = spec.split(",");
+        long[] cents = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            cents[i] = Money.fromDollars(Double.parseDouble(parts[i].trim()));
         }
+        return cents;
+    }
+
+    private static Set<IntentType> parseIntents(String spec) {
+        Set<IntentType> intents = EnumSet.noneOf(IntentType.class);
+        if (spec != null) {
+            for (String name : spec.split(",")) {
+                if (!name.isBlank()) {
+                    intents.add(IntentType.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+        }
+        return intents;
     }
 
     // ---------- Prompt construction ----------
@@ -122,35 +607,400 @@ public class OpenAIChatClient {
         return sb.toString();
     }
 
+    /**
+     * Prompt for an answer that goes into the shared cache: the same
+     * question data, but the budget only as the coarse bands in the cache
+     * key. Everyone with that key gets the answer, so it must not be
+     * written from (or quote) one student's balances. The asked amount is
+     * fine; AdviceCache swaps it for each asker.
+     */
+    static String buildSharedPrompt(String question,
+                                    PurchaseQuery q,
+                                    Decision decision,
+                                    AdviceCache.Key key,
+                                    String botMessage) {
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("You are a helpful budgeting assistant for a college student.\n\n");
+
+        sb.append("USER QUESTION:\n");
+        sb.append("\"").append(question).append("\"\n\n");
+
+        sb.append("STRUCTURED DATA ABOUT THE USER'S SITUATION:\n");
+        sb.append("- Parsed intent: ").append(q.getIntent()).append("\n");
+        sb.append("- Merchant: ").append(q.getMerchant()).append("\n");
+        sb.append("- Amount: ").append(q.getAmount()).append("\n");
+        sb.append("- Payment source: ").append(q.getSource()).append("\n");
+        sb.append("- Decision from local rule-based bot: ").append(decision).append("\n\n");
+
+        int[] levels = key.bandLevels();
+        String[] names = {"Personal weekly budget", "CaseCash (vs. where it should be by now)", "Meal swipes this week"};
+        sb.append("BUDGET HEALTH (coarse bands only; exact balances are not given):\n");
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == AdviceCache.NOT_IN_KEY) continue;
+            sb.append("- ").append(names[i]).append(": ").append(AdviceCache.bandName(levels[i])).append("\n");
+        }
+        sb.append("\n");
+
+        sb.append("LOCAL BOT SUMMARY MESSAGE:\n");
+        sb.append("\"").append(botMessage).append("\"\n\n");
+
+        sb.append("YOUR TASK:\n");
+        sb.append("- Reason about affordability from the budget bands above.\n");
+        sb.append("- Do not state or guess balances, budgets or amounts spent; the only dollar figure ");
+        sb.append("you may mention is the price in the question.\n");
+        sb.append("- You are allowed to disagree with the local bot's decision.\n");
+        sb.append("- Give a short, friendly answer directly to the user (2–4 sentences).\n");
+        sb.append("- If the question is not actually about money or budgeting, ");
+        sb.append("ignore the budget data and just answer the question helpfully.\n");
+
+        return sb.toString();
+    }
+
     // ---------- HTTP call to OpenAI ----------
 
-    private String callOpenAI(String prompt) throws Exception {
+    /**
+     * Send the prompt and complete with the answer text (null on failure),
+     * coalescing concurrent identical prompts into one request. The first
+     * caller starts the HTTP call; everyone who arrives while it is in flight
+     * gets the same future and so the same answer or the same error.
+     *
+     * Only a shared prompt may go into a batch: batch items share one model
+     * context, and a per-student prompt must never sit next to another
+     * student's question.
+     */
+    private CompletableFuture<String> callOpenAI(String prompt, boolean shared) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(prompt, mine);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            return existing;
+        }
+
+        CompletableFuture<String> call;
+        if (batcher != null && shared) {
+            call = batcher.submit(prompt);
+        } else if (hedger != null) {
+            call = hedger.call(() -> attempt(prompt));
+        } else {
+            call = attempt(prompt);
+        }
+        if (call == null) {
+            // Breaker open or limit reached: same as a failed call, but instant.
+            inFlight.remove(prompt, mine);
+            mine.complete(null);
+            return mine;
+        }
+
+        call.whenComplete((body, error) -> {
+            inFlight.remove(prompt, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(body);
+            }
+        });
+        return mine;
+    }
+
+    /** One request for the prompt, or null if the breaker / limiter refuses it. */
+    private CompletableFuture<String> attempt(String prompt) {
+        Permit permit = acquire();
+        if (permit == null) {
+            return null;
+        }
+        try {
+            return sendRequest(newRequest(prompt, false, false), permit);
+        } catch (Exception e) {
+            permit.done(describe(e));
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * MicroBatcher sender: one request for all prompts (all shared ones, see
+     * callOpenAI), answers in order.
+     * A single prompt goes out as a normal request. Items missing from the
+     * model's reply are retried one by one.
+     */
+    private CompletableFuture<List<String>> sendBatch(List<String> prompts) {
+        if (prompts.size() == 1) {
+            CompletableFuture<String> single = attempt(prompts.get(0));
+            return (single == null)
+                    ? CompletableFuture.completedFuture(Arrays.asList((String) null))
+                    : single.thenApply(answer -> Arrays.asList(answer));
+        }
+        Permit permit = acquire();
+        if (permit == null) {
+            return CompletableFuture.completedFuture(Arrays.asList(new String[prompts.size()]));
+        }
+        CompletableFuture<String> reply;
+        try {
+            reply = sendRequest(newRequest(BatchPrompt.compose(mapper, prompts), false, true), permit);
+        } catch (Exception e) {
+            permit.done(describe(e));
+            return CompletableFuture.failedFuture(e);
+        }
+        return reply.thenCompose(text -> {
+            String[] answers = BatchPrompt.split(mapper, text, prompts.size());
+            if (text == null) {
+                // The request itself failed; retrying each item would only pile onto a failing upstream.
+                return CompletableFuture.completedFuture(Arrays.asList(answers));
+            }
+            List<CompletableFuture<String>> retries = new ArrayList<>();
+            for (int i = 0; i < answers.length; i++) {
+                if (answers[i] != null) continue;
+                batchFallbacks.incrementAndGet();
+                final int idx = i;
+                CompletableFuture<String> retry = attempt(prompts.get(i));
+                if (retry != null) {
+                    retries.add(retry.handle((answer, error) -> answers[idx] = (error == null) ? answer : null));
+                }
+            }
+            if (retries.isEmpty()) {
+                return CompletableFuture.completedFuture(Arrays.asList(answers));
+            }
+            return CompletableFuture.allOf(retries.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(v -> Arrays.asList(answers));
+        });
+    }
+
+    /**
+     * Completes with the answer text, or null for a non-200 status or a reply
+     * without text. Cancelling the returned future (a hedge that lost) aborts
+     * the exchange.
+     */
+    private CompletableFuture<String> sendRequest(HttpRequest request, Permit permit) {
+        CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        // Set when the exchange answered with a non-200 status.
+        AtomicReference<String> failure = new AtomicReference<>();
+        CompletableFuture<String> body = exchange.thenApply(response -> {
+            int status = response.statusCode();
+            if (status != 200) {
+                failure.set("HTTP " + status);
+                log.debug("[OpenAIChatClient] Non-200 body: {}", response.body());
+                return null;
+            }
+            return extractTextOrNull(response.body());
+        });
+        // The one place the permit is released. body can be cancelled (a lost hedge)
+        // at any point, even after the exchange finished but before thenApply ran.
+        body.whenComplete((text, error) -> {
+            if (isCancellation(error)) {
+                permit.cancel();
+                exchange.cancel(true);
+            } else if (error != null) {
+                permit.done(describe(error));
+                callFailed("OpenAI call failed", describe(error));
+            } else {
+                permit.done(failure.get());
+                if (failure.get() != null) callFailed("Non-200 status from OpenAI", failure.get());
+            }
+        });
+        return body;
+    }
+
+    /**
+     * Log one failed upstream call: DEBUG every time, WARN at most once per
+     * FAILURE_WARN_INTERVAL with the count since the last one. An outage
+     * fails every call, and the breaker already warns when it opens.
+     */
+    private void callFailed(String what, String detail) {
+        log.debug("[OpenAIChatClient] {}: {}", what, detail);
+        failuresSinceWarn.incrementAndGet();
+        long now = System.nanoTime();
+        long last = lastFailureWarnNanos.get();
+        if (now - last >= FAILURE_WARN_INTERVAL_NANOS && lastFailureWarnNanos.compareAndSet(last, now)) {
+            log.warn("[OpenAIChatClient] {} OpenAI call(s) failed since the last report (latest: {}: {}); "
+                    + "each failure is logged at DEBUG", failuresSinceWarn.getAndSet(0), what, detail);
+        }
+    }
+
+    // ---------- Upstream protection ----------
+
+    /**
+     * Breaker and limiter permits for one outbound call, released by done()
+     * or cancel(). Only the first release counts.
+     */
+    private final class Permit {
+        private final long breakerPermit;
+        private final boolean limited;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(long breakerPermit, boolean limited) {
+            this.breakerPermit = breakerPermit;
+            this.limited = limited;
+        }
+
+        /** failure is null on success. */
+        void done(String failure) {
+            if (!released.compareAndSet(false, true)) return;
+            long elapsed = System.nanoTime() - startNanos;
+            if (breaker != null) breaker.onResult(breakerPermit, failure, elapsed);
+            if (limited) limiter.onResult(failure == null, startNanos, elapsed);
+        }
+
+        /** The call was abandoned (lost a hedge race): no outcome to record. */
+        void cancel() {
+            if (!released.compareAndSet(false, true)) return;
+            if (breaker != null) breaker.cancel(breakerPermit);
+            if (limited) limiter.cancel();
+        }
+    }
+
+    /** Null if the breaker is open or the concurrency limit is reached. */
+    private Permit acquire() {
+        long breakerPermit = 0;
+        if (breaker != null) {
+            breakerPermit = breaker.tryAcquire();
+            if (breakerPermit == CircuitBreaker.REJECTED) return null;
+        }
+        if (limiter != null && !limiter.tryAcquire()) {
+            if (breaker != null) breaker.cancel(breakerPermit);
+            return null;
+        }
+        return new Permit(breakerPermit, limiter != null);
+    }
+
+    private static boolean isCancellation(Throwable e) {
+        return e instanceof CancellationException
+                || (e instanceof java.util.concurrent.CompletionException && e.getCause() instanceof CancellationException);
+    }
+
+    private static String describe(Throwable e) {
+        Throwable cause = (e instanceof java.util.concurrent.CompletionException
+                || e instanceof java.util.concurrent.ExecutionException) && e.getCause() != null
+                ? e.getCause() : e;
+        return (cause.getMessage() == null) ? cause.getClass().getSimpleName()
+                : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    /** json asks for JSON-mode output (used for batched prompts). */
+    private HttpRequest newRequest(String prompt, boolean stream, boolean json) throws Exception {
         ObjectNode root = mapper.createObjectNode();
         root.put("model", model);
         root.put("input", prompt);
+        if (stream) {
+            root.put("stream", true);
+        }
+        if (json) {
+            root.putObject("text").putObject("format").put("type", "json_object");
+        }
 
         String body = mapper.writeValueAsString(root);
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/responses"))
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/responses"))
+                .timeout(requestTimeout)
                 .header("Authorization", "Bearer " + apiKey)
                 .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
+    }
+
+    // ---------- Streaming ----------
+
+    /**
+     * Streaming variant of {@link #getAdviceAsync}: uses the Responses API
+     * streaming mode and calls onDelta with each text fragment as it arrives
+     * (on an HttpClient thread). The future completes with the full answer,
+     * or null if there is no key or anything fails; it never completes
+     * exceptionally on its own.
+     *
+     * Cancelling the future, or completing it some other way (orTimeout),
+     * before the stream ends aborts the upstream request; the permit goes
+     * back without counting as a failure.
+     *
+     * A cache hit is delivered as a single delta.
+     */
+    public CompletableFuture<String> streamAdvice(String question,
+                                                  PurchaseQuery q,
+                                                  Decision decision,
+                                                  BudgetSnapshot snap,
+                                                  String botMessage,
+                                                  Consumer<String> onDelta) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        HttpResponse<String> response =
-                httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        final AdviceCache.Key cacheKey = (cache != null) ? cache.keyFor(question, q, decision, snap) : null;
+        if (cacheKey != null) {
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                onDelta.accept(cached);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
 
-        int status = response.statusCode();
-        if (status != 200) {
-            log.warn("[OpenAIChatClient] Non-200 status from OpenAI: {} body: {}", status, response.body());
+        Permit permit = acquire();
+        if (permit == null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        return response.body();
+        try {
+            // A cacheable answer is shared, so it must not see this student's figures.
+            String prompt = (cacheKey != null)
+                    ? buildSharedPrompt(question, q, decision, cacheKey, botMessage)
+                    : buildPrompt(question, q, decision, snap, botMessage);
+            HttpRequest request = newRequest(prompt, true, false);
+            ResponsesStreamParser parser = new ResponsesStreamParser(mapper, onDelta);
+
+            CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(request,
+                    HttpResponse.BodyHandlers.fromLineSubscriber(parser, ResponsesStreamParser::result, null));
+            CompletableFuture<String> result = exchange
+                    .whenComplete((response, error) -> {
+                        if (isCancellation(error)) permit.cancel();
+                        else if (error != null) permit.done(describe(error));
+                        else permit.done(response.statusCode() == 200 ? null : "HTTP " + response.statusCode());
+                    })
+                    .thenApply(response -> {
+                        int status = response.statusCode();
+                        if (status != 200) {
+                            callFailed("Non-200 status from OpenAI stream", "HTTP " + status);
+                            return null;
+                        }
+                        String answer = response.body();
+                        if (cacheKey != null) {
+                            cache.put(cacheKey, answer);
+                        }
+                        return answer;
+                    })
+                    .exceptionally(e -> {
+                        if (!isCancellation(e)) {
+                            callFailed("OpenAI stream failed", describe(e));
+                        }
+                        return null;
+                    });
+            // Done before the exchange: the caller gave up (client gone, budget spent).
+            result.whenComplete((answer, error) -> {
+                if (!exchange.isDone()) {
+                    parser.cancel();
+                    exchange.cancel(true);
+                }
+            });
+            return result;
+        } catch (Exception e) {
+            permit.done(describe(e));
+            log.error("[OpenAIChatClient] Error while streaming from OpenAI", e);
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     // ---------- Parse response text ----------
 
+    private String extractTextOrNull(String json) {
+        try {
+            return extractText(json);
+        } catch (Exception e) {
+            log.error("[OpenAIChatClient] Could not parse OpenAI response", e);
+            return null;
+        }
+    }
+
     private String extractText(String json) throws Exception {
         if (json == null || json.isBlank()) {
             return null;
@@ -0,0 +1,155 @@
+package com.cwru.budgetbot;
+
+/**
+ * Spending over three windows ending today, from the TransactionLedger:
+ *
+ *   rolling   the last 7 days, including today (DailyRing)
+ *   week      this week so far, Sunday .. today
+ *   semester  ledger.semester-start .. today (only with a semester configured)
+ *
+ * Money is long cents, swipes are counts. Burn rates are per elapsed day.
+ *
+ * DecisionEngine paces with it (see BudgetSnapshot's *Pace* getters):
+ * personal spending over the rolling 7 days against one weekly budget, and
+ * CaseCash spent this semester against what should be spent by today.
+ */
+public final class Pacing {
+
+    private final long rollingPersonalCents;
+    private final long rollingCaseCashCents;
+    private final long rollingSwipes;
+
+    private final long weekPersonalCents;
+    private final long weekCaseCashCents;
+    private final long weekSwipes;
+    private final int weekDaysElapsed;
+
+    private final long semesterPersonalCents;
+    private final long semesterCaseCashCents;
+    private final long semesterSwipes;
+    private final int semesterDaysElapsed;
+    private final int semesterDays;
+
+    Pacing(long rollingPersonalCents, long rollingCaseCashCents, long rollingSwipes,
+           long weekPersonalCents, long weekCaseCashCents, long weekSwipes, int weekDaysElapsed,
+           long semesterPersonalCents, long semesterCaseCashCents, long semesterSwipes,
+           int semesterDaysElapsed, int semesterDays) {
+        this.rollingPersonalCents = rollingPersonalCents;
+        this.rollingCaseCashCents = rollingCaseCashCents;
+        this.rollingSwipes = rollingSwipes;
+        this.weekPersonalCents = weekPersonalCents;
+        this.weekCaseCashCents = weekCaseCashCents;
+        this.weekSwipes = weekSwipes;
+        this.weekDaysElapsed = weekDaysElapsed;
+        this.semesterPersonalCents = semesterPersonalCents;
+        this.semesterCaseCashCents = semesterCaseCashCents;
+        this.semesterSwipes = semesterSwipes;
+        this.semesterDaysElapsed = semesterDaysElapsed;
+        this.semesterDays = semesterDays;
+    }
+
+    // --- ROLLING 7 DAYS ---
+
+    public long getRollingPersonalCents() {
+        return rollingPersonalCents;
+    }
+
+    public long getRollingCaseCashCents() {
+        return rollingCaseCashCents;
+    }
+
+    public long getRollingSwipes() {
+        return rollingSwipes;
+    }
+
+    // --- WEEK TO DATE ---
+
+    public long getWeekPersonalCents() {
+        return weekPersonalCents;
+    }
+
+    public long getWeekCaseCashCents() {
+        return weekCaseCashCents;
+    }
+
+    public long getWeekSwipes() {
+        return weekSwipes;
+    }
+
+    /** 1 on Sunday .. 7 on Saturday. */
+    public int getWeekDaysElapsed() {
+        return weekDaysElapsed;
+    }
+
+    // --- SEMESTER TO DATE ---
+
+    /** True once the configured semester has started. */
+    public boolean hasSemester() {
+        return semesterDays > 0 && semesterDaysElapsed > 0;
+    }
+
+    public long getSemesterPersonalCents() {
+        return semesterPersonalCents;
+    }
+
+    public long getSemesterCaseCashCents() {
+        return semesterCaseCashCents;
+    }
+
+    public long getSemesterSwipes() {
+        return semesterSwipes;
+    }
+
+    /** Days since the semester started, including today, capped at its length. */
+    public int getSemesterDaysElapsed() {
+        return semesterDaysElapsed;
+    }
+
+    /** Semester length in days; 0 when no semester is configured. */
+    public int getSemesterDays() {
+        return semesterDays;
+    }
+
+    /**
+     * Share of a semester-long budget that a steady spender would have used
+     * by today: total * elapsed / days, rounded down to the cent. 0 before
+     * the semester starts.
+     */
+    public long expectedByNowCents(long semesterTotalCents) {
+        if (!hasSemester()) return 0;
+        long total = Math.max(0L, Money.clamp(semesterTotalCents));
+        return total / semesterDays * semesterDaysElapsed
+                + total % semesterDays * semesterDaysElapsed / semesterDays;
+    }
+
+    // --- BURN RATES (per day) ---
+
+    public double getRollingPersonalPerDay() {
+        return perDay(rollingPersonalCents, DailyRing.DAYS);
+    }
+
+    public double getWeekPersonalPerDay() {
+        return perDay(weekPersonalCents, weekDaysElapsed);
+    }
+
+    public double getSemesterPersonalPerDay() {
+        return perDay(semesterPersonalCents, semesterDaysElapsed);
+    }
+
+    public double getRollingCaseCashPerDay() {
+        return perDay(rollingCaseCashCents, DailyRing.DAYS);
+    }
+
+    public double getWeekCaseCashPerDay() {
+        return perDay(weekCaseCashCents, weekDaysElapsed);
+    }
+
+    public double getSemesterCaseCashPerDay() {
+        return perDay(semesterCaseCashCents, semesterDaysElapsed);
+    }
+
+    // Dollars per day; 0 for an empty window.
+    private static double perDay(long cents, int days) {
+        return days > 0 ? Money.toDollars(cents) / days : 0.0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.cwru.budgetbot;
+
+/**
+ * What a phrase in intent-phrases.txt signals.
+ * PhraseMatcher reports matches as a bitmask over these ordinals.
+ */
+public enum PhraseCategory {
+    // intents, checked in this priority order by IntentParser
+    HOW_AM_I_DOING,
+    RECS,
+    CAN_I_BUY,
+
+    // "somewhere cheap", "broke", ...
+    CHEAP,
+
+    // payment source keywords used by SwipeParser
+    CASE_CASH,
+    MEAL_SWIPE,
+    SWIPE,
+    DINING,
+    MEAL;
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean in(int mask) {
+        return (mask & bit()) != 0;
+    }
+}
@@ -0,0 +1,311 @@
+package com.cwru.budgetbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keyword table for intent, cheapness and payment-source detection,
+ * compiled into a single Aho-Corasick automaton (flattened into a DFA).
+ *
+ * The phrases live in intent-phrases.txt on the classpath, one
+ * "CATEGORY: phrase" per line. A phrase written as "^phrase" only counts at
+ * the very start of the text (the old startsWith("can i") rules); every other
+ * phrase has plain String.contains semantics.
+ *
+ * {@link #scan(String)} walks the lowercased question once and returns a
+ * bitmask of every {@link PhraseCategory} that matched. Callers decide
+ * priority (IntentParser: HOW_AM_I_DOING, then RECS, then CAN_I_BUY).
+ */
+public final class PhraseMatcher {
+
+    public static final String DEFAULT_RESOURCE = "/intent-phrases.txt";
+
+    private static final int ROOT = 0;
+
+    // Full DFA: next state = delta[state * alphabetSize + charClass(c)].
+    // Class 0 is "any char that appears in no phrase".
+    private final int[] delta;
+    private final int alphabetSize;
+    private final byte[] asciiClass;
+    private final char[] wideChars;   // sorted non-ASCII phrase chars
+    private final int[] wideClass;
+
+    // Categories of every phrase ending in a state (own or via failure links).
+    private final int[] output;
+
+    // Categories of "^" phrases ending exactly in a state; only valid when the
+    // state's depth equals the number of chars read, i.e. the match began at 0.
+    private final int[] prefixOutput;
+    private final int[] depth;
+
+    private final int phraseCount;
+
+    private PhraseMatcher(int[] delta, int alphabetSize, byte[] asciiClass,
+                          char[] wideChars, int[] wideClass,
+                          int[] output, int[] prefixOutput, int[] depth, int phraseCount) {
+        this.delta = delta;
+        this.alphabetSize = alphabetSize;
+        this.asciiClass = asciiClass;
+        this.wideChars = wideChars;
+        this.wideClass = wideClass;
+        this.output = output;
+        this.prefixOutput = prefixOutput;
+        this.depth = depth;
+        this.phraseCount = phraseCount;
+    }
+
+    /** The table shipped in intent-phrases.txt, compiled once per JVM. */
+    public static PhraseMatcher defaults() {
+        return Defaults.INSTANCE;
+    }
+
+    private static final class Defaults {
+        static final PhraseMatcher INSTANCE = fromResource(DEFAULT_RESOURCE);
+    }
+
+    public static PhraseMatcher fromResource(String resource) {
+        InputStream in = PhraseMatcher.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Phrase table not found on classpath: " + resource);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read phrase table " + resource, e);
+        }
+        return compile(lines);
+    }
+
+    /** Compile "CATEGORY: phrase" lines; blank lines and "#" comments are skipped. */
+    public static PhraseMatcher compile(List<String> lines) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        List<Integer> prefixTerminal = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        trie.add(new LinkedHashMap<>());
+        terminal.add(0);
+        prefixTerminal.add(0);
+        depths.add(0);
+
+        int phrases = 0;
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Phrase table line " + (n + 1) + ": expected CATEGORY: phrase");
+            }
+            PhraseCategory category;
+            try {
+                category = PhraseCategory.valueOf(line.substring(0, colon).trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Phrase table line " + (n + 1)
+                        + ": unknown category " + line.substring(0, colon).trim());
+            }
+            String phrase = line.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+            boolean anchored = phrase.startsWith("^");
+            if (anchored) phrase = phrase.substring(1);
+            if (phrase.isEmpty()) {
+                throw new IllegalArgumentException("Phrase table line " + (n + 1) + ": empty phrase");
+            }
+
+            int state = ROOT;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = phrase.charAt(i);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new LinkedHashMap<>());
+                    terminal.add(0);
+                    prefixTerminal.add(0);
+                    depths.add(i + 1);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (anchored) {
+                prefixTerminal.set(state, prefixTerminal.get(state) | category.bit());
+            } else {
+                terminal.set(state, terminal.get(state) | category.bit());
+            }
+            phrases++;
+        }
+
+        int n = trie.size();
+        char[][] labels = new char[n][];
+        int[][] targets = new int[n][];
+        int[] depth = new int[n];
+        int[] prefixOutput = new int[n];
+        for (int s = 0; s < n; s++) {
+            Map<Character, Integer> children = trie.get(s);
+            char[] keys = new char[children.size()];
+            int k = 0;
+            for (char c : children.keySet()) {
+                keys[k++] = c;
+            }
+            Arrays.sort(keys);
+            int[] to = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                to[i] = children.get(keys[i]);
+            }
+            labels[s] = keys;
+            targets[s] = to;
+            depth[s] = depths.get(s);
+            prefixOutput[s] = prefixTerminal.get(s);
+        }
+
+        // BFS to wire failure links and OR each state's categories with its failure chain.
+        int[] fail = new int[n];
+        int[] output = new int[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            output[child] = terminal.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int i = 0; i < labels[s].length; i++) {
+                char c = labels[s][i];
+                int child = targets[s][i];
+
+                int f = fail[s];
+                int next;
+                while ((next = step(labels, targets, f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = (next < 0) ? ROOT : next;
+                output[child] = terminal.get(child) | output[fail[child]];
+                queue.add(child);
+            }
+        }
+
+        // Number the chars that occur in any phrase; everything else shares class 0.
+        TreeSet<Character> used = new TreeSet<>();
+        for (char[] keys : labels) {
+            for (char c : keys) used.add(c);
+        }
+        int alphabetSize = used.size() + 1;
+        if (alphabetSize > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Phrase table uses too many distinct characters: " + used.size());
+        }
+        byte[] asciiClass = new byte[128];
+        List<Character> wide = new ArrayList<>();
+        List<Integer> wideClasses = new ArrayList<>();
+        int cls = 1;
+        for (char c : used) {
+            if (c < 128) {
+                asciiClass[c] = (byte) cls;
+            } else {
+                wide.add(c);
+                wideClasses.add(cls);
+            }
+            cls++;
+        }
+        char[] wideChars = new char[wide.size()];
+        int[] wideClass = new int[wide.size()];
+        for (int i = 0; i < wideChars.length; i++) {
+            wideChars[i] = wide.get(i);
+            wideClass[i] = wideClasses.get(i);
+        }
+
+        // Resolve every (state, class) pair up front so scan() never follows failure links.
+        // BFS order guarantees fail[s] is filled in before s.
+        int[] delta = new int[n * alphabetSize];
+        int[] order = new int[n];
+        int head = 0, tail = 0;
+        order[tail++] = ROOT;
+        while (head < tail) {
+            int s = order[head++];
+            for (int child : targets[s]) order[tail++] = child;
+        }
+        for (int idx = 0; idx < n; idx++) {
+            int s = order[idx];
+            cls = 1;
+            for (char c : used) {
+                int next = step(labels, targets, s, c);
+                if (next < 0) {
+                    next = (s == ROOT) ? ROOT : delta[fail[s] * alphabetSize + cls];
+                }
+                delta[s * alphabetSize + cls] = next;
+                cls++;
+            }
+            // class 0 is never on a trie edge
+            delta[s * alphabetSize] = ROOT;
+        }
+
+        return new PhraseMatcher(delta, alphabetSize, asciiClass, wideChars, wideClass,
+                output, prefixOutput, depth, phrases);
+    }
+
+    /**
+     * Scan lowercased text once and return the OR of
+     * {@link PhraseCategory#bit()} for every category that occurs in it.
+     */
+    public int scan(String lower) {
+        int state = ROOT;
+        int mask = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            state = next(state, lower.charAt(i));
+            mask |= matchedAt(state, i);
+        }
+        return mask;
+    }
+
+    // ---------- char-at-a-time API (QuestionTokens folds this into its own pass) ----------
+
+    int start() {
+        return ROOT;
+    }
+
+    /** State after reading the lowercased char c. */
+    int next(int state, char c) {
+        return delta[state * alphabetSize + classOf(asciiClass, wideChars, wideClass, c)];
+    }
+
+    /** Categories matched by the char at index i that moved the automaton into state. */
+    int matchedAt(int state, int i) {
+        int mask = output[state];
+        if (depth[state] == i + 1) {
+            mask |= prefixOutput[state];
+        }
+        return mask;
+    }
+
+    /** Number of phrases compiled into the automaton. */
+    public int size() {
+        return phraseCount;
+    }
+
+    private static int classOf(byte[] asciiClass, char[] wideChars, int[] wideClass, char c) {
+        if (c < 128) return asciiClass[c];
+        int i = Arrays.binarySearch(wideChars, c);
+        return (i < 0) ? 0 : wideClass[i];
+    }
+
+    private static int step(char[][] labels, int[][] targets, int state, char c) {
+        char[] keys = labels[state];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == c) return targets[state][i];
+            if (keys[i] > c) break;
+        }
+        return -1;
+    }
+}
@@ -4,20 +4,20 @@ public class PurchaseQuery {
 
     private final IntentType intent;
     private final String merchant;
-    private final Double amount;
+    private final long amountCents;   // Money.NO_AMOUNT if none was given
     private final SourceType source;
     private final String originalText;
     private final boolean cheapPreference;
 
     public PurchaseQuery(IntentType intent,
                          String merchant,
-                         Double amount,
+                         long amountCents,
                          SourceType source,
                          String originalText,
                          boolean cheapPreference) {
         this.intent = intent;
         this.merchant = merchant;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.source = source;
         this.originalText = originalText;
         this.cheapPreference = cheapPreference;
@@ -31,8 +31,18 @@ public class PurchaseQuery {
         return merchant;
     }
 
+    /** Amount in cents, or Money.NO_AMOUNT. */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public boolean hasAmount() {
+        return Money.isPresent(amountCents);
+    }
+
+    /** Amount in dollars, or null if none was given (JSON / prompt shape). */
     public Double getAmount() {
-        return amount;
+        return Money.toDollarsOrNull(amountCents);
     }
 
     public SourceType getSource() {
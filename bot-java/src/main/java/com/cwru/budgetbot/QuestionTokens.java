@@ -0,0 +1,172 @@
+package com.cwru.budgetbot;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Everything the parsers need from one question, produced in a single pass.
+ *
+ * IntentParser used to lowercase the text, MerchantLexicon normalized it
+ * again, MoneyParser ran a regex over it and SwipeParser ran contains() over
+ * it. QuestionTokens walks the trimmed question once and, per char:
+ *
+ *   - lowercases it and steps the PhraseMatcher DFA (intent / cheap / source),
+ *   - appends it to the normalized form used by MerchantLexicon
+ *     (same output as Normalizer.normalize),
+ *   - records money spans with MoneyParser's scanner ("$5.25", "12 bucks",
+ *     a bare "2"), without creating any Strings.
+ *
+ * Allocation is the object itself, one char[] the size of the question for
+ * the normalized form, and a small int[] once a number shows up.
+ *
+ * Non-ASCII questions need NFKD for the normalized form, so for those the
+ * pass restarts over text.toLowerCase() and normalization is left to
+ * Normalizer. Results are identical either way.
+ */
+public final class QuestionTokens {
+
+    // Money spans, MoneyParser.SPAN_FIELDS ints each (layout is MoneyParser's).
+    private static final int[] NO_SPANS = new int[0];
+
+    private final String text;
+    private final PhraseMatcher matcher;
+
+    // Positions in spans refer to this string: text itself on the ASCII path,
+    // text.toLowerCase(Locale.ROOT) otherwise.
+    private String source;
+    private String normalized;
+    private int phrases;
+    private int[] spans = NO_SPANS;
+    private int spanCount;
+
+    private QuestionTokens(String text, PhraseMatcher matcher) {
+        this.text = text;
+        this.matcher = matcher;
+    }
+
+    public static QuestionTokens of(String input) {
+        return of(input, PhraseMatcher.defaults());
+    }
+
+    public static QuestionTokens of(String input, PhraseMatcher matcher) {
+        QuestionTokens t = new QuestionTokens(input == null ? "" : input.trim(), matcher);
+        if (!t.scan(t.text, true)) {
+            t.phrases = 0;
+            t.spanCount = 0;
+            t.normalized = Normalizer.normalize(t.text);
+            t.scan(t.text.toLowerCase(Locale.ROOT), false);
+        }
+        return t;
+    }
+
+    /**
+     * One pass over src. With emitNormalized the pass also builds the
+     * normalized form and gives up (returns false) at the first non-ASCII char.
+     */
+    private boolean scan(String src, boolean emitNormalized) {
+        int n = src.length();
+        char[] out = emitNormalized ? new char[n] : null;
+        int len = 0;
+        boolean pendingSpace = false;
+
+        int state = matcher.start();
+        int mask = 0;
+        int numbersFrom = 0;
+
+        for (int i = 0; i < n; i++) {
+            char c = src.charAt(i);
+            if (emitNormalized) {
+                if (c >= 0x80) return false;
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            }
+
+            state = matcher.next(state, c);
+            mask |= matcher.matchedAt(state, i);
+
+            boolean digit = MoneyParser.isDigit(c);
+            if (emitNormalized) {
+                if (digit || (c >= 'a' && c <= 'z')) {
+                    if (pendingSpace && len > 0) out[len++] = ' ';
+                    pendingSpace = false;
+                    out[len++] = c;
+                } else {
+                    pendingSpace = true;
+                }
+            }
+
+            if (digit && i >= numbersFrom) {
+                numbersFrom = readMoney(src, i);
+            }
+        }
+
+        phrases = mask;
+        source = src;
+        if (emitNormalized) {
+            // Already-normalized questions come back as-is, like Normalizer does.
+            normalized = (len == n && regionEquals(out, len, src)) ? src : new String(out, 0, len);
+        }
+        return true;
+    }
+
+    /** Record the money span whose number starts at i; returns where the next one may start. */
+    private int readMoney(String src, int i) {
+        if ((spanCount + 1) * MoneyParser.SPAN_FIELDS > spans.length) {
+            spans = Arrays.copyOf(spans, Math.max(2 * MoneyParser.SPAN_FIELDS, spans.length * 2));
+        }
+        return MoneyParser.scanSpan(src, i, spans, spanCount++ * MoneyParser.SPAN_FIELDS);
+    }
+
+    private static boolean regionEquals(char[] buf, int len, String s) {
+        for (int i = 0; i < len; i++) {
+            if (buf[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ---------- accessors ----------
+
+    /** The question, trimmed, as the user typed it. */
+    public String text() {
+        return text;
+    }
+
+    /** [a-z0-9] words separated by single spaces; equals Normalizer.normalize(text()). */
+    public String normalized() {
+        return normalized;
+    }
+
+    /** OR of PhraseCategory bits found in the lowercased question. */
+    public int phrases() {
+        return phrases;
+    }
+
+    /** Number of money spans, in order of appearance. */
+    public int moneyCount() {
+        return spanCount;
+    }
+
+    /** Start of span i, including a leading "$". */
+    public int moneyStart(int i) {
+        return spans[i * MoneyParser.SPAN_FIELDS + MoneyParser.START];
+    }
+
+    /** End (exclusive) of span i, including trailing whitespace and unit word. */
+    public int moneyEnd(int i) {
+        return spans[i * MoneyParser.SPAN_FIELDS + MoneyParser.END];
+    }
+
+    public MoneyParser.Confidence moneyConfidence(int i) {
+        return MoneyParser.confidence(spans[i * MoneyParser.SPAN_FIELDS + MoneyParser.FLAGS]);
+    }
+
+    /** Amount of span i in integer cents, parsed straight from the chars. */
+    public long moneyCents(int i) {
+        int at = i * MoneyParser.SPAN_FIELDS;
+        return MoneyParser.cents(source, spans[at + MoneyParser.NUMBER_START], spans[at + MoneyParser.NUMBER_END]);
+    }
+
+    /** Lowercased text of span i. */
+    public String moneyText(int i) {
+        return source.substring(moneyStart(i), moneyEnd(i)).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,251 @@
+package com.cwru.budgetbot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests: if a call has not answered within the chosen percentile
+ * of recent latency, send an identical second call and take whichever
+ * answers first; the other one is cancelled.
+ *
+ * The delay comes from a LatencyHistogram of attempts (hedges included;
+ * a cancelled loser counts with the time it had run) over the last window,
+ * never below minDelayMillis, and no hedge is sent until minSamples calls
+ * have been seen.
+ *
+ * Hedges are paid for from a budget: every call earns `budget` credits
+ * (0.05 = at most 5% extra requests), a hedge costs one, and at most
+ * maxBurst credits can be saved up. So a slow upstream cannot double the
+ * load on itself.
+ */
+public final class RequestHedger {
+
+    private static final long CREDIT = 1_000_000L;
+    private static final long DELAY_REFRESH_NANOS = 1_000_000_000L;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long minSamples;
+    private final long earnPerCall;
+    private final long maxCredits;
+    private final LatencyHistogram histogram;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicLong credits = new AtomicLong();
+    private volatile long delayNanos = -1;
+    private volatile long delayComputedAt = System.nanoTime() - DELAY_REFRESH_NANOS;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+
+    public RequestHedger(double percentile, long minDelayMillis, long minSamples,
+                         double budget, int maxBurst, long windowMillis) {
+        this.percentile = Math.min(0.999, Math.max(0.5, percentile));
+        this.minDelayNanos = Math.max(0, minDelayMillis) * 1_000_000L;
+        this.minSamples = Math.max(1, minSamples);
+        this.earnPerCall = (long) (Math.max(0.0, budget) * CREDIT);
+        this.maxCredits = Math.max(1, maxBurst) * CREDIT;
+        this.histogram = new LatencyHistogram(windowMillis);
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "hedge-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Run attempt once, and once more if the first is still out after the
+     * hedge delay. attempt returns null when it cannot be made (e.g. the
+     * breaker said no); if the first one cannot, call returns null too.
+     * The result is the first attempt to answer non-null; if none does, the
+     * outcome of the last one to finish.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> attempt) {
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = attempt.get();
+        if (primary == null) {
+            return null;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        calls.incrementAndGet();
+        earn();
+        Race<T> race = new Race<>(result);
+        race.reserve();
+        race.attach(primary, start, false);
+
+        long delay = hedgeDelayNanos();
+        if (delay >= 0 && !primary.isDone()) {
+            ScheduledFuture<?> timerTask = timer.schedule(() -> {
+                // Holds the call open for the hedge, so a primary failing from here on
+                // waits for it instead of settling the call without it.
+                if (!race.reserve()) return;
+                if (!spend()) {
+                    overBudget.incrementAndGet();
+                    race.release();
+                    return;
+                }
+                long hedgeStart = System.nanoTime();
+                CompletableFuture<T> hedge = attempt.get();
+                if (hedge == null) {
+                    race.release();
+                    return;
+                }
+                hedges.incrementAndGet();
+                race.attach(hedge, hedgeStart, true);
+            }, delay, TimeUnit.NANOSECONDS);
+            result.whenComplete((v, e) -> timerTask.cancel(false));
+        }
+        return result;
+    }
+
+    /** Current hedge delay in nanoseconds, or -1 while there are too few samples. */
+    public long hedgeDelayNanos() {
+        long now = System.nanoTime();
+        if (now - delayComputedAt >= DELAY_REFRESH_NANOS) {
+            delayComputedAt = now;
+            long p = (histogram.count() >= minSamples) ? histogram.percentileNanos(percentile) : -1;
+            delayNanos = (p < 0) ? -1 : Math.max(minDelayNanos, p);
+        }
+        return delayNanos;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        long d = hedgeDelayNanos();
+        long c = calls.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("delayMs", d < 0 ? null : d / 1_000_000);
+        out.put("samples", histogram.count());
+        out.put("p50Ms", histogram.percentileNanos(0.50) / 1_000_000);
+        out.put("p99Ms", histogram.percentileNanos(0.99) / 1_000_000);
+        out.put("calls", c);
+        out.put("hedges", hedges.get());
+        out.put("hedgeRate", c == 0 ? 0.0 : (double) hedges.get() / c);
+        out.put("hedgeWins", hedgeWins.get());
+        out.put("overBudget", overBudget.get());
+        return out;
+    }
+
+    // ---------- budget ----------
+
+    private void earn() {
+        long c;
+        do {
+            c = credits.get();
+            if (c >= maxCredits) return;
+        } while (!credits.compareAndSet(c, Math.min(maxCredits, c + earnPerCall)));
+    }
+
+    private boolean spend() {
+        long c;
+        do {
+            c = credits.get();
+            if (c < CREDIT) return false;
+        } while (!credits.compareAndSet(c, c - CREDIT));
+        return true;
+    }
+
+    // ---------- racing attempts ----------
+
+    /**
+     * Up to two attempts for one call; the first non-null answer wins and
+     * cancels the rest. An attempt is counted (reserve) before it is made, so
+     * a failure can tell whether another attempt is still coming.
+     */
+    private final class Race<T> {
+        private final CompletableFuture<T> result;
+        private final CompletableFuture<?>[] attempts = new CompletableFuture<?>[2];
+        // Guarded by "this". lastError is the outcome of the last failed attempt.
+        private int started;
+        private int finished;
+        private Throwable lastError;
+        private final AtomicBoolean won = new AtomicBoolean();
+
+        Race(CompletableFuture<T> result) {
+            this.result = result;
+        }
+
+        /** Count one more attempt; false once the call is settled or every attempt so far has finished. */
+        synchronized boolean reserve() {
+            if (started > 0 && (result.isDone() || finished == started)) return false;
+            started++;
+            return true;
+        }
+
+        /** A reserved attempt was not made after all. */
+        void release() {
+            boolean last;
+            Throwable error;
+            synchronized (this) {
+                started--;
+                last = started > 0 && finished == started;
+                error = lastError;
+            }
+            if (last) settle(error);
+        }
+
+        void attach(CompletableFuture<T> attempt, long startNanos, boolean hedge) {
+            synchronized (this) {
+                attempts[attempts[0] == null ? 0 : 1] = attempt;
+            }
+            if (won.get()) {
+                // The other attempt won while this one was being made.
+                attempt.cancel(true);
+            }
+            attempt.whenComplete((value, error) -> {
+                if (error instanceof CancellationException) {
+                    // Lost the race: it took at least this long. Recording that keeps
+                    // the slow tail in the histogram instead of only the winners.
+                    histogram.record(System.nanoTime() - startNanos);
+                    return;
+                }
+                if (error == null && value != null) {
+                    histogram.record(System.nanoTime() - startNanos);
+                    if (won.compareAndSet(false, true)) {
+                        if (hedge) hedgeWins.incrementAndGet();
+                        result.complete(value);
+                        cancelOthers(attempt);
+                    }
+                    return;
+                }
+                // A failure only settles the call when no other attempt is still out
+                // or reserved (a hedge being started counts).
+                boolean last;
+                synchronized (this) {
+                    last = ++finished == started;
+                    lastError = error;
+                }
+                if (last) settle(error);
+            });
+        }
+
+        private void settle(Throwable error) {
+            if (error != null) result.completeExceptionally(error);
+            else result.complete(null);
+        }
+
+        private void cancelOthers(CompletableFuture<?> winner) {
+            CompletableFuture<?>[] snapshot;
+            synchronized (this) {
+                snapshot = attempts.clone();
+            }
+            for (CompletableFuture<?> f : snapshot) {
+                if (f != null && f != winner) f.cancel(true);
+            }
+        }
+    }
+}
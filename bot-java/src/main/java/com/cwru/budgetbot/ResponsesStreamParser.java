@@ -0,0 +1,118 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Line subscriber for the Responses API streaming mode ("stream": true).
+ *
+ * The body is Server-Sent Events: "event: ..." / "data: {json}" lines, with a
+ * blank line closing each event. Every response.output_text.delta is handed
+ * to onDelta as soon as its event is complete, and also accumulated so
+ * {@link #result()} returns the full answer once the stream ends.
+ *
+ * {@link #cancel()} stops reading (the HttpClient then drops the connection)
+ * and no further deltas are delivered.
+ */
+public final class ResponsesStreamParser implements Flow.Subscriber<String> {
+
+    private final ObjectMapper mapper;
+    private final Consumer<String> onDelta;
+
+    private final StringBuilder data = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private boolean failed;
+
+    // Set from whichever thread gives up on the stream.
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+
+    public ResponsesStreamParser(ObjectMapper mapper, Consumer<String> onDelta) {
+        this.mapper = mapper;
+        this.onDelta = onDelta;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (cancelled) return;
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("data:")) {
+            if (data.length() > 0) data.append('\n');
+            data.append(line.substring(5).trim());
+        }
+        // "event:", "id:" and ":" comment lines carry nothing we need;
+        // the JSON payload repeats the event type.
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failed = true;
+    }
+
+    @Override
+    public void onComplete() {
+        dispatch();
+    }
+
+    /** Stop reading the stream; safe from any thread, and more than once. */
+    public void cancel() {
+        cancelled = true;
+        Flow.Subscription s = subscription;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    /** Full answer text, or null if the stream failed or produced nothing. */
+    public String result() {
+        if (failed || text.length() == 0) return null;
+        String out = text.toString().trim();
+        return out.isEmpty() ? null : out;
+    }
+
+    private void dispatch() {
+        if (data.length() == 0) return;
+        String payload = data.toString();
+        data.setLength(0);
+        if ("[DONE]".equals(payload)) return;
+
+        JsonNode event;
+        try {
+            event = mapper.readTree(payload);
+        } catch (Exception e) {
+            return; // skip anything that is not JSON
+        }
+
+        String type = event.path("type").asText("");
+        switch (type) {
+            case "response.output_text.delta": {
+                String delta = event.path("delta").asText("");
+                if (!delta.isEmpty() && !cancelled) {
+                    text.append(delta);
+                    onDelta.accept(delta);
+                }
+                break;
+            }
+            case "error":
+            case "response.failed":
+                failed = true;
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -1,15 +1,39 @@
 package com.cwru.budgetbot;
 
-import java.text.DecimalFormat;
-
 public final class StringUtil {
-    private static final DecimalFormat MONEY = new DecimalFormat("$0.00");
+
+    /** Longest appendMoney output: "-$92233720368547758.08". */
+    public static final int MAX_MONEY_CHARS = 22;
 
     private StringUtil() {}
 
     public static String money(Double amount) {
         if (amount == null) return "an unspecified amount";
-        return MONEY.format(amount);
+        return appendMoney(new StringBuilder(MAX_MONEY_CHARS), amount.doubleValue()).toString();
+    }
+
+    public static String money(long cents) {
+        if (!Money.isPresent(cents)) return "an unspecified amount";
+        return appendMoney(new StringBuilder(MAX_MONEY_CHARS), cents).toString();
+    }
+
+    /**
+     * Append cents as "$d.cc" ("-$d.cc" when negative), same shape as the
+     * old DecimalFormat("$0.00"). No shared state and nothing allocated
+     * beyond growing sb, so it is safe from any number of threads.
+     */
+    public static StringBuilder appendMoney(StringBuilder sb, long cents) {
+        // Work on the negative magnitude so Long.MIN_VALUE needs no special case.
+        long negative = (cents < 0) ? cents : -cents;
+        if (cents < 0) sb.append('-');
+        sb.append('$').append(-(negative / 100)).append('.');
+        int rest = (int) -(negative % 100);
+        return sb.append((char) ('0' + rest / 10)).append((char) ('0' + rest % 10));
+    }
+
+    /** Dollars rounded to the nearest cent like Money.fromDollars, then appendMoney. */
+    public static StringBuilder appendMoney(StringBuilder sb, double dollars) {
+        return appendMoney(sb, Money.fromDollars(dollars));
     }
 
     public static String orUnknown(String s, String fallback) {
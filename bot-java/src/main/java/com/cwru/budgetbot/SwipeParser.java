@@ -7,14 +7,31 @@ public class SwipeParser {
 
     public SourceType detectSource(String lower,
                                    String merchant,
-                                   Double amount) {
+                                   long amountCents) {
+        return detectSource(PhraseMatcher.defaults().scan(lower), merchant, amountCents);
+    }
+
+    /**
+     * Same as above, but reuses the phrase mask already computed for the
+     * question (keywords are in intent-phrases.txt).
+     */
+    public SourceType detectSource(QuestionTokens tokens,
+                                   String merchant,
+                                   long amountCents) {
+        return detectSource(tokens.phrases(), merchant, amountCents);
+    }
+
+    private SourceType detectSource(int phrases,
+                                    String merchant,
+                                    long amountCents) {
 
         // explicit mentions first
-        if (lower.contains("casecash") || lower.contains("case cash")) {
+        if (PhraseCategory.CASE_CASH.in(phrases)) {
             return SourceType.CASE_CASH;
         }
-        if (lower.contains("meal swipe") ||
-                lower.contains("swipe") && (lower.contains("dining") || lower.contains("meal"))) {
+        if (PhraseCategory.MEAL_SWIPE.in(phrases) ||
+                PhraseCategory.SWIPE.in(phrases)
+                        && (PhraseCategory.DINING.in(phrases) || PhraseCategory.MEAL.in(phrases))) {
             return SourceType.MEAL_SWIPE;
         }
 
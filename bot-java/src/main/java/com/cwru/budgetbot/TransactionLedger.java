@@ -0,0 +1,434 @@
+package com.cwru.budgetbot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of personal, CaseCash and meal swipe transactions, with
+ * running per-user totals for the current week.
+ *
+ * Every append also updates the user's in-memory totals, so building a
+ * BudgetSnapshot is a map lookup plus six field reads: no SQL SUM, and no
+ * trusting totals the client computed.
+ *
+ * Storage is a directory of fixed-size segment files, each memory-mapped:
+ *
+ *   ledger-0000000000000000.seg, ledger-0000000000000001.seg, ...
+ *
+ *   header   32 bytes: magic, version, segment index, record size
+ *   records  32 bytes each:
+ *              0  long  userId
+ *              8  long  amount (cents, or a swipe count)
+ *             16  int   epoch day of the transaction
+ *             20  byte  LedgerKind code (0 = unused space)
+ *             28  int   CRC32 of bytes 0..27
+ *
+ * An append is a few puts into the mapped page, which the OS writes back even
+ * if the JVM dies. With forceOnAppend each record is also flushed to the disk
+ * before append() returns (survives power loss, costs an fsync per call).
+ *
+ * open() replays every segment in order and stops at the first unused or
+ * torn record, which is where appending continues. When a segment is full
+ * the next one is created; old segments are never modified.
+ *
+ * Weeks start on Sunday, like the client's calculateWeeklySpending.
+ * Transactions dated in an earlier week than the user's latest one are kept
+ * in the log but do not change this week's totals.
+ *
+ * Alongside the weekly totals each user has a DailyRing (rolling 7 days) and,
+ * when a semester is configured, semester-to-date sums. All of it is updated
+ * in constant time per transaction and comes back as the snapshot's Pacing.
+ *
+ * Thread-safe: appends are serialized on the ledger, snapshots only lock the
+ * one user they read.
+ */
+public class TransactionLedger implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLedger.class);
+
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 32;
+
+    private static final int MAGIC = 0x42424C47; // "BBLG"
+    private static final int VERSION = 1;
+    private static final int MIN_SEGMENT_BYTES = 4096;
+
+    // Record field offsets
+    private static final int USER = 0;
+    private static final int AMOUNT = 8;
+    private static final int DAY = 16;
+    private static final int KIND = 20;
+    private static final int CRC = 28;
+
+    // "No limit recorded yet" for the BUDGET_* kinds
+    private static final long UNSET = Long.MIN_VALUE;
+
+    // DailyRing columns; same order as the spending LedgerKinds.
+    private static final int RING_COLUMNS = 3;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean forceOnAppend;
+
+    // First day and length of the semester; semesterDays == 0 means none.
+    private final long semesterStartDay;
+    private final int semesterDays;
+
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    // Everything below is guarded by "this".
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[CRC];
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int position;
+    private long entries;
+    private long replayedEntries;
+    private long replayMillis;
+    private boolean closed;
+
+    /** Running totals for one user; guarded by itself. */
+    private static final class Account {
+        long week = Long.MIN_VALUE;   // week the spending totals belong to
+        long personalCents;
+        long caseCashCents;
+        long swipes;
+
+        long budgetPersonalCents = UNSET;
+        long budgetCaseCashCents = UNSET;
+        long budgetSwipes = UNSET;
+
+        final DailyRing recent = new DailyRing(RING_COLUMNS);
+        final long[] semester = new long[RING_COLUMNS];
+
+        void apply(LedgerKind kind, long epochDay, long amount, long semesterStart, long semesterEnd) {
+            switch (kind) {
+                case BUDGET_PERSONAL:    budgetPersonalCents = amount; return;
+                case BUDGET_CASECASH:    budgetCaseCashCents = amount; return;
+                case BUDGET_MEAL_SWIPES: budgetSwipes = amount;        return;
+                default: break;
+            }
+            int column = kind.ordinal();
+            recent.add(epochDay, column, amount);
+            if (epochDay >= semesterStart && epochDay < semesterEnd) {
+                semester[column] = Money.clamp(semester[column] + amount);
+            }
+
+            long w = weekOf(epochDay);
+            if (w < week) return;
+            if (w > week) {
+                week = w;
+                personalCents = 0;
+                caseCashCents = 0;
+                swipes = 0;
+            }
+            switch (kind) {
+                // Both terms are within MAX_CENTS, so the sum cannot overflow.
+                case PERSONAL:   personalCents = Money.clamp(personalCents + amount); break;
+                case CASECASH:   caseCashCents = Money.clamp(caseCashCents + amount); break;
+                case MEAL_SWIPE: swipes = Money.clamp(swipes + amount);               break;
+                default: break;
+            }
+        }
+    }
+
+    private TransactionLedger(Path dir, int segmentBytes, boolean forceOnAppend,
+                              LocalDate semesterStart, int semesterWeeks) {
+        this.dir = dir;
+        int records = (Math.max(MIN_SEGMENT_BYTES, segmentBytes) - HEADER_BYTES) / RECORD_BYTES;
+        this.segmentBytes = HEADER_BYTES + records * RECORD_BYTES;
+        this.forceOnAppend = forceOnAppend;
+        boolean hasSemester = semesterStart != null && semesterWeeks > 0;
+        this.semesterStartDay = hasSemester ? semesterStart.toEpochDay() : 0;
+        this.semesterDays = hasSemester ? 7 * Math.min(semesterWeeks, 52) : 0;
+    }
+
+    /**
+     * Open (or create) the ledger in dir and replay it.
+     * segmentBytes is rounded down to whole records, with a 4 KiB minimum.
+     * semesterStart may be null (no semester-to-date pacing).
+     */
+    public static TransactionLedger open(Path dir, int segmentBytes, boolean forceOnAppend,
+                                         LocalDate semesterStart, int semesterWeeks) throws IOException {
+        TransactionLedger ledger = new TransactionLedger(dir, segmentBytes, forceOnAppend,
+                semesterStart, semesterWeeks);
+        synchronized (ledger) {
+            ledger.replay();
+        }
+        return ledger;
+    }
+
+    /** Week number for an epoch day; weeks run Sunday..Saturday. */
+    static long weekOf(long epochDay) {
+        // 1970-01-01 was a Thursday, so day 3 is the first Sunday.
+        return Math.floorDiv(epochDay + 4, 7);
+    }
+
+    // ---------- writing ----------
+
+    /**
+     * Append one transaction and fold it into the user's totals.
+     *
+     * @param amount cents for money kinds, a count for MEAL_SWIPE / BUDGET_MEAL_SWIPES
+     * @throws IllegalArgumentException for a bad user id, amount or kind
+     */
+    public synchronized void append(long userId, LedgerKind kind, long epochDay, long amount) throws IOException {
+        if (closed) throw new IllegalStateException("Ledger is closed");
+        checkEntry(userId, kind, epochDay, amount);
+
+        if (position + RECORD_BYTES > segment.capacity()) {
+            roll();
+        }
+        int at = position;
+        segment.putLong(at + USER, userId)
+                .putLong(at + AMOUNT, amount)
+                .putInt(at + DAY, (int) epochDay)
+                .putLong(at + KIND, 0L)          // kind + padding; may hold a torn record
+                .put(at + KIND, kind.code());
+        segment.putInt(at + CRC, checksum(segment, at));
+        if (forceOnAppend) {
+            segment.force(at, RECORD_BYTES);
+        }
+        position = at + RECORD_BYTES;
+        entries++;
+
+        apply(userId, kind, epochDay, amount);
+    }
+
+    private static void checkEntry(long userId, LedgerKind kind, long epochDay, long amount) {
+        if (kind == null) throw new IllegalArgumentException("kind is required");
+        if (userId <= 0) throw new IllegalArgumentException("userId must be positive");
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("date is out of range");
+        }
+        if (amount < -Money.MAX_CENTS || amount > Money.MAX_CENTS) {
+            throw new IllegalArgumentException("amount is out of range");
+        }
+        if (!kind.isSpending() && amount < 0) {
+            throw new IllegalArgumentException(kind + " cannot be negative");
+        }
+    }
+
+    private void apply(long userId, LedgerKind kind, long epochDay, long amount) {
+        Account account = accounts.computeIfAbsent(userId, id -> new Account());
+        synchronized (account) {
+            account.apply(kind, epochDay, amount, semesterStartDay, semesterStartDay + semesterDays);
+        }
+    }
+
+    private int checksum(MappedByteBuffer buf, int at) {
+        buf.get(at, scratch);
+        crc.reset();
+        crc.update(scratch, 0, scratch.length);
+        return (int) crc.getValue();
+    }
+
+    // ---------- reading ----------
+
+    /**
+     * Snapshot for userId as of epochDay ("today"), with Pacing, or null if
+     * the ledger has never seen the user. Limits the user never recorded are
+     * taken from defaults; spending in a week with no entries is 0.
+     */
+    public BudgetSnapshot snapshot(long userId, long epochDay, BudgetSnapshot defaults) {
+        Account account = accounts.get(userId);
+        if (account == null) return null;
+        long week = weekOf(epochDay);
+        int weekDaysElapsed = (int) (epochDay - (7 * week - 4)) + 1;
+        int semesterDaysElapsed = semesterDays == 0 ? 0
+                : (int) Math.max(0, Math.min(semesterDays, epochDay - semesterStartDay + 1));
+        synchronized (account) {
+            boolean current = account.week == week;
+            long personal = current ? account.personalCents : 0;
+            long caseCash = current ? account.caseCashCents : 0;
+            long swipes = current ? account.swipes : 0;
+            boolean inSemester = semesterDaysElapsed > 0;
+            Pacing pacing = new Pacing(
+                    account.recent.sum(epochDay, LedgerKind.PERSONAL.ordinal()),
+                    account.recent.sum(epochDay, LedgerKind.CASECASH.ordinal()),
+                    account.recent.sum(epochDay, LedgerKind.MEAL_SWIPE.ordinal()),
+                    personal, caseCash, swipes, weekDaysElapsed,
+                    inSemester ? account.semester[LedgerKind.PERSONAL.ordinal()] : 0,
+                    inSemester ? account.semester[LedgerKind.CASECASH.ordinal()] : 0,
+                    inSemester ? account.semester[LedgerKind.MEAL_SWIPE.ordinal()] : 0,
+                    semesterDaysElapsed, semesterDays);
+            return BudgetSnapshot.ofCents(
+                    orDefault(account.budgetPersonalCents, defaults.getWeeklyBudgetPersonalCents()),
+                    personal,
+                    orDefault(account.budgetCaseCashCents, defaults.getCaseCashTotalSemesterCents()),
+                    caseCash,
+                    account.budgetSwipes != UNSET ? saturatedInt(account.budgetSwipes) : defaults.getMealSwipesWeeklyTotal(),
+                    saturatedInt(swipes))
+                    .withPacing(pacing);
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("users", accounts.size());
+        out.put("entries", entries);
+        out.put("segments", segmentIndex + 1);
+        out.put("segmentBytes", segmentBytes);
+        out.put("semesterDays", semesterDays);
+        out.put("replayedEntries", replayedEntries);
+        out.put("replayMillis", replayMillis);
+        return out;
+    }
+
+    private static long orDefault(long value, long defaultValue) {
+        return value != UNSET ? value : defaultValue;
+    }
+
+    private static int saturatedInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    // ---------- segments ----------
+
+    private void replay() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        List<Path> files = segmentFiles();
+
+        for (int s = 0; s < files.size(); s++) {
+            Path file = files.get(s);
+            boolean last = s == files.size() - 1;
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buf;
+            long index;
+            if (last && ch.size() < HEADER_BYTES) {
+                // Crashed between CREATE_NEW and the map that sizes the file: finish creating it.
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+                index = indexOf(file);
+                writeHeader(buf, index);
+            } else {
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+                index = readHeader(buf, file, last);
+            }
+            int end = replaySegment(buf);
+
+            if (last) {
+                channel = ch;
+                segment = buf;
+                segmentIndex = index;
+                position = end;
+            } else {
+                if (end + RECORD_BYTES <= buf.capacity()) {
+                    log.warn("[TransactionLedger] {} is damaged at byte {}; later records in it were skipped", file, end);
+                }
+                ch.close();
+            }
+        }
+        if (segment == null) {
+            createSegment(0);
+        }
+        replayedEntries = entries;
+        replayMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /** Apply the valid records of one segment; returns the offset after the last one. */
+    private int replaySegment(MappedByteBuffer buf) {
+        int at = HEADER_BYTES;
+        while (at + RECORD_BYTES <= buf.capacity()) {
+            LedgerKind kind = LedgerKind.fromCode(buf.get(at + KIND));
+            if (kind == null || checksum(buf, at) != buf.getInt(at + CRC)) break;
+            apply(buf.getLong(at + USER), kind, buf.getInt(at + DAY), buf.getLong(at + AMOUNT));
+            entries++;
+            at += RECORD_BYTES;
+        }
+        return at;
+    }
+
+    private long readHeader(MappedByteBuffer buf, Path file, boolean last) throws IOException {
+        long expected = indexOf(file);
+        if (buf.capacity() < HEADER_BYTES) {
+            throw new IOException(file + " is not a ledger segment (too short)");
+        }
+        if (last && buf.getInt(0) == 0) {
+            // Crashed right after creating the file, before the header was written.
+            writeHeader(buf, expected);
+            return expected;
+        }
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(16) != RECORD_BYTES) {
+            throw new IOException(file + " is not a version " + VERSION + " ledger segment");
+        }
+        if (buf.getLong(8) != expected) {
+            throw new IOException(file + " claims to be segment " + buf.getLong(8));
+        }
+        return expected;
+    }
+
+    private static void writeHeader(MappedByteBuffer buf, long index) {
+        buf.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, index).putInt(16, RECORD_BYTES);
+        buf.force(0, HEADER_BYTES);
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        createSegment(segmentIndex + 1);
+    }
+
+    private void createSegment(long index) throws IOException {
+        Path file = dir.resolve(segmentName(index));
+        FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end grows the file to segmentBytes (zero-filled).
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        writeHeader(buf, index);
+        channel = ch;
+        segment = buf;
+        segmentIndex = index;
+        position = HEADER_BYTES;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(p -> isSegmentName(p.getFileName().toString())).sorted().forEach(files::add);
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (indexOf(files.get(i)) != i) {
+                throw new IOException("Ledger segment " + i + " is missing in " + dir);
+            }
+        }
+        return files;
+    }
+
+    static String segmentName(long index) {
+        return String.format("ledger-%016d.seg", index);
+    }
+
+    private static boolean isSegmentName(String name) {
+        return name.length() == 27 && name.startsWith("ledger-") && name.endsWith(".seg")
+                && name.substring(7, 23).chars().allMatch(Character::isDigit);
+    }
+
+    private static long indexOf(Path file) {
+        return Long.parseLong(file.getFileName().toString().substring(7, 23));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        segment.force();
+        channel.close();
+    }
+}
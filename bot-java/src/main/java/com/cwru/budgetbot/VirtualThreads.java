@@ -0,0 +1,46 @@
+package com.cwru.budgetbot;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual-thread executors without compiling against Java 21.
+ *
+ * The default build targets Java 17, so Executors.newVirtualThreadPerTaskExecutor
+ * is looked up at runtime. On a Java 21 JVM (mvn -Pjava21) it is used; on 17
+ * callers get null and keep their platform-thread executor.
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {}
+
+    private static final MethodHandle NEW_PER_TASK_EXECUTOR = lookup();
+
+    private static MethodHandle lookup() {
+        try {
+            return MethodHandles.publicLookup().findStatic(
+                    Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /** True when the running JVM has virtual threads (Java 21+). */
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /** A new virtual-thread-per-task executor, or null before Java 21. */
+    public static ExecutorService newPerTaskExecutorOrNull() {
+        if (NEW_PER_TASK_EXECUTOR == null) return null;
+        try {
+            return (ExecutorService) NEW_PER_TASK_EXECUTOR.invokeExact();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdaptiveLimiter AIMD: one multiplicative step per round of failures,
+ * additive growth after that.
+ */
+class AdaptiveLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void failuresInOneRoundBackOffOnce() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 200, 0.5, 1_000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.onResult(false, start, MS);
+        }
+        assertEquals(10, limiter.limit());
+        assertEquals(10L, limiter.stats().get("drops"));
+
+        // A call started after that backoff is a new round.
+        assertTrue(limiter.tryAcquire());
+        limiter.onResult(false, System.nanoTime(), MS);
+        assertEquals(5, limiter.limit());
+    }
+
+    @Test
+    void slowStartThenAdditiveIncrease() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 100, 0.5, 1_000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        // Slow start: a whole 1 per success.
+        limiter.onResult(true, System.nanoTime(), MS);
+        assertEquals(11, limiter.limit());
+        assertEquals(true, limiter.stats().get("slowStart"));
+
+        limiter.onResult(false, System.nanoTime(), MS);
+        assertEquals(5, limiter.limit());
+        assertEquals(false, limiter.stats().get("slowStart"));
+
+        // After a backoff: 1/limit per success, so three successes are not yet +1.
+        for (int i = 0; i < 3; i++) {
+            limiter.onResult(true, System.nanoTime(), MS);
+        }
+        assertEquals(6, limiter.limit());
+    }
+
+    @Test
+    void slowSuccessBacksOffAndIdleSuccessDoesNotGrow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 100, 0.5, 50);
+        assertTrue(limiter.tryAcquire());
+        limiter.onResult(true, System.nanoTime(), MS);
+        // One call in flight out of 10 is not enough use to raise the limit.
+        assertEquals(10, limiter.limit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onResult(true, System.nanoTime(), 80 * MS);
+        assertEquals(5, limiter.limit());
+        assertEquals(0, limiter.stats().get("inFlight"));
+    }
+
+    @Test
+    void upstreamErrorsHalveTheLimitOncePerRound() throws Exception {
+        try (TestLlmServer stub = new TestLlmServer()) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("openai.breaker.enabled", "false");
+            props.put("openai.limit.initial", "20");
+            props.put("openai.limit.min", "2");
+            props.put("openai.limit.backoff", "0.5");
+            OpenAIChatClient client = stub.client(props);
+
+            // 30 at once against a limit of 20: 10 refused, the 20 sent all fail together.
+            stub.setStatus(503);
+            stub.setDelay(100);
+            wave(client, 0, 30);
+            assertTrue(TestLlmServer.await(() -> limiter(client).get("inFlight").equals(0)));
+            assertEquals(20L, stub.requestCount());
+            assertEquals(10L, limiter(client).get("rejected"));
+            assertEquals(20L, limiter(client).get("drops"));
+            assertEquals(10, limiter(client).get("limit"));
+
+            // A healthy round at the new limit adds a fraction, not a step per call.
+            stub.setStatus(200);
+            wave(client, 100, 10);
+            assertTrue(TestLlmServer.await(() -> limiter(client).get("inFlight").equals(0)));
+            assertEquals(10, limiter(client).get("limit"));
+            assertFalse((Boolean) limiter(client).get("slowStart"));
+
+            // The next failing round is another single step.
+            stub.setStatus(503);
+            wave(client, 200, 10);
+            assertTrue(TestLlmServer.await(() -> limiter(client).get("inFlight").equals(0)));
+            assertEquals(5, limiter(client).get("limit"));
+        }
+    }
+
+    private static void wave(OpenAIChatClient client, int first, int calls) {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            futures.add(TestLlmServer.ask(client, first + i + 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private static Map<String, Object> limiter(OpenAIChatClient client) {
+        return TestLlmServer.stats(client, "limiter");
+    }
+}
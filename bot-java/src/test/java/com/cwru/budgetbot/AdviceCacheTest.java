@@ -0,0 +1,101 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * A cached answer is shared by every student with the same key, so it must
+ * never carry one student's figures to another.
+ */
+class AdviceCacheTest {
+
+    private final IntentParser parser = new IntentParser(new MerchantLexicon(), new MoneyParser(), new SwipeParser());
+    private final DecisionEngine engine = new DecisionEngine();
+
+    // Different figures, same health bands (plenty left everywhere).
+    private final BudgetSnapshot a = BudgetSnapshot.ofCents(12_345, 1_789, 43_210, 2_345, 14, 3);
+    private final BudgetSnapshot b = BudgetSnapshot.ofCents(13_113, 1_907, 45_678, 2_567, 19, 5);
+
+    private static final List<String> QUESTIONS = List.of(
+            "can i buy starbucks for $5",
+            "can i spend $12 of casecash at starbucks",
+            "can i use a meal swipe at leutner",
+            "how am i doing this week",
+            "where should i eat");
+
+    @Test
+    void sameBandDifferentFiguresShareKeyAndPrompt() {
+        AdviceCache cache = newCache();
+        for (String question : QUESTIONS) {
+            PurchaseQuery q = parser.parse(question);
+            AdviceCache.Key keyA = cache.keyFor(question, q, engine.decide(q, a), a);
+            AdviceCache.Key keyB = cache.keyFor(question, q, engine.decide(q, b), b);
+            assertNotNull(keyA, question);
+            assertEquals(keyA.toString(), keyB.toString(), question);
+
+            String promptA = OpenAIChatClient.buildSharedPrompt(question, q, engine.decide(q, a), keyA, "ok");
+            String promptB = OpenAIChatClient.buildSharedPrompt(question, q, engine.decide(q, b), keyB, "ok");
+            // Identical prompts: nothing the model sees depends on whose snapshot it was.
+            assertEquals(promptA, promptB, question);
+            assertNoFigures(promptA, a, question);
+            assertNoFigures(promptA, b, question);
+        }
+    }
+
+    @Test
+    void cachedAnswerNeverCarriesAnotherStudentsFigures() {
+        AdviceCache cache = newCache();
+        for (String question : QUESTIONS) {
+            PurchaseQuery q = parser.parse(question);
+            Decision decisionA = engine.decide(q, a);
+            AdviceCache.Key keyA = cache.keyFor(question, q, decisionA, a);
+            // Worst-case model: repeats its whole prompt back.
+            cache.put(keyA, fakeModel(OpenAIChatClient.buildSharedPrompt(question, q, decisionA, keyA, "ok")));
+
+            AdviceCache.Key keyB = cache.keyFor(question, q, engine.decide(q, b), b);
+            String forB = cache.get(keyB);
+            assertNotNull(forB, question);
+            assertNoFigures(forB, a, question);
+        }
+    }
+
+    @Test
+    void differentBandsDoNotShare() {
+        AdviceCache cache = newCache();
+        BudgetSnapshot tight = BudgetSnapshot.ofCents(12_345, 11_000, 43_210, 2_345, 14, 3);
+        String question = "can i buy starbucks for $5";
+        PurchaseQuery q = parser.parse(question);
+        AdviceCache.Key keyA = cache.keyFor(question, q, engine.decide(q, a), a);
+        AdviceCache.Key keyTight = cache.keyFor(question, q, engine.decide(q, tight), tight);
+        assertFalse(keyA.toString().equals(keyTight.toString()));
+    }
+
+    private static AdviceCache newCache() {
+        return new AdviceCache(100, 60_000, 10_000, AdviceCache.DEFAULT_AMOUNT_BUCKETS,
+                EnumSet.noneOf(IntentType.class));
+    }
+
+    private static String fakeModel(String prompt) {
+        return "Sure! " + prompt;
+    }
+
+    /** None of the snapshot's money figures, in any of the ways they get printed. */
+    private static void assertNoFigures(String text, BudgetSnapshot s, String question) {
+        long[] cents = {
+                s.getWeeklyBudgetPersonalCents(), s.getSpentThisWeekPersonalCents(),
+                s.getCaseCashTotalSemesterCents(), s.getCaseCashSpentThisWeekCents()};
+        for (long c : cents) {
+            for (String form : new String[] {
+                    Double.toString(Money.toDollars(c)), StringUtil.money(c), "$" + c / 100}) {
+                assertFalse(text.contains(form), question + ": answer contains " + form);
+            }
+        }
+        assertFalse(text.contains("swipes weekly total"), question);
+    }
+}
@@ -0,0 +1,225 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /assistant/ask/stream and /assistant/ask/batch against {@link TestLlmServer}:
+ * the LLM part keeps to the latency budget, the upstream stream does not
+ * outlive the client, and a batch says which items ran out of time.
+ */
+class AssistantControllerTest {
+
+    private static final String BODY = "{\"question\":\"can i buy starbucks for $5\"}";
+
+    // Six different prompts, so none of them share an in-flight call.
+    private static final String SIX_WITH_LLM = "{\"questions\":[\"can i buy starbucks for $1\","
+            + "\"can i buy starbucks for $2\",\"can i buy starbucks for $3\",\"can i buy starbucks for $4\","
+            + "\"can i buy starbucks for $5\",\"can i buy starbucks for $6\"],\"llm\":true}";
+
+    private TestLlmServer stub;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new TestLlmServer();
+        // 20 tokens, 50 ms apart: a one-second stream.
+        stub.setDelay(50);
+    }
+
+    @AfterEach
+    void stop() {
+        stub.close();
+    }
+
+    @Test
+    void streamPastTheBudgetEndsWithTheRuleBasedAnswer() throws Exception {
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.llm.latency-budget-ms", "200"));
+        MvcResult result = startStream(app);
+
+        assertTrue(TestLlmServer.await(() -> content(result).contains("event:done")), content(result));
+        String done = content(result).substring(content(result).indexOf("event:done"));
+        assertTrue(done.contains("\"llmTimedOut\":true"), done);
+        assertTrue(done.contains("\"llmMessage\":null"), done);
+
+        assertUpstreamCancelled(app);
+    }
+
+    @Test
+    void clientDisconnectCancelsTheUpstreamStream() throws Exception {
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.llm.latency-budget-ms", "10000"));
+        MvcResult result = startStream(app);
+        assertTrue(TestLlmServer.await(() -> content(result).contains("event:token")), content(result));
+
+        // What the container reports when the client hangs up mid-stream.
+        MockAsyncContext async = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : async.getListeners()) {
+            listener.onError(new AsyncEvent(async, new IOException("Broken pipe")));
+        }
+
+        assertUpstreamCancelled(app);
+        assertFalse(content(result).contains("event:done"), content(result));
+    }
+
+    @Test
+    void streamWithinTheBudgetCompletes() throws Exception {
+        stub.setDelay(5);
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.llm.latency-budget-ms", "5000"));
+        MvcResult result = startStream(app);
+
+        assertTrue(TestLlmServer.await(() -> content(result).contains("event:done")), content(result));
+        String done = content(result).substring(content(result).indexOf("event:done"));
+        assertTrue(done.contains("\"llmTimedOut\":false"), done);
+        assertTrue(done.contains("\"llmMessage\":\"tok tok"), done);
+        assertEquals(0L, stub.abandonedStreams());
+    }
+
+    @Test
+    void batchItemsPastTheBudgetAreMarkedTimedOut() throws Exception {
+        stub.setDelay(500);
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.llm.latency-budget-ms", "100"));
+        JsonNode results = batch(app, "{\"questions\":[\"can i buy starbucks for $5\",\"how am i doing\"],"
+                + "\"llm\":true}").path("results");
+
+        assertEquals(2, results.size());
+        for (JsonNode item : results) {
+            assertTrue(item.path("llmTimedOut").asBoolean(), item.toString());
+            assertTrue(item.path("llmMessage").isNull(), item.toString());
+            assertEquals(item.path("botMessage"), item.path("message"), item.toString());
+        }
+    }
+
+    @Test
+    void batchItemsWithinTheBudgetCarryTheAnswer() throws Exception {
+        stub.setDelay(5);
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.llm.latency-budget-ms", "5000"));
+        JsonNode results = batch(app, "{\"questions\":[\"can i buy starbucks for $5\",\"how am i doing\"],"
+                + "\"llm\":true}").path("results");
+
+        assertEquals(2, results.size());
+        for (JsonNode item : results) {
+            assertFalse(item.path("llmTimedOut").asBoolean(), item.toString());
+            assertEquals(TestLlmServer.ANSWER, item.path("llmMessage").asText(), item.toString());
+        }
+    }
+
+    @Test
+    void llmBatchesHaveTheirOwnSmallLimit() throws Exception {
+        AnnotationConfigApplicationContext app = stub.app(Map.of("assistant.batch.llm-max-items", "3"));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(app.getBean(AssistantController.class)).build();
+        String four = "\"questions\":[\"a\",\"b\",\"c\",\"d\"]";
+
+        mvc.perform(post("/assistant/ask/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{" + four + ",\"llm\":true}"))
+                .andExpect(status().isBadRequest());
+        assertEquals(4, batch(app, "{" + four + "}").path("count").asInt());
+        assertEquals(0L, stub.requestCount());
+    }
+
+    @Test
+    void nullSnapshotIsABadRequest() throws Exception {
+        AnnotationConfigApplicationContext app = stub.app(Map.of());
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(app.getBean(AssistantController.class)).build();
+        mvc.perform(post("/assistant/ask/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"questions\":[\"how am i doing\"],\"snapshots\":[{\"weeklyBudgetPersonal\":50},null]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason("snapshots[1] is null"));
+    }
+
+    @Test
+    void llmBatchStopsStartingCallsAtTheDeadline() throws Exception {
+        stub.setDelay(400);
+        AnnotationConfigApplicationContext app = stub.app(Map.of(
+                "assistant.llm.latency-budget-ms", "10000",
+                "assistant.batch.llm-concurrency", "1",
+                "assistant.batch.llm-timeout-ms", "600"));
+        JsonNode results = batch(app, SIX_WITH_LLM).path("results");
+
+        // The first call answered; the second was in flight at the deadline; the rest never started.
+        assertFalse(results.get(0).path("llmTimedOut").asBoolean(), results.toString());
+        for (int i = 1; i < 6; i++) {
+            assertTrue(results.get(i).path("llmTimedOut").asBoolean(), results.toString());
+            assertTrue(results.get(i).path("llmMessage").isNull(), results.toString());
+        }
+        Thread.sleep(900);
+        assertEquals(2L, stub.requestCount());
+    }
+
+    @Test
+    void llmBatchStopsStartingCallsWhenTheClientLeaves() throws Exception {
+        stub.setDelay(300);
+        AnnotationConfigApplicationContext app = stub.app(Map.of(
+                "assistant.llm.latency-budget-ms", "10000",
+                "assistant.batch.llm-concurrency", "1"));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(app.getBean(AssistantController.class)).build();
+        MvcResult result = mvc.perform(post("/assistant/ask/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(SIX_WITH_LLM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(TestLlmServer.await(() -> stub.requestCount() == 1));
+
+        MockAsyncContext async = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : async.getListeners()) {
+            listener.onError(new AsyncEvent(async, new IOException("Broken pipe")));
+        }
+
+        Thread.sleep(900);
+        assertEquals(1L, stub.requestCount());
+    }
+
+    private static JsonNode batch(AnnotationConfigApplicationContext app, String body) throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(app.getBean(AssistantController.class)).build();
+        MvcResult started = mvc.perform(post("/assistant/ask/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String json = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readTree(json);
+    }
+
+    private static MvcResult startStream(AnnotationConfigApplicationContext app) throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(app.getBean(AssistantController.class)).build();
+        return mvc.perform(post("/assistant/ask/stream").contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    /** The stub saw the client hang up, and the permit came back without counting as a failure. */
+    private void assertUpstreamCancelled(AnnotationConfigApplicationContext app) throws Exception {
+        assertTrue(TestLlmServer.await(() -> stub.abandonedStreams() == 1), "upstream stream still open");
+        OpenAIChatClient client = app.getBean(OpenAIChatClient.class);
+        assertTrue(TestLlmServer.await(() -> TestLlmServer.stats(client, "limiter").get("inFlight").equals(0)),
+                client.stats().toString());
+        assertEquals(0, TestLlmServer.stats(client, "breaker").get("window"));
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The precomputed bundles and CAN_I_BUY templates must produce, character
+ * for character, the messages the string-concatenating responder built for
+ * every intent, source, swipe / money mode and Decision.
+ */
+class BudgetBotResponderTest {
+
+    private static final String[] MERCHANTS = {
+            null, "", "Starbucks", "starbucks", "dining hall", "North Dining Hall", "south DINING hall",
+            "\u00e9cole", "1-2-3 Deli",
+    };
+
+    private static final long[] AMOUNTS = {Money.NO_AMOUNT, 0, 1, 500, 1_250, 123_456_789, -250, Money.MAX_CENTS};
+
+    private static final Decision[] DECISIONS = Decision.values();
+
+    private final BudgetBotResponder responder = new BudgetBotResponder();
+
+    @Test
+    void everyCombinationMatchesBaseline() {
+        for (IntentType intent : IntentType.values()) {
+            for (SourceType source : SourceType.values()) {
+                for (String merchant : MERCHANTS) {
+                    for (long amount : AMOUNTS) {
+                        for (boolean cheap : new boolean[] {false, true}) {
+                            PurchaseQuery q = new PurchaseQuery(intent, merchant, amount, source, "", cheap);
+                            String[] expected = baseline(q);
+                            BudgetBotResponder.ResponseBundle drafted = responder.draftResponses(q);
+                            String where = intent + "/" + source + "/" + merchant + "/" + amount + "/" + cheap;
+                            assertEquals(expected[0], drafted.yes, where);
+                            assertEquals(expected[1], drafted.caution, where);
+                            assertEquals(expected[2], drafted.no, where);
+                            for (int d = 0; d < DECISIONS.length; d++) {
+                                assertEquals(expected[d], responder.pickResponse(q, DECISIONS[d]),
+                                        where + "/" + DECISIONS[d]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void canIBuyMessagesSpelledOut() {
+        PurchaseQuery money = query(SourceType.PERSONAL, "starbucks", 550);
+        assertEquals("\u2705 YES: Starbucks for $5.50 fits within your current weekly budget pace.",
+                responder.pickResponse(money, Decision.YES));
+        assertEquals("\u26a0\ufe0f CAUTION: $5.50 at starbucks is doable, but it puts pressure on the rest of your week. "
+                + "If you go ahead, try to cut back slightly on other non-essentials.",
+                responder.pickResponse(money, Decision.CAUTION));
+
+        // No amount and no swipe context: the generic phrase, and "this place" without a merchant.
+        assertEquals("\u2705 YES: This place for this purchase fits within your current weekly budget pace.",
+                responder.pickResponse(query(SourceType.PERSONAL, null, Money.NO_AMOUNT), Decision.YES));
+        assertEquals("\u26d4 NO: this purchase at this place would push you past a realistic weekly spending level. "
+                + "Choosing a cheaper option or waiting until next week is safer.",
+                responder.pickResponse(query(SourceType.CASE_CASH, null, Money.NO_AMOUNT), Decision.NO));
+
+        // A dining hall with no amount talks in swipes; with an amount, in dollars.
+        assertEquals("\u2705 YES: Using a meal swipe at dining hall fits comfortably into your current swipe usage this week.",
+                responder.pickResponse(query(SourceType.PERSONAL, "dining hall", Money.NO_AMOUNT), Decision.YES));
+        assertEquals("\u2705 YES: Dining hall for $12.00 fits within your current weekly budget pace.",
+                responder.pickResponse(query(SourceType.MEAL_SWIPE, "dining hall", 1_200), Decision.YES));
+        assertEquals("\u26d4 NO: You\u2019re too close to using up your swipes for the week. "
+                + "It\u2019s safer to save this swipe for a more important meal.",
+                responder.pickResponse(query(SourceType.MEAL_SWIPE, "Starbucks", Money.NO_AMOUNT), Decision.NO));
+    }
+
+    @Test
+    void nullDecisionIsCaution() {
+        for (IntentType intent : IntentType.values()) {
+            PurchaseQuery q = new PurchaseQuery(intent, "Starbucks", 500, SourceType.PERSONAL, "", false);
+            assertEquals(responder.draftResponses(q).caution, responder.pickResponse(q, null), intent.toString());
+        }
+    }
+
+    private static PurchaseQuery query(SourceType source, String merchant, long amount) {
+        return new PurchaseQuery(IntentType.CAN_I_BUY, merchant, amount, source, "", false);
+    }
+
+    // ---------- BudgetBotResponder.draftResponses before the templates ----------
+
+    /** yes, caution, no. */
+    private static String[] baseline(PurchaseQuery q) {
+        final String merchant = StringUtil.orUnknown(q.getMerchant(), "this place");
+        final String amountPhrase = baselineAmountPhrase(q);
+        final boolean isDiningHall =
+                "Dining Hall".equalsIgnoreCase(merchant)
+                        || "North Dining Hall".equalsIgnoreCase(merchant)
+                        || "South Dining Hall".equalsIgnoreCase(merchant);
+        final boolean isSwipeContext = q.getSource() == SourceType.MEAL_SWIPE || isDiningHall;
+        final boolean hasAmount = q.hasAmount();
+
+        switch (q.getIntent()) {
+            case CAN_I_BUY:
+                if (isSwipeContext && !hasAmount) {
+                    return new String[] {
+                            "\u2705 YES: Using a meal swipe at " + merchant +
+                                    " fits comfortably into your current swipe usage this week.",
+                            "\u26a0\ufe0f CAUTION: A swipe at " + merchant +
+                                    " might be okay, but you\u2019re getting closer to your weekly swipe limit. " +
+                                    "Use it only if this meal matters more than a later one.",
+                            "\u26d4 NO: You\u2019re too close to using up your swipes for the week. " +
+                                    "It\u2019s safer to save this swipe for a more important meal."};
+                }
+                return new String[] {
+                        "\u2705 YES: " + capFirst(merchant) + " for " + amountPhrase +
+                                " fits within your current weekly budget pace.",
+                        "\u26a0\ufe0f CAUTION: " + amountPhrase + " at " + merchant +
+                                " is doable, but it puts pressure on the rest of your week. " +
+                                "If you go ahead, try to cut back slightly on other non-essentials.",
+                        "\u26d4 NO: " + amountPhrase + " at " + merchant +
+                                " would push you past a realistic weekly spending level. " +
+                                "Choosing a cheaper option or waiting until next week is safer."};
+            case HOW_AM_I_DOING:
+                return new String[] {
+                        "\u2705 You\u2019re on track with your budget this week. At your current pace, you can afford a small extra purchase without hurting your goals.",
+                        "\u26a0\ufe0f You\u2019re getting close to the edge of your weekly budget. New non-essential spending is possible, but you should keep it small and selective.",
+                        "\u26d4 You\u2019ve effectively used up this week\u2019s budget. It\u2019s best to pause extra spending until the new week starts and let your budget reset."};
+            case RECS:
+                if (q.isCheapPreference()) {
+                    return new String[] {
+                            "\u2705 Your budget can handle some low-cost options. Here are cheap places to consider:\n" +
+                                    " \u2022 Dining halls: " + DINING_HALLS + "\n" +
+                                    " \u2022 Cheap meals: " + CHEAP_MEALS + "\n" +
+                                    " \u2022 Budget groceries: " + CHEAP_GROCERIES + "\n" +
+                                    "Sticking mostly to these will keep your spending low while still giving you variety.",
+                            "\u26a0\ufe0f Your budget is tight, so you should stay very budget-focused. Best cheap options are:\n" +
+                                    " \u2022 Primary meals from: " + DINING_HALLS + "\n" +
+                                    " \u2022 Occasional cheap meals: " + CHEAP_MEALS + "\n" +
+                                    " \u2022 Budget groceries: " + CHEAP_GROCERIES + "\n" +
+                                    "Use dining halls whenever possible and treat cheap restaurants as an occasional break.",
+                            "\u26d4 Right now your budget is under pressure. The safest cheap options are:\n" +
+                                    " \u2022 Almost all meals from: " + DINING_HALLS + "\n" +
+                                    " \u2022 Groceries mainly from: " + CHEAP_GROCERIES + "\n" +
+                                    "Until your spending resets, avoid even the cheaper restaurant options and lean hard on dining halls and basic groceries."};
+                }
+                return new String[] {
+                        "\u2705 You\u2019re in a comfortable spot this week. Here are good options:\n" +
+                                " \u2022 Treats & coffee: " + TREATS_AND_COFFEE + "\n" +
+                                " \u2022 Regular meals out: " + MID_MEALS + "\n" +
+                                " \u2022 Groceries to stock up: " + MID_GROCERIES + "\n" +
+                                "Mixing a treat or two with normal meals and a grocery run keeps you on pace.",
+                        "\u26a0\ufe0f Your budget is tight but manageable. Safer choices right now are:\n" +
+                                " \u2022 Most meals from: " + DINING_HALLS + "\n" +
+                                " \u2022 Occasional meals out: " + MID_MEALS + "\n" +
+                                " \u2022 Budget-friendly groceries: " + CHEAP_GROCERIES + " or " + MID_GROCERIES + "\n" +
+                                "Lean on dining halls and groceries for most meals and treat restaurant trips as occasional.",
+                        "\u26d4 Your budget is under real pressure this week. Best options are:\n" +
+                                " \u2022 Primary meals: " + DINING_HALLS + "\n" +
+                                " \u2022 Groceries: " + CHEAP_GROCERIES + "\n" +
+                                "Stick to dining halls and basic groceries until your weekly spending resets, then reintroduce extras."};
+            default:
+                return new String[] {
+                        "\u2705 This looks manageable based on a typical student budget. For more precise advice, mention where you\u2019re going and roughly how much you\u2019ll spend.",
+                        "\u26a0\ufe0f I can give a clearer answer if you share the place and approximate cost, or ask how you\u2019re doing on your budget this week.",
+                        "\u26d4 I don\u2019t have enough details to judge this. Tell me the location, an approximate price, or ask for recommendations based on your budget."};
+        }
+    }
+
+    private static final String DINING_HALLS = "Dining Hall, North Dining Hall, South Dining Hall";
+    private static final String CHEAP_GROCERIES = "Aldi, Grocery Outlet, Fairfax Market, Dave's Market";
+    private static final String MID_GROCERIES = "Trader Joe's, Giant Eagle, Target, Whole Foods";
+    private static final String MID_MEALS = "Chipotle, Subway, Panera Bread, Campus Grill, Student Center Food Court";
+    private static final String CHEAP_MEALS = "Rascal House Pizza, Sittoo's Pita & Salads, Potbelly, Cilantro Taqueria, "
+            + "Bibibop, Capo Steaks, Sunset Kitchen, Phusion Cafe, Spartie Mart";
+    private static final String TREATS_AND_COFFEE = "Mitchell's Ice Cream, Starbucks, Dunkin, Einstein Bros Bagels";
+
+    private static String baselineAmountPhrase(PurchaseQuery q) {
+        if (q.hasAmount()) {
+            return StringUtil.money(Money.toDollarsOrNull(q.getAmountCents()));
+        }
+        boolean isDiningHall =
+                "Dining Hall".equalsIgnoreCase(q.getMerchant()) ||
+                        "North Dining Hall".equalsIgnoreCase(q.getMerchant()) ||
+                        "South Dining Hall".equalsIgnoreCase(q.getMerchant());
+        if (q.getSource() == SourceType.MEAL_SWIPE || isDiningHall) {
+            return "a swipe";
+        }
+        return "this purchase";
+    }
+
+    private static String capFirst(String s) {
+        if (s == null || s.isEmpty()) return s;
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
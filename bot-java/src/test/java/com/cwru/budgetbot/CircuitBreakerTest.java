@@ -0,0 +1,162 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CircuitBreaker state machine, mostly through the real client against
+ * {@link TestLlmServer} answering 503s or slowly.
+ */
+class CircuitBreakerTest {
+
+    private TestLlmServer stub;
+    private int question;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new TestLlmServer();
+    }
+
+    @AfterEach
+    void stop() {
+        stub.close();
+    }
+
+    @Test
+    void opensOnFailuresThenHalfOpensAndCloses() throws Exception {
+        OpenAIChatClient client = newClient(2, 5_000);
+        openBreaker(client);
+
+        // Open: refused without reaching the upstream.
+        long requests = stub.requestCount();
+        assertNull(ask(client));
+        assertEquals(requests, stub.requestCount());
+        assertEquals(1L, breaker(client).get("rejected"));
+
+        stub.setStatus(200);
+        Thread.sleep(200);
+        assertEquals(TestLlmServer.ANSWER, ask(client));
+        assertState(client, "HALF_OPEN");
+        assertEquals(TestLlmServer.ANSWER, ask(client));
+        assertState(client, "CLOSED");
+        assertEquals(1L, breaker(client).get("opens"));
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        OpenAIChatClient client = newClient(2, 5_000);
+        openBreaker(client);
+
+        Thread.sleep(200);
+        assertNull(ask(client));
+        assertState(client, "OPEN");
+        assertEquals(2L, breaker(client).get("opens"));
+
+        long requests = stub.requestCount();
+        assertNull(ask(client));
+        assertEquals(requests, stub.requestCount());
+    }
+
+    @Test
+    void slowSuccessesCountAsFailures() throws Exception {
+        OpenAIChatClient client = newClient(2, 40);
+        stub.setDelay(100);
+        for (int i = 0; i < 4; i++) {
+            // Each answer arrives, just too late.
+            assertEquals(TestLlmServer.ANSWER, ask(client));
+        }
+        assertState(client, "OPEN");
+        assertTrue(String.valueOf(breaker(client).get("lastFailure")).startsWith("slow call"),
+                breaker(client).toString());
+    }
+
+    @Test
+    void resultFromBeforeTheBreakerOpenedIsIgnored() throws Exception {
+        OpenAIChatClient client = newClient(1, 5_000);
+
+        // A call that starts while CLOSED and succeeds well after the breaker has moved on.
+        stub.setDelay(400);
+        CompletableFuture<String> early = TestLlmServer.ask(client, 10_000);
+        Thread.sleep(30);
+        stub.setDelay(0);
+        openBreaker(client);
+
+        // One probe in HALF_OPEN, still on the wire when the early call returns.
+        Thread.sleep(200);
+        stub.setStatus(200);
+        stub.setDelay(1_500);
+        CompletableFuture<String> probe = TestLlmServer.ask(client, 10_001);
+        assertState(client, "HALF_OPEN");
+
+        assertEquals(TestLlmServer.ANSWER, early.join());
+        Thread.sleep(50);
+        // Counted, the early success would have been the one probe needed to close.
+        assertEquals("HALF_OPEN", breaker(client).get("state"));
+
+        assertEquals(TestLlmServer.ANSWER, probe.join());
+        assertState(client, "CLOSED");
+    }
+
+    @Test
+    void staleFailureCannotReopenAClosedBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 10, 2, 0.5, 5_000, 50, 1);
+        long stale = breaker.tryAcquire();
+        breaker.onResult(breaker.tryAcquire(), "HTTP 503", 1_000_000);
+        breaker.onResult(breaker.tryAcquire(), "HTTP 503", 1_000_000);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        Thread.sleep(80);
+        long probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onResult(probe, null, 1_000_000);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onResult(stale, "HTTP 503", 1_000_000);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.stats().get("window"));
+    }
+
+    /** Four 503s: the minimum number of calls, all failed. */
+    private void openBreaker(OpenAIChatClient client) throws Exception {
+        stub.setStatus(503);
+        for (int i = 0; i < 4; i++) {
+            assertNull(ask(client));
+        }
+        assertState(client, "OPEN");
+    }
+
+    /** Breaker only (no limiter): 4 calls minimum, half failing opens it for 150 ms. */
+    private OpenAIChatClient newClient(int probes, long slowCallMs) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("openai.limit.enabled", "false");
+        props.put("openai.breaker.window", "10");
+        props.put("openai.breaker.min-calls", "4");
+        props.put("openai.breaker.failure-rate", "0.5");
+        props.put("openai.breaker.slow-call-ms", Long.toString(slowCallMs));
+        props.put("openai.breaker.open-ms", "150");
+        props.put("openai.breaker.half-open-probes", Integer.toString(probes));
+        return stub.client(props);
+    }
+
+    private String ask(OpenAIChatClient client) {
+        return TestLlmServer.ask(client, ++question).join();
+    }
+
+    private static Map<String, Object> breaker(OpenAIChatClient client) {
+        return TestLlmServer.stats(client, "breaker");
+    }
+
+    private static void assertState(OpenAIChatClient client, String state) throws InterruptedException {
+        assertTrue(TestLlmServer.await(() -> state.equals(breaker(client).get("state"))), breaker(client).toString());
+    }
+}
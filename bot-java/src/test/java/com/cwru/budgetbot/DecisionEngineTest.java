@@ -0,0 +1,336 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * decideAll / decideAllParallel must give decide()'s answer for every row,
+ * with and without the pacing columns, including the edge values the kernels
+ * clamp or special-case (NO_AMOUNT, zero and negative budgets, MAX_CENTS).
+ *
+ * The boundary tests pin decide() itself to the rules it had as double math:
+ * each threshold exactly, and one cent or swipe either side of it.
+ */
+class DecisionEngineTest {
+
+    private static final IntentType[] INTENTS = IntentType.values();
+    private static final SourceType[] SOURCES = SourceType.values();
+
+    private static final long[] EDGE_CENTS = {
+            0, 1, -1, -500, 99, 100, 8_000, Money.MAX_CENTS, Money.MAX_CENTS - 1, -Money.MAX_CENTS,
+            Long.MAX_VALUE, Long.MIN_VALUE + 1,
+    };
+
+    private static final int[] EDGE_SWIPES = {0, 1, -1, 2, 17, 21, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    private final DecisionEngine engine = new DecisionEngine();
+
+    @Test
+    void batchMatchesScalarWithoutPacing() {
+        checkRows(new Random(15), 5_000, false);
+    }
+
+    @Test
+    void batchMatchesScalarWithPacing() {
+        checkRows(new Random(16), 5_000, true);
+    }
+
+    @Test
+    void parallelMatchesScalarAboveSplitThreshold() {
+        // Several times the 16k-row leaf size, so the fork-join path really splits.
+        checkRows(new Random(17), 5 * 16_384 + 7, false);
+        checkRows(new Random(18), 5 * 16_384 + 7, true);
+    }
+
+    @Test
+    void personalPurchaseKeepsATwentyPercentBuffer() {
+        // $100 budget: YES while $20 stays, CAUTION while it fits, NO once it overdraws.
+        assertPersonal(Decision.YES, 10_000, 0, 8_000);
+        assertPersonal(Decision.CAUTION, 10_000, 0, 8_001);
+        assertPersonal(Decision.CAUTION, 10_000, 0, 10_000);
+        assertPersonal(Decision.NO, 10_000, 0, 10_001);
+        assertPersonal(Decision.YES, 10_000, 2_000, 6_000);
+        assertPersonal(Decision.CAUTION, 10_000, 2_000, 6_001);
+        assertPersonal(Decision.NO, 10_000, 2_000, 8_001);
+        // 20% of $100.01 is 2000.2 cents: 2001 left is enough, 2000 is not.
+        assertPersonal(Decision.YES, 10_001, 0, 8_000);
+        assertPersonal(Decision.CAUTION, 10_001, 0, 8_001);
+    }
+
+    @Test
+    void caseCashPurchaseUsesAFifteenthOfTheSemester() {
+        // $150 a semester is $10 a week.
+        assertCaseCash(Decision.YES, 15_000, 0, 800);
+        assertCaseCash(Decision.CAUTION, 15_000, 0, 801);
+        assertCaseCash(Decision.CAUTION, 15_000, 0, 1_000);
+        assertCaseCash(Decision.NO, 15_000, 0, 1_001);
+        assertCaseCash(Decision.YES, 15_000, 200, 600);
+        assertCaseCash(Decision.CAUTION, 15_000, 200, 601);
+        assertCaseCash(Decision.NO, 15_000, 200, 801);
+        // $100 a semester: 20% of the weekly 666.67 cents is 133.33.
+        assertCaseCash(Decision.YES, 10_000, 0, 533);
+        assertCaseCash(Decision.CAUTION, 10_000, 0, 534);
+        assertCaseCash(Decision.CAUTION, 10_000, 0, 666);
+        assertCaseCash(Decision.NO, 10_000, 0, 667);
+    }
+
+    @Test
+    void swipesNeedMoreThanHalfTheWeekLeftForYes() {
+        assertSwipe(Decision.YES, 10, 4);
+        assertSwipe(Decision.CAUTION, 10, 5);
+        assertSwipe(Decision.CAUTION, 10, 9);
+        assertSwipe(Decision.NO, 10, 10);
+        assertSwipe(Decision.NO, 10, 11);
+        assertSwipe(Decision.YES, 10, -3);
+        // Odd week: 5 of 9 left is more than half, 4 is not.
+        assertSwipe(Decision.YES, 9, 4);
+        assertSwipe(Decision.CAUTION, 9, 5);
+        assertSwipe(Decision.CAUTION, 0, 0);
+        assertSwipe(Decision.CAUTION, -1, 0);
+        assertSwipe(Decision.NO, 17, Integer.MAX_VALUE);
+        assertSwipe(Decision.YES, Integer.MAX_VALUE, Integer.MIN_VALUE);
+    }
+
+    @Test
+    void howAmIDoingCutsAtSeventyFiveAndOneOhFivePercent() {
+        // Personal spent against a $100 budget, CaseCash and swipes idle.
+        assertPacing(Decision.YES, IntentType.HOW_AM_I_DOING, 10_000, 7_499, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 7_500, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 10_500, 15_000, 0, 10, 0);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, 10_501, 15_000, 0, 10, 0);
+        // A week of CaseCash times 15 against the semester: $7.50 of a $10 week is 75%.
+        assertPacing(Decision.YES, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 749, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 750, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 1_050, 10, 0);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 1_051, 10, 0);
+        // Swipes used of 20.
+        assertPacing(Decision.YES, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 20, 14);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 20, 15);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 20, 21);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 20, 22);
+        // The worst of the three wins.
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 20, 22);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 7_500, 15_000, 749, 20, 14);
+    }
+
+    @Test
+    void recsCutsAtSeventyAndOneHundredPercent() {
+        assertPacing(Decision.YES, IntentType.RECS, 10_000, 6_999, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.RECS, 10_000, 7_000, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.RECS, 10_000, 10_000, 15_000, 0, 10, 0);
+        assertPacing(Decision.NO, IntentType.RECS, 10_000, 10_001, 15_000, 0, 10, 0);
+        assertPacing(Decision.YES, IntentType.RECS, 10_000, 0, 15_000, 699, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.RECS, 10_000, 0, 15_000, 700, 10, 0);
+        assertPacing(Decision.NO, IntentType.RECS, 10_000, 0, 15_000, 1_001, 10, 0);
+        assertPacing(Decision.YES, IntentType.RECS, 10_000, 0, 15_000, 0, 10, 6);
+        assertPacing(Decision.CAUTION, IntentType.RECS, 10_000, 0, 15_000, 0, 10, 7);
+        assertPacing(Decision.NO, IntentType.RECS, 10_000, 0, 15_000, 0, 10, 11);
+    }
+
+    @Test
+    void missingBudgetsPaceAsOneAndMissingSwipesAsAHalf() {
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 0, 0, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, -10_000, 0, 15_000, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, 10_000, 0, 0, 0, 10, 0);
+        assertPacing(Decision.CAUTION, IntentType.RECS, 0, 0, 15_000, 0, 10, 0);
+        assertPacing(Decision.YES, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, 0, 0, 0);
+        assertPacing(Decision.YES, IntentType.RECS, 10_000, 0, 15_000, 0, -4, 3);
+    }
+
+    @Test
+    void missingZeroAndNegativeAmountsAreCaution() {
+        for (SourceType source : new SourceType[] {SourceType.PERSONAL, SourceType.CASE_CASH}) {
+            for (long amount : new long[] {Money.NO_AMOUNT, 0, -1, -8_000, -Money.MAX_CENTS, Long.MIN_VALUE + 1}) {
+                assertDecision(Decision.CAUTION, buy(source, amount),
+                        BudgetSnapshot.ofCents(10_000, 0, 15_000, 0, 10, 0));
+            }
+        }
+        // Swipes never look at the amount.
+        assertDecision(Decision.YES, buy(SourceType.MEAL_SWIPE, Money.NO_AMOUNT),
+                BudgetSnapshot.ofCents(0, 0, 0, 0, 10, 0));
+    }
+
+    @Test
+    void nonPositiveBudgetsAreCautionAndNegativeSpendingCountsAsZero() {
+        assertPersonal(Decision.CAUTION, 0, 0, 1);
+        assertPersonal(Decision.CAUTION, -10_000, 0, 1);
+        assertPersonal(Decision.CAUTION, -10_000, -50_000, 1);
+        assertCaseCash(Decision.CAUTION, 0, 0, 1);
+        assertCaseCash(Decision.CAUTION, -15_000, 0, 1);
+        assertPersonal(Decision.YES, 10_000, -5_000, 8_000);
+        assertPersonal(Decision.CAUTION, 10_000, -5_000, 8_001);
+        assertCaseCash(Decision.YES, 15_000, -5_000, 800);
+        assertCaseCash(Decision.CAUTION, 15_000, -5_000, 801);
+        assertPacing(Decision.YES, IntentType.HOW_AM_I_DOING, 10_000, -50_000, 15_000, -50_000, 10, 0);
+    }
+
+    @Test
+    void nanDollarsBecomeZeroOrTheRequestDefaults() {
+        // Straight from dollars, NaN and infinities are 0: no budget, or nothing spent.
+        assertPersonalDollars(Decision.CAUTION, Double.NaN, 0, 5_00);
+        assertPersonalDollars(Decision.CAUTION, Double.POSITIVE_INFINITY, 0, 5_00);
+        assertPersonalDollars(Decision.YES, 100, Double.NaN, 80_00);
+        assertPersonalDollars(Decision.CAUTION, 100, Double.NaN, 80_01);
+        assertPersonalDollars(Decision.NO, 100, Double.NEGATIVE_INFINITY, 100_01);
+
+        // In a request, a NaN field is a missing one.
+        AssistantRequest request = new AssistantRequest();
+        request.setWeeklyBudgetPersonal(Double.NaN);
+        request.setSpentThisWeekPersonal(Double.NaN);
+        request.setCaseCashTotalSemester(Double.NaN);
+        request.setCaseCashSpentThisWeek(Double.NaN);
+        BudgetSnapshot snap = BudgetSnapshot.from(request);
+        assertEquals(8_000, snap.getWeeklyBudgetPersonalCents());
+        assertEquals(3_500, snap.getSpentThisWeekPersonalCents());
+        assertEquals(30_000, snap.getCaseCashTotalSemesterCents());
+        assertEquals(1_500, snap.getCaseCashSpentThisWeekCents());
+        // $80 - $35 leaves $45: $29 keeps the $16 buffer, $29.01 does not, $45.01 overdraws.
+        assertDecision(Decision.YES, buy(SourceType.PERSONAL, 2_900), snap);
+        assertDecision(Decision.CAUTION, buy(SourceType.PERSONAL, 2_901), snap);
+        assertDecision(Decision.NO, buy(SourceType.PERSONAL, 4_501), snap);
+    }
+
+    @Test
+    void amountsAtAndPastMaxCents() {
+        long max = Money.MAX_CENTS;
+        assertPersonal(Decision.YES, max, 0, max / 5 * 4);
+        assertPersonal(Decision.CAUTION, max, 0, max / 5 * 4 + 1);
+        assertPersonal(Decision.CAUTION, max, 0, max);
+        assertPersonal(Decision.NO, max, 1, max);
+        assertPersonal(Decision.NO, max, max, max);
+        assertPersonal(Decision.NO, 10_000, 0, max);
+        // Past MAX_CENTS everything is clamped to it first.
+        assertPersonal(Decision.CAUTION, Long.MAX_VALUE, 0, Long.MAX_VALUE);
+        assertPersonal(Decision.NO, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertPersonal(Decision.NO, 10_000, 0, Long.MAX_VALUE);
+
+        assertCaseCash(Decision.YES, max, 0, 1);
+        assertCaseCash(Decision.NO, max, 0, max);
+        assertCaseCash(Decision.NO, max, max, max);
+        assertCaseCash(Decision.NO, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertCaseCash(Decision.NO, 15_000, 0, Long.MAX_VALUE);
+
+        assertPacing(Decision.CAUTION, IntentType.HOW_AM_I_DOING, max, max, max, 0, 10, 0);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, max, 15_000, 0, 10, 0);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, max, 0, max, max, 10, 0);
+        assertPacing(Decision.NO, IntentType.HOW_AM_I_DOING, 10_000, 0, 15_000, Long.MAX_VALUE, 10, 0);
+        assertPacing(Decision.YES, IntentType.RECS, Long.MAX_VALUE, 0, Long.MAX_VALUE, 0, 10, 0);
+        assertPacing(Decision.NO, IntentType.RECS, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE,
+                Long.MAX_VALUE, 10, 0);
+    }
+
+    private void assertPersonal(Decision expected, long budget, long spent, long amount) {
+        assertDecision(expected, buy(SourceType.PERSONAL, amount), BudgetSnapshot.ofCents(budget, spent, 0, 0, 0, 0));
+    }
+
+    private void assertPersonalDollars(Decision expected, double budget, double spent, long amount) {
+        assertDecision(expected, buy(SourceType.PERSONAL, amount), new BudgetSnapshot(budget, spent, 0, 0, 0, 0));
+    }
+
+    private void assertCaseCash(Decision expected, long semesterTotal, long spentWeek, long amount) {
+        assertDecision(expected, buy(SourceType.CASE_CASH, amount),
+                BudgetSnapshot.ofCents(0, 0, semesterTotal, spentWeek, 0, 0));
+    }
+
+    private void assertSwipe(Decision expected, int total, int used) {
+        assertDecision(expected, buy(SourceType.MEAL_SWIPE, 1), BudgetSnapshot.ofCents(0, 0, 0, 0, total, used));
+    }
+
+    private void assertPacing(Decision expected, IntentType intent, long budget, long spent,
+                              long ccTotal, long ccSpentWeek, int swipesTotal, int swipesUsed) {
+        BudgetSnapshot snap = BudgetSnapshot.ofCents(budget, spent, ccTotal, ccSpentWeek, swipesTotal, swipesUsed);
+        for (SourceType source : SOURCES) {
+            assertDecision(expected, new PurchaseQuery(intent, null, Money.NO_AMOUNT, source, "", false), snap);
+        }
+    }
+
+    /** decide() gives the expected answer, and decideAll agrees on the same row. */
+    private void assertDecision(Decision expected, PurchaseQuery q, BudgetSnapshot snap) {
+        assertSame(expected, engine.decide(q, snap), describe("decide", q, snap));
+        byte[] out = new byte[1];
+        engine.decideAll(DecisionColumns.of(new PurchaseQuery[] {q}, new BudgetSnapshot[] {snap}), out);
+        assertEquals(expected.ordinal(), out[0], describe("decideAll", q, snap));
+    }
+
+    private static PurchaseQuery buy(SourceType source, long amount) {
+        return new PurchaseQuery(IntentType.CAN_I_BUY, null, amount, source, "", false);
+    }
+
+    private void checkRows(Random random, int n, boolean paced) {
+        PurchaseQuery[] queries = new PurchaseQuery[n];
+        BudgetSnapshot[] snaps = new BudgetSnapshot[n];
+        byte[] expected = new byte[n];
+        for (int i = 0; i < n; i++) {
+            queries[i] = randomQuery(random);
+            snaps[i] = randomSnapshot(random, paced);
+            expected[i] = (byte) engine.decide(queries[i], snaps[i]).ordinal();
+        }
+
+        DecisionColumns columns = paced ? DecisionColumns.of(queries, snaps) : withoutPacing(queries, snaps);
+        byte[] serial = new byte[n];
+        engine.decideAll(columns, serial);
+        byte[] parallel = new byte[n];
+        engine.decideAllParallel(columns, parallel);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected[i], serial[i], describe("decideAll", queries[i], snaps[i]));
+            assertEquals(expected[i], parallel[i], describe("decideAllParallel", queries[i], snaps[i]));
+        }
+    }
+
+    /** The nine-column form, which paces on this week's numbers (snapshots here carry no Pacing). */
+    private static DecisionColumns withoutPacing(PurchaseQuery[] queries, BudgetSnapshot[] snaps) {
+        DecisionColumns all = DecisionColumns.of(queries, snaps);
+        return new DecisionColumns(all.intents, all.sources, all.amountCents,
+                all.weeklyBudgetPersonalCents, all.spentThisWeekPersonalCents,
+                all.caseCashTotalSemesterCents, all.caseCashSpentThisWeekCents,
+                all.mealSwipesWeeklyTotal, all.mealSwipesUsedThisWeek);
+    }
+
+    private static PurchaseQuery randomQuery(Random random) {
+        IntentType intent = INTENTS[random.nextInt(INTENTS.length)];
+        SourceType source = SOURCES[random.nextInt(SOURCES.length)];
+        long amount = random.nextInt(5) == 0 ? Money.NO_AMOUNT : cents(random);
+        return new PurchaseQuery(intent, null, amount, source, "", false);
+    }
+
+    private static BudgetSnapshot randomSnapshot(Random random, boolean paced) {
+        BudgetSnapshot snap = BudgetSnapshot.ofCents(cents(random), cents(random), cents(random), cents(random),
+                swipes(random), swipes(random));
+        if (!paced || random.nextInt(4) == 0) {
+            return snap;
+        }
+        // Half with a configured semester (pace against expected-by-now), half rolling only.
+        boolean semester = random.nextBoolean();
+        int semesterDays = semester ? 1 + random.nextInt(120) : 0;
+        int elapsed = semester ? 1 + random.nextInt(semesterDays) : 0;
+        return snap.withPacing(new Pacing(cents(random), cents(random), swipes(random),
+                cents(random), cents(random), swipes(random), 1 + random.nextInt(7),
+                cents(random), cents(random), swipes(random), elapsed, semesterDays));
+    }
+
+    /** Mostly everyday amounts, often an edge value, sometimes anything at all. */
+    private static long cents(Random random) {
+        int pick = random.nextInt(10);
+        if (pick < 3) return EDGE_CENTS[random.nextInt(EDGE_CENTS.length)];
+        if (pick == 3) return random.nextLong();
+        return random.nextInt(50_000);
+    }
+
+    private static int swipes(Random random) {
+        return random.nextInt(4) == 0 ? EDGE_SWIPES[random.nextInt(EDGE_SWIPES.length)] : random.nextInt(25);
+    }
+
+    private static Supplier<String> describe(String path, PurchaseQuery q, BudgetSnapshot s) {
+        return () -> path + ": " + q.getIntent() + "/" + q.getSource() + " amount=" + q.getAmountCents()
+                + " budget=" + s.getWeeklyBudgetPersonalCents() + " spent=" + s.getSpentThisWeekPersonalCents()
+                + " cc=" + s.getCaseCashTotalSemesterCents() + "/" + s.getCaseCashSpentThisWeekCents()
+                + " swipes=" + s.getMealSwipesUsedThisWeek() + "/" + s.getMealSwipesWeeklyTotal()
+                + " pacing=" + (s.getPacing() != null);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fuzzy merchant matching against the built-in catalog: typos still find
+ * the merchant, everyday words a letter away from a short alias do not.
+ */
+class FuzzyMatcherTest {
+
+    private final MerchantLexicon lexicon = new MerchantLexicon();
+
+    @Test
+    void commonWordsNearShortAliasesAreNotMerchants() {
+        // One edit from "daves", "dining" or "dunkin".
+        List<String> questions = List.of(
+                "can i buy something that saves money",
+                "can i afford to go see the waves",
+                "can i spend $20 on dates this weekend",
+                "can i buy gear for the caves trip",
+                "can i buy dives for my swim team",
+                "should i buy doves for the party",
+                "can i spend $40 on mining gear",
+                "can i buy a lining for my coat",
+                "can i spend on a few raves this month",
+                "is it ok to spend on junkin stuff");
+        for (String question : questions) {
+            Optional<MerchantLexicon.Match> match = lexicon.find(question);
+            assertTrue(match.isEmpty(), () -> question + " -> " + match.get().canonicalName());
+        }
+    }
+
+    @Test
+    void typosStillFindTheMerchant() {
+        assertFuzzy("can i get chipolte for $12", "Chipotle");
+        assertFuzzy("can i buy starbuck", "Starbucks");
+        assertFuzzy("can i go to trader joe", "Trader Joe's");
+        assertFuzzy("can i get a subwya sandwich", "Subway");
+        assertFuzzy("can i eat at the dinning hall", "Dining Hall");
+        assertFuzzy("potbely for lunch?", "Potbelly");
+    }
+
+    private void assertFuzzy(String question, String merchant) {
+        Optional<MerchantLexicon.Match> match = lexicon.find(question);
+        assertTrue(match.isPresent(), question);
+        assertEquals(merchant, match.get().canonicalName(), question);
+        assertTrue(match.get().score < 1, question);
+    }
+}
@@ -0,0 +1,151 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The phrase automaton and the single tokenizing pass must classify every
+ * question exactly like the contains() / startsWith() chains they replaced:
+ * intent (with its priority), cheapness and payment source.
+ */
+class IntentParserTest {
+
+    // Whole phrases, pieces of them, case and spacing variants, and non-ASCII
+    // chars that lowercase onto phrase letters (Kelvin sign, dotted capital I).
+    private static final String[] PIECES = {
+            "how am i doing", "how'm i doing", "on my budget", "on track", "over budget",
+            "where should i eat", "where can i eat", "any recommendations", "what should i get for food",
+            "where can i get groceries", "where can i get food", "somewhere cheap", "cheap place to eat",
+            "can i", "is it okay if", "okay to spend", "is it ok if i spend", "should i buy", "should i spend",
+            "will i stay on track if i spend",
+            "cheap", "tight budget", "save money", "broke",
+            "casecash", "case cash", "meal swipe", "swipe", "dining", "meal",
+            "how am", "i doing", "can", " i", "i ", "on", "track", "budget", "where", "eat", "okay", "spend",
+            "case", "cash", "cas", "swip", "mea", "din",
+            "CAN I", "On Track", "HOW AM I DOING", "Case Cash", "MEAL SWIPE",
+            " ", "  ", "\t", "\n", "'", "\u2019", "?", ",", "x", "$5", "12 bucks", "starbucks", "leutner",
+            "trac\u212a", "\u0130", "c\u0130", "\u00e9", "\u00a0", "\ud83c\udf55",
+    };
+
+    private final IntentParser parser = new IntentParser(new MerchantLexicon(), new MoneyParser(), new SwipeParser());
+
+    @Test
+    void intentPriorityIsHowThenRecsThenCanIBuy() {
+        assertIntent(IntentType.HOW_AM_I_DOING, "can i buy this and how am i doing");
+        assertIntent(IntentType.HOW_AM_I_DOING, "will i stay on track if i spend $5");
+        assertIntent(IntentType.RECS, "can i find somewhere cheap");
+        assertIntent(IntentType.RECS, "should i buy lunch or where should i eat");
+        assertIntent(IntentType.CAN_I_BUY, "should i buy starbucks for $5");
+        assertIntent(IntentType.UNKNOWN, "what is the weather");
+    }
+
+    @Test
+    void anchoredPhrasesOnlyCountAtTheStart() {
+        assertIntent(IntentType.CAN_I_BUY, "can i get coffee");
+        assertIntent(IntentType.CAN_I_BUY, "   Can I get coffee");
+        assertIntent(IntentType.CAN_I_BUY, "is it okay if i get coffee");
+        assertIntent(IntentType.UNKNOWN, "so can i get coffee");
+        assertIntent(IntentType.UNKNOWN, "tell me: is it okay if i get coffee");
+        assertIntent(IntentType.UNKNOWN, "scan it");
+        // "can in" starts with "can i", as it always did.
+        assertIntent(IntentType.CAN_I_BUY, "can interest wait");
+    }
+
+    @Test
+    void nonAsciiQuestionsLowercaseLikeStringToLowerCase() {
+        // U+212A KELVIN SIGN lowercases to 'k', U+0130 to "i" plus a combining dot.
+        assertIntent(IntentType.HOW_AM_I_DOING, "am i on trac\u212a?");
+        assertIntent(IntentType.CAN_I_BUY, "CAN \u0130 get caf\u00e9 food");
+        assertIntent(IntentType.UNKNOWN, "\u00e9 can i");
+        assertEquals(SourceType.CASE_CASH, parser.parse("caf\u00e9 with CASE CASH").getSource());
+    }
+
+    @Test
+    void randomCorpusMatchesBaseline() {
+        Random random = new Random(511);
+        for (int i = 0; i < 20_000; i++) {
+            int n = random.nextInt(8);
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < n; k++) {
+                sb.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            String s = sb.toString();
+            String lower = s.trim().toLowerCase(Locale.ROOT);
+            PurchaseQuery q = parser.parse(s);
+
+            assertEquals(baselineIntent(lower), q.getIntent(), s);
+            assertEquals(baselineCheap(lower), q.isCheapPreference(), s);
+            assertEquals(baselineSource(lower, q.getMerchant()), q.getSource(), s);
+            // The standalone scan and the tokenizing pass agree on every category.
+            assertEquals(PhraseMatcher.defaults().scan(lower), QuestionTokens.of(s).phrases(), s);
+        }
+    }
+
+    private void assertIntent(IntentType expected, String question) {
+        assertEquals(baselineIntent(question.trim().toLowerCase(Locale.ROOT)), expected, question);
+        assertEquals(expected, parser.parse(question).getIntent(), question);
+    }
+
+    // ---------- IntentParser / SwipeParser before the phrase table ----------
+
+    private static IntentType baselineIntent(String lower) {
+        if (lower.contains("how am i doing") ||
+                lower.contains("how'm i doing") ||
+                lower.contains("how am i doing on my budget") ||
+                lower.contains("on my budget") ||
+                lower.contains("on track") ||
+                lower.contains("over budget")) {
+            return IntentType.HOW_AM_I_DOING;
+        }
+        if (lower.contains("where should i eat") ||
+                lower.contains("where can i eat") ||
+                lower.contains("any recommendations") ||
+                lower.contains("what should i get for food") ||
+                lower.contains("where can i get groceries") ||
+                lower.contains("where can i get food") ||
+                lower.contains("somewhere cheap") ||
+                lower.contains("cheap place to eat")) {
+            return IntentType.RECS;
+        }
+        if (lower.startsWith("can i") ||
+                lower.startsWith("is it okay if") ||
+                lower.contains("okay to spend") ||
+                lower.contains("is it ok if i spend") ||
+                lower.contains("should i buy") ||
+                lower.contains("should i spend") ||
+                lower.contains("will i stay on track if i spend")) {
+            return IntentType.CAN_I_BUY;
+        }
+        return IntentType.UNKNOWN;
+    }
+
+    private static boolean baselineCheap(String lower) {
+        return lower.contains("cheap") ||
+                lower.contains("tight budget") ||
+                lower.contains("save money") ||
+                lower.contains("broke");
+    }
+
+    private static SourceType baselineSource(String lower, String merchant) {
+        if (lower.contains("casecash") || lower.contains("case cash")) {
+            return SourceType.CASE_CASH;
+        }
+        if (lower.contains("meal swipe") ||
+                lower.contains("swipe") && (lower.contains("dining") || lower.contains("meal"))) {
+            return SourceType.MEAL_SWIPE;
+        }
+        if (merchant != null) {
+            String m = merchant.toLowerCase();
+            if (m.contains("dining hall") ||
+                    m.contains("north dining") ||
+                    m.contains("south dining")) {
+                return SourceType.MEAL_SWIPE;
+            }
+        }
+        return SourceType.PERSONAL;
+    }
+}
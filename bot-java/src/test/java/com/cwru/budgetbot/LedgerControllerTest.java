@@ -0,0 +1,107 @@
+package com.cwru.budgetbot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Only the server holding ledger.api-token may write to or read a user's
+ * ledger, directly or through /assistant/ask's "userId".
+ */
+class LedgerControllerTest {
+
+    private static final String TOKEN = "test-ledger-token";
+    private static final String SPEND = "{\"userId\":42,\"kind\":\"PERSONAL\",\"amount\":100}";
+    // $50 budget in the request; with the ledger's $100 spent it is a NO.
+    private static final String ASK = "{\"question\":\"can i buy starbucks for $5\",\"userId\":42,"
+            + "\"weeklyBudgetPersonal\":50,\"spentThisWeekPersonal\":0}";
+
+    @TempDir
+    Path dir;
+
+    private AnnotationConfigApplicationContext app;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void start() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("ledger.enabled", "true");
+        props.put("ledger.dir", dir.toString());
+        props.put("ledger.segment-bytes", "4096");
+        props.put("ledger.api-token", TOKEN);
+        props.put("merchants.watch", "false");
+        app = new AnnotationConfigApplicationContext();
+        app.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", props));
+        app.register(MerchantLexicon.class, MoneyParser.class, SwipeParser.class, IntentParser.class,
+                DecisionEngine.class, BudgetBotResponder.class, LedgerService.class, OpenAIChatClient.class,
+                AssistantController.class, LedgerController.class);
+        app.refresh();
+        mvc = MockMvcBuilders.standaloneSetup(app.getBean(LedgerController.class),
+                app.getBean(AssistantController.class)).build();
+    }
+
+    @AfterEach
+    void stop() {
+        app.close();
+    }
+
+    @Test
+    void writesNeedTheServerToken() throws Exception {
+        mvc.perform(spend()).andExpect(status().isUnauthorized());
+        mvc.perform(spend().header(LedgerService.TOKEN_HEADER, "wrong")).andExpect(status().isUnauthorized());
+        mvc.perform(spend().header(LedgerService.TOKEN_HEADER, TOKEN)).andExpect(status().isOk());
+        assertEquals(1L, app.getBean(LedgerService.class).stats().get("entries"));
+    }
+
+    @Test
+    void snapshotReadsNeedTheServerToken() throws Exception {
+        mvc.perform(spend().header(LedgerService.TOKEN_HEADER, TOKEN)).andExpect(status().isOk());
+
+        mvc.perform(get("/ledger/42/snapshot")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/ledger/42/snapshot").header(LedgerService.TOKEN_HEADER, "")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/ledger/42/snapshot").header(LedgerService.TOKEN_HEADER, TOKEN)).andExpect(status().isOk());
+    }
+
+    @Test
+    void askIgnoresUserIdWithoutTheServerToken() throws Exception {
+        mvc.perform(spend().header(LedgerService.TOKEN_HEADER, TOKEN)).andExpect(status().isOk());
+
+        // A browser naming user 42 gets its own numbers back, not the ledger's.
+        assertEquals("YES", ask(post("/assistant/ask")).path("decision").asText());
+        assertEquals("YES", ask(post("/assistant/ask").header(LedgerService.TOKEN_HEADER, "wrong"))
+                .path("decision").asText());
+        assertEquals("NO", ask(post("/assistant/ask").header(LedgerService.TOKEN_HEADER, TOKEN))
+                .path("decision").asText());
+    }
+
+    private static MockHttpServletRequestBuilder spend() {
+        return post("/ledger/transactions").contentType(MediaType.APPLICATION_JSON).content(SPEND);
+    }
+
+    private JsonNode ask(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(ASK)).andReturn();
+        String json = mvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readTree(json);
+    }
+}
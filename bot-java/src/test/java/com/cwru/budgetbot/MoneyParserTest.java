@@ -0,0 +1,166 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The hand-written scanner must find exactly the spans the original regex
+ * found, in cents instead of doubles; parse() then picks the most confident.
+ */
+class MoneyParserTest {
+
+    // MoneyParser before the scanner rewrite.
+    private static final Pattern BASELINE =
+            Pattern.compile("(\\$?)(\\d+(?:\\.\\d{1,2})?)\\s*(dollars?|bucks?)?", Pattern.CASE_INSENSITIVE);
+
+    private static final BigInteger MAX_WHOLE_DOLLARS = BigInteger.valueOf(Long.MAX_VALUE / 100 - 1);
+
+    // Digits, separators and unit words in every case, plus look-alikes the
+    // regex does not accept: non-ASCII digits and spaces, the Kelvin sign in "bucks"
+    // (which lowercases to a plain k), a capital that lowercases to two chars.
+    private static final String[] PIECES = {
+            "0", "1", "2", "5", "9", "12", "007", "99999999999999999999", ".", "..", ",", "$", "$$",
+            " ", "  ", "\t", "\n", "\r", "\u000B", "\f", "\u00a0", "\u2003",
+            "dollar", "dollars", "DOLLARS", "Dollar", "buck", "bucks", "BuCkS", "doll", "buc", "s", "S",
+            "buc\u212as", "\u0661", "\uff15", "\u00b2",
+            "at", "Chipotle", "times", "for", "can i buy", "x", "-", "?", "\u00e9", "\u0130", "\ud83c\udf55",
+    };
+
+    private final MoneyParser parser = new MoneyParser();
+
+    @Test
+    void dollarSignBeatsABareCountLaterInTheQuestion() {
+        List<MoneyParser.Result> all = parser.parseAll("$12 at Chipotle 2 times");
+        assertEquals(2, all.size());
+        assertSpan(all.get(0), 1200, "$12 ", 0, 4, MoneyParser.Confidence.DOLLAR_SIGN);
+        assertSpan(all.get(1), 200, "2 ", 16, 18, MoneyParser.Confidence.BARE_NUMBER);
+        assertSpan(parser.parse("$12 at Chipotle 2 times"), 1200, "$12 ", 0, 4, MoneyParser.Confidence.DOLLAR_SIGN);
+        // The old parse() took the first match, so "2" won here.
+        assertEquals(1200, parser.parse("2 times at Chipotle for $12").cents);
+    }
+
+    @Test
+    void aThirdDecimalStartsANewSpan() {
+        List<MoneyParser.Result> all = parser.parseAll("5.123");
+        assertEquals(2, all.size());
+        assertSpan(all.get(0), 512, "5.12", 0, 4, MoneyParser.Confidence.BARE_NUMBER);
+        assertSpan(all.get(1), 300, "3", 4, 5, MoneyParser.Confidence.BARE_NUMBER);
+        assertEquals(550, parser.parse("5.5").cents);
+        assertEquals(5, parser.parse("0.05").cents);
+        assertEquals(500, parser.parse("5.").cents);
+    }
+
+    @Test
+    void longDigitRunsSaturateInsteadOfWrapping() {
+        long maxWhole = Long.MAX_VALUE / 100 - 1;
+        assertEquals(maxWhole * 100 + 99, parser.parse(maxWhole + ".99").cents);
+        assertEquals(Long.MAX_VALUE, parser.parse((maxWhole + 1) + " dollars").cents);
+        assertEquals(Long.MAX_VALUE, parser.parse("$99999999999999999999999999999999.99").cents);
+        // Leading zeros are not digits of magnitude.
+        assertEquals(1234, parser.parse("0000000000000000000000000012.34").cents);
+    }
+
+    @Test
+    void parsePrefersDollarSignThenUnitWordThenLeftmost() {
+        assertEquals(300, parser.parse("2 times 5 bucks $3").cents);
+        assertEquals(500, parser.parse("2 times 5 bucks 3 dollars").cents);
+        assertEquals(200, parser.parse("2 or 5").cents);
+        assertEquals(400, parser.parse("$4 or $5 dollars").cents);
+        assertEquals(MoneyParser.Confidence.DOLLAR_SIGN, parser.parse("$7 bucks").confidence);
+        assertNull(parser.parse("no numbers here"));
+        assertNull(parser.parse((String) null));
+        assertEquals(List.of(), parser.parseAll((String) null));
+    }
+
+    @Test
+    void randomCorpusMatchesBaseline() {
+        Random random = new Random(413);
+        for (int i = 0; i < 20_000; i++) {
+            String s = (i % 3 == 0) ? randomAscii(random) : randomPieces(random);
+            List<MoneyParser.Result> all = parser.parseAll(s);
+            assertEquals(baseline(s), describe(all), s);
+            // IntentParser used to run the regex over the trimmed, lowercased question;
+            // QuestionTokens scans that too (keeping the typed case of ASCII questions).
+            assertEquals(lowered(baseline(s.trim().toLowerCase(Locale.ROOT))),
+                    lowered(describe(parser.parseAll(QuestionTokens.of(s)))), s);
+
+            MoneyParser.Result best = parser.parse(s);
+            assertEquals(describe(mostConfident(all)), describe(best == null ? List.of() : List.of(best)), s);
+        }
+    }
+
+    /** The regex's matches, as cents with the scanner's saturation, in describe() form. */
+    private static List<String> baseline(String s) {
+        List<String> out = new ArrayList<>();
+        Matcher m = BASELINE.matcher(s);
+        while (m.find()) {
+            String number = m.group(2);
+            int dot = number.indexOf('.');
+            BigInteger whole = new BigInteger(dot < 0 ? number : number.substring(0, dot));
+            String decimals = dot < 0 ? "" : (number.substring(dot + 1) + "0").substring(0, 2);
+            long cents = whole.compareTo(MAX_WHOLE_DOLLARS) > 0 ? Long.MAX_VALUE
+                    : whole.longValueExact() * 100 + (decimals.isEmpty() ? 0 : Integer.parseInt(decimals));
+            MoneyParser.Confidence confidence = !m.group(1).isEmpty() ? MoneyParser.Confidence.DOLLAR_SIGN
+                    : m.group(3) != null ? MoneyParser.Confidence.UNIT_WORD : MoneyParser.Confidence.BARE_NUMBER;
+            out.add(m.start() + ".." + m.end() + " " + m.group() + " " + cents + " " + confidence);
+        }
+        return out;
+    }
+
+    private static List<String> describe(List<MoneyParser.Result> results) {
+        List<String> out = new ArrayList<>();
+        for (MoneyParser.Result r : results) {
+            out.add(r.start + ".." + r.end + " " + r.rawText + " " + r.cents + " " + r.confidence);
+        }
+        return out;
+    }
+
+    private static List<String> lowered(List<String> spans) {
+        return spans.stream().map(span -> span.toLowerCase(Locale.ROOT)).toList();
+    }
+
+    private static List<MoneyParser.Result> mostConfident(List<MoneyParser.Result> all) {
+        MoneyParser.Result best = null;
+        for (MoneyParser.Result r : all) {
+            if (best == null || r.confidence.compareTo(best.confidence) > 0) best = r;
+        }
+        return best == null ? List.of() : List.of(best);
+    }
+
+    private static String randomAscii(Random random) {
+        int n = random.nextInt(30);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append((char) random.nextInt(0x80));
+        }
+        return sb.toString();
+    }
+
+    private static String randomPieces(Random random) {
+        int n = random.nextInt(12);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void assertSpan(MoneyParser.Result r, long cents, String raw, int start, int end,
+                                   MoneyParser.Confidence confidence) {
+        assertEquals(cents, r.cents);
+        assertEquals(raw, r.rawText);
+        assertEquals(start, r.start);
+        assertEquals(end, r.end);
+        assertEquals(confidence, r.confidence);
+    }
+}
@@ -0,0 +1,98 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The single-pass normalize must give exactly what the original
+ * regex chain gave, for ASCII and Unicode input alike.
+ */
+class NormalizerTest {
+
+    // Pieces the random corpus is built from: plain ASCII, whitespace and punctuation,
+    // precomposed and combining accents, compatibility forms NFKD folds to ASCII,
+    // letters with no ASCII form, astral characters and lone surrogates.
+    private static final String[] PIECES = {
+            "a", "Z", "m", "7", "0", " ", "  ", "\t", "\n", "\r\n", "\u000B", "\f",
+            "'", "\u2019", "\u2018", "\"", "$", ".", ",", "!", "?", "-", "_", "/", "&", "%", "#",
+            "\u00e9", "\u00c9", "\u00f1", "\u00fc", "\u00c5", "\u00e7", "e\u0301", "A\u030a", "\u022b",
+            "\u0301", "\u20dd", "\u0903",
+            "\ufb01", "\uff21", "\uff4d", "\uff11", "\u2460", "\u00bd", "\u212a", "\u2126", "\u0130", "\u1e9e",
+            "\u00a0", "\u2003", "\u3000", "\u200b",
+            "\u00df", "\u00f8", "\u0142", "\u03a3", "\u03c3", "\u0436", "\u4e2d", "\u00aa",
+            "\ud835\udc00", "\ud83c\udf55", "\ud800", "\udc00",
+            "Starbucks", "Dave's", "CASE CASH", "caf\u00e9", "L\u00e9utner", "$12.50",
+    };
+
+    private static final String[] FIXED = {
+            null, "", " ", "   ", "already normalized", "Can I buy Starbucks for $5?",
+            "How much CaseCash do I have left\u2019", "Dave\u2019s  Market!!", "  \t caf\u00e9 \n",
+            "na\u00efve re\u0301sume\u0301", "\uff33\uff54\uff41\uff52\uff42\uff55\uff43\uff4b\uff53", "\ufb01ve \ufb02ags",
+    };
+
+    @Test
+    void fixedCasesMatchBaseline() {
+        for (String s : FIXED) {
+            assertEquals(baseline(s), Normalizer.normalize(s), () -> describe(s));
+        }
+    }
+
+    @Test
+    void randomCorpusMatchesBaseline() {
+        Random random = new Random(395);
+        for (int i = 0; i < 20_000; i++) {
+            // Every third string is pure ASCII, to cover the path that skips NFKD.
+            String s = (i % 3 == 0) ? randomAscii(random) : randomMixed(random);
+            assertEquals(baseline(s), Normalizer.normalize(s), () -> describe(s));
+        }
+    }
+
+    private static String randomAscii(Random random) {
+        int n = random.nextInt(40);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append((char) random.nextInt(0x80));
+        }
+        return sb.toString();
+    }
+
+    private static String randomMixed(Random random) {
+        int n = random.nextInt(16);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Normalizer.normalize as it was before the single-pass rewrite. The
+     * one change is Locale.ROOT for toLowerCase, so that the test does not
+     * depend on the JVM's default locale.
+     */
+    private static String baseline(String s) {
+        if (s == null) return "";
+        String t = java.text.Normalizer.normalize(s, java.text.Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")       // strip accents
+                .toLowerCase(Locale.ROOT)
+                .replace("\u2019", "'")
+                .replaceAll("[^a-z0-9\\s]", " ") // drop punctuation to spaces
+                .replaceAll("\\s+", " ")         // collapse spaces
+                .trim();
+        return t;
+    }
+
+    private static String describe(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        s.codePoints().forEach(cp -> {
+            if (cp >= 0x20 && cp < 0x7f) sb.appendCodePoint(cp);
+            else sb.append(String.format("\\u%04x", cp));
+        });
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.cwru.budgetbot;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The real client against {@link TestLlmServer}: every breaker and limiter
+ * permit it takes has to come back, however the call ends.
+ */
+class OpenAIChatClientTest {
+
+    private TestLlmServer stub;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new TestLlmServer();
+    }
+
+    @AfterEach
+    void stop() {
+        stub.close();
+    }
+
+    @Test
+    void hedgedCallsReleaseEveryPermit() throws Exception {
+        // Fast median with a slow tail, so hedges go out and their losers get cancelled
+        // at every stage of the exchange.
+        stub.setDelay(5);
+        stub.setTail(0.3, 80);
+        Map<String, Object> props = new HashMap<>();
+        props.put("openai.hedge.enabled", "true");
+        props.put("openai.hedge.percentile", "0.5");
+        props.put("openai.hedge.min-samples", "20");
+        props.put("openai.hedge.min-delay-ms", "1");
+        props.put("openai.hedge.budget", "1.0");
+        props.put("openai.hedge.max-burst", "1000");
+        props.put("openai.limit.initial", "200");
+        props.put("openai.limit.max", "400");
+        OpenAIChatClient client = stub.client(props);
+
+        for (int wave = 0; wave < 6; wave++) {
+            List<CompletableFuture<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                calls.add(TestLlmServer.ask(client, wave * 50 + i + 1));
+            }
+            CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        assertTrue(((Number) TestLlmServer.stats(client, "hedge").get("hedges")).longValue() > 0,
+                client.stats().toString());
+        assertTrue(TestLlmServer.await(() -> inFlight(client) == 0), client.stats().toString());
+        assertEquals("CLOSED", TestLlmServer.stats(client, "breaker").get("state"));
+    }
+
+    @Test
+    void promptsWithAStudentsFiguresAreNeverBatched() throws Exception {
+        stub.setDelay(20);
+        // Without the cache every prompt carries the asker's own figures.
+        OpenAIChatClient noCache = stub.client(Map.of("openai.batch.enabled", "true"));
+        assertEquals(false, TestLlmServer.stats(noCache, "batch").get("enabled"));
+        askTogether(noCache, 1, 8);
+
+        // With it, a bypassed intent still gets the per-student prompt.
+        OpenAIChatClient bypass = stub.client(Map.of("openai.batch.enabled", "true",
+                "openai.cache.enabled", "true", "openai.cache.bypass-intents", "CAN_I_BUY"));
+        askTogether(bypass, 101, 8);
+        assertEquals(0L, TestLlmServer.stats(bypass, "batch").get("items"));
+        assertEquals(16L, stub.requestCount());
+    }
+
+    @Test
+    void failedCallsWarnOnceNotPerCall() throws Exception {
+        stub.setStatus(500);
+        OpenAIChatClient client = stub.client(Map.of("openai.breaker.enabled", "false"));
+        Logger logger = (Logger) LoggerFactory.getLogger(OpenAIChatClient.class);
+        ListAppender<ILoggingEvent> logs = new ListAppender<>();
+        logs.start();
+        logger.addAppender(logs);
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertNull(TestLlmServer.ask(client, i + 1).join());
+            }
+        } finally {
+            logger.detachAppender(logs);
+        }
+        List<ILoggingEvent> warnings = logs.list.stream().filter(e -> e.getLevel() == Level.WARN).toList();
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).getFormattedMessage().contains("HTTP 500"), warnings.toString());
+    }
+
+    @Test
+    void startupDoesNotWaitForTheWarmUp() throws Exception {
+        // Accepts connections (into the backlog) and never answers.
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("openai.base-url", "http://127.0.0.1:" + silent.getLocalPort() + "/v1");
+            props.put("openai.http.warmup.enabled", "true");
+            props.put("openai.http.warmup.timeout-ms", "1500");
+
+            long start = System.nanoTime();
+            OpenAIChatClient client = stub.client(props);
+            long startupMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(startupMs < 1000, "startup took " + startupMs + " ms");
+            assertFalse(client.warmup().isDone());
+            assertTrue(TestLlmServer.await(() -> client.warmup().isCompletedExceptionally()));
+        }
+    }
+
+    private static void askTogether(OpenAIChatClient client, int first, int n) {
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            calls.add(TestLlmServer.ask(client, first + i));
+        }
+        for (CompletableFuture<String> call : calls) {
+            assertEquals(TestLlmServer.ANSWER, call.join());
+        }
+    }
+
+    private static int inFlight(OpenAIChatClient client) {
+        return ((Number) TestLlmServer.stats(client, "limiter").get("inFlight")).intValue();
+    }
+}
@@ -0,0 +1,128 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The primary and the hedge timer can finish at the same moment: a hedge is
+ * either part of the call's outcome or never started.
+ */
+class RequestHedgerTest {
+
+    private static final long DELAY_MS = 30;
+
+    // One sample is enough, the delay is the floor, and the budget always has credit.
+    private final RequestHedger hedger = new RequestHedger(0.5, DELAY_MS, 1, 1.0, 1000, 60_000);
+
+    @AfterEach
+    void stop() {
+        hedger.shutdown();
+    }
+
+    @Test
+    void primaryFailingWhileTheHedgeStartsWaitsForTheHedge() throws Exception {
+        seed();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        Attempts attempts = new Attempts(primary, () -> {
+            // The primary fails after the timer decided to hedge, before the hedge is in the race.
+            primary.completeExceptionally(new IllegalStateException("HTTP 500"));
+            return hedge;
+        });
+
+        CompletableFuture<String> result = hedger.call(attempts);
+        assertTrue(attempts.hedgeStarted.await(2, TimeUnit.SECONDS));
+        assertFalse(result.isDone(), "settled without the hedge it had started");
+
+        hedge.complete("hedge answer");
+        assertEquals("hedge answer", result.get(2, TimeUnit.SECONDS));
+        assertEquals(1L, hedger.stats().get("hedgeWins"));
+    }
+
+    @Test
+    void hedgeThatCannotBeMadeLeavesThePrimaryFailure() throws Exception {
+        seed();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        Attempts attempts = new Attempts(primary, () -> {
+            primary.completeExceptionally(new IllegalStateException("HTTP 500"));
+            return null;  // e.g. the breaker opened
+        });
+
+        CompletableFuture<String> result = hedger.call(attempts);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(2, TimeUnit.SECONDS));
+        assertEquals("HTTP 500", e.getCause().getMessage());
+        assertEquals(0L, hedger.stats().get("hedges"));
+    }
+
+    @Test
+    void noHedgeOnceThePrimaryHasFailed() throws Exception {
+        seed();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        Attempts attempts = new Attempts(primary, () -> {
+            throw new AssertionError("hedge started after the call was settled");
+        });
+
+        CompletableFuture<String> result = hedger.call(attempts);
+        primary.completeExceptionally(new IllegalStateException("HTTP 500"));
+        assertTrue(result.isCompletedExceptionally());
+
+        Thread.sleep(DELAY_MS * 4);
+        assertEquals(1, attempts.made);
+        assertEquals(0L, hedger.stats().get("hedges"));
+    }
+
+    @Test
+    void primaryAnsweringWhileTheHedgeStartsCancelsTheHedge() throws Exception {
+        seed();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        Attempts attempts = new Attempts(primary, () -> {
+            primary.complete("primary answer");
+            return hedge;
+        });
+
+        CompletableFuture<String> result = hedger.call(attempts);
+        assertEquals("primary answer", result.get(2, TimeUnit.SECONDS));
+        assertTrue(attempts.hedgeStarted.await(2, TimeUnit.SECONDS));
+        assertTrue(TestLlmServer.await(hedge::isCancelled), "hedge left running");
+    }
+
+    /** One fast call, so the next one has a hedge delay (the DELAY_MS floor). */
+    private void seed() {
+        assertEquals("seed", hedger.call(() -> CompletableFuture.completedFuture("seed")).join());
+        assertEquals(DELAY_MS * 1_000_000L, hedger.hedgeDelayNanos());
+    }
+
+    /** The primary first, then the hedge supplier; counts what was made. */
+    private static final class Attempts implements Supplier<CompletableFuture<String>> {
+        private final List<Supplier<CompletableFuture<String>>> next = new ArrayList<>();
+        final CountDownLatch hedgeStarted = new CountDownLatch(1);
+        volatile int made;
+
+        Attempts(CompletableFuture<String> primary, Supplier<CompletableFuture<String>> hedge) {
+            next.add(() -> primary);
+            next.add(hedge);
+        }
+
+        @Override
+        public CompletableFuture<String> get() {
+            Supplier<CompletableFuture<String>> attempt = next.get(made++);
+            CompletableFuture<String> f = attempt.get();
+            if (made == 2) hedgeStarted.countDown();
+            return f;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Money formatting is called from every request thread at once, so it has
+ * to give the same text under contention as it does alone.
+ */
+class StringUtilTest {
+
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void centsMatchDecimalReference() {
+        for (long cents : inputs(new Random(20))) {
+            assertEquals(reference(cents), StringUtil.money(cents), () -> Long.toString(cents));
+        }
+        assertEquals("an unspecified amount", StringUtil.money(Money.NO_AMOUNT));
+        assertEquals("-$92233720368547758.07", StringUtil.money(Money.NO_AMOUNT + 1));
+    }
+
+    @Test
+    void sixtyFourThreadsAgreeWithSingleThreaded() throws Exception {
+        long[] cents = inputs(new Random(64));
+        double[] dollars = new double[cents.length];
+        String[] expectedCents = new String[cents.length];
+        String[] expectedDollars = new String[cents.length];
+        for (int i = 0; i < cents.length; i++) {
+            dollars[i] = cents[i] / 100.0 + (i % 7) * 0.001;
+            expectedCents[i] = StringUtil.money(cents[i]);
+            expectedDollars[i] = StringUtil.money(dollars[i]);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<String> mismatch = new AtomicReference<>();
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t * 131;
+                workers.add(pool.submit(() -> {
+                    StringBuilder sb = new StringBuilder();
+                    start.await();
+                    for (int round = 0; round < ROUNDS && mismatch.get() == null; round++) {
+                        for (int k = 0; k < cents.length; k++) {
+                            // Each thread walks the inputs from its own offset, so neighbours differ.
+                            int i = (k + offset) % cents.length;
+                            check(expectedCents[i], StringUtil.money(cents[i]), mismatch);
+                            check(expectedDollars[i], StringUtil.money(dollars[i]), mismatch);
+                            sb.setLength(0);
+                            check(expectedCents[i], StringUtil.appendMoney(sb, cents[i]).toString(), mismatch);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertNull(mismatch.get());
+    }
+
+    private static void check(String expected, String actual, AtomicReference<String> mismatch) {
+        if (!expected.equals(actual)) {
+            mismatch.compareAndSet(null, "expected " + expected + " but got " + actual);
+        }
+    }
+
+    /** Everyday amounts, both signs, with the extremes mixed in. */
+    private static long[] inputs(Random random) {
+        long[] edges = {0, 1, -1, 9, 10, 99, 100, -100, 12_345, Money.MAX_CENTS, -Money.MAX_CENTS,
+                Long.MAX_VALUE, Money.NO_AMOUNT + 1};
+        long[] out = new long[4_000];
+        System.arraycopy(edges, 0, out, 0, edges.length);
+        for (int i = edges.length; i < out.length; i++) {
+            out[i] = (i % 10 == 0) ? random.nextLong() : random.nextInt(2_000_000) - 1_000_000;
+        }
+        return out;
+    }
+
+    /** "$d.cc" built from BigDecimal, independent of appendMoney. */
+    private static String reference(long cents) {
+        BigDecimal value = BigDecimal.valueOf(cents, 2);
+        String s = "$" + value.abs().toPlainString();
+        assertTrue(s.matches("\\$\\d+\\.\\d\\d"), s);
+        return (cents < 0 ? "-" : "") + s;
+    }
+}
@@ -0,0 +1,228 @@
+package com.cwru.budgetbot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * In-process stand-in for POST {base}/responses, for tests that drive the
+ * real OpenAIChatClient. Every request waits delayMs (plus tailExtraMs for
+ * a tailRate share of them) and then answers with status: 200 and a
+ * Responses-shaped body, or an error body for anything else. Both can be
+ * changed while it runs. The wait is a scheduled callback, not a sleeping
+ * thread.
+ *
+ * A "stream": true request gets STREAM_TOKENS text deltas as Server-Sent
+ * Events instead, one every delayMs. A stream the client hangs up on is
+ * counted in abandonedStreams().
+ *
+ * client() and app() wire the real beans to it the way Spring does;
+ * they are shut down with the server.
+ */
+class TestLlmServer implements AutoCloseable {
+
+    static final String ANSWER = "Stub answer.";
+
+    private static final byte[] BODY = ("{\"output\":[{\"content\":[{\"type\":\"output_text\","
+            + "\"text\":\"" + ANSWER + "\"}]}]}").getBytes(StandardCharsets.UTF_8);
+
+    static final int STREAM_TOKENS = 20;
+
+    private static final byte[] ERROR_BODY = "{\"error\":{\"message\":\"stub error\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final IntentParser PARSER = new IntentParser(new MerchantLexicon(), new MoneyParser(), new SwipeParser());
+    private static final DecisionEngine ENGINE = new DecisionEngine();
+    private static final BudgetSnapshot SNAPSHOT = BudgetSnapshot.ofCents(12_345, 1_789, 43_210, 2_345, 14, 3);
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newFixedThreadPool(2);
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong abandonedStreams = new AtomicLong();
+    private volatile long delayMs;
+    private volatile int status = 200;
+    private volatile double tailRate;
+    private volatile long tailExtraMs;
+    private final List<AnnotationConfigApplicationContext> contexts = new ArrayList<>();
+
+    TestLlmServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/v1/responses", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /** A client pointed at this server, with these properties on top of the defaults. */
+    OpenAIChatClient client(Map<String, Object> overrides) {
+        return context(overrides, OpenAIChatClient.class).getBean(OpenAIChatClient.class);
+    }
+
+    /** AssistantController and everything it needs, with the client pointed at this server. */
+    AnnotationConfigApplicationContext app(Map<String, Object> overrides) {
+        return context(overrides, MerchantLexicon.class, MoneyParser.class, SwipeParser.class, IntentParser.class,
+                DecisionEngine.class, BudgetBotResponder.class, LedgerService.class, OpenAIChatClient.class,
+                AssistantController.class);
+    }
+
+    private AnnotationConfigApplicationContext context(Map<String, Object> overrides, Class<?>... beans) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("openai.api.key", "test-key");
+        props.put("openai.base-url", baseUrl());
+        props.put("openai.http.version", "HTTP_1_1");
+        props.put("openai.http.warmup.enabled", "false");
+        props.put("merchants.watch", "false");
+        props.putAll(overrides);
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", props));
+        context.register(beans);
+        context.refresh();
+        contexts.add(context);
+        return context;
+    }
+
+    /**
+     * Ask the client "can i buy starbucks for $n". Different n give different
+     * prompts, so single-flight never folds calls together.
+     */
+    static CompletableFuture<String> ask(OpenAIChatClient client, int n) {
+        String question = "can i buy starbucks for $" + n;
+        PurchaseQuery q = PARSER.parse(question);
+        return client.getAdviceAsync(question, q, ENGINE.decide(q, SNAPSHOT), SNAPSHOT, "ok");
+    }
+
+    /** One section of client.stats(), e.g. "breaker" or "limiter". */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> stats(OpenAIChatClient client, String section) {
+        return (Map<String, Object>) client.stats().get(section);
+    }
+
+    /**
+     * Wait up to 2 s for the condition. The caller's future can complete a
+     * moment before the permit is released, so stats are polled, not read once.
+     */
+    static boolean await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return condition.getAsBoolean();
+    }
+
+    long requestCount() {
+        return requests.get();
+    }
+
+    long abandonedStreams() {
+        return abandonedStreams.get();
+    }
+
+    void setDelay(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /** Status for requests that arrive from now on; anything but 200 gets an error body. */
+    void setStatus(int status) {
+        this.status = status;
+    }
+
+    /** This share (0..1) of new requests takes extraMs longer. */
+    void setTail(double rate, long extraMs) {
+        this.tailExtraMs = extraMs;
+        this.tailRate = rate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (request.contains("\"stream\":true")) {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            AtomicBoolean gone = new AtomicBoolean();
+            for (int i = 0; i < STREAM_TOKENS; i++) {
+                int token = i;
+                timer.schedule(() -> streamToken(exchange, token, gone), delayMs * (i + 1), TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        int code = status;
+        long delay = delayMs;
+        if (tailRate > 0 && ThreadLocalRandom.current().nextDouble() < tailRate) {
+            delay += tailExtraMs;
+        }
+        byte[] body = (code == 200) ? BODY : ERROR_BODY;
+        timer.schedule(() -> respond(exchange, code, body), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void streamToken(HttpExchange exchange, int token, AtomicBoolean gone) {
+        if (gone.get()) return;
+        try {
+            OutputStream out = exchange.getResponseBody();
+            out.write(("event: response.output_text.delta\n"
+                    + "data: {\"type\":\"response.output_text.delta\",\"delta\":\"tok \"}\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            if (token == STREAM_TOKENS - 1) {
+                out.write("data: {\"type\":\"response.completed\"}\n\n".getBytes(StandardCharsets.UTF_8));
+                out.close();
+                exchange.close();
+            }
+        } catch (IOException e) {
+            if (gone.compareAndSet(false, true)) {
+                abandonedStreams.incrementAndGet();
+            }
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) {
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // client gave up (e.g. a cancelled hedge)
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        contexts.forEach(AnnotationConfigApplicationContext::close);
+        server.stop(0);
+        handlers.shutdownNow();
+        timer.shutdownNow();
+    }
+}
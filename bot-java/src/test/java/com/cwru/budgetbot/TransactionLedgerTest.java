@@ -0,0 +1,68 @@
+package com.cwru.budgetbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Reopening a ledger after a crash left a segment file without its size or
+ * header.
+ */
+class TransactionLedgerTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+    private static final long USER = 42;
+    private static final long TODAY = LocalDate.of(2025, 10, 15).toEpochDay();
+    // Records that fill one segment after its header.
+    private static final int PER_SEGMENT = (SEGMENT_BYTES - TransactionLedger.HEADER_BYTES)
+            / TransactionLedger.RECORD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void emptyLastSegmentIsCompletedOnOpen() throws IOException {
+        try (TransactionLedger ledger = open()) {
+            for (int i = 0; i < PER_SEGMENT; i++) {
+                ledger.append(USER, LedgerKind.PERSONAL, TODAY, 10);
+            }
+        }
+        // Segment 0 is full; the crash came right after CREATE_NEW of segment 1, leaving 0 bytes.
+        Path next = Files.createFile(dir.resolve(TransactionLedger.segmentName(1)));
+
+        try (TransactionLedger ledger = open()) {
+            assertEquals(SEGMENT_BYTES, Files.size(next));
+            assertEquals(2L, ledger.stats().get("segments"));
+            ledger.append(USER, LedgerKind.PERSONAL, TODAY, 750);
+        }
+        try (TransactionLedger ledger = open()) {
+            assertEquals((long) PER_SEGMENT + 1, ledger.stats().get("entries"));
+            BudgetSnapshot snap = ledger.snapshot(USER, TODAY, BudgetSnapshot.demo());
+            assertEquals(10L * PER_SEGMENT + 750, snap.getSpentThisWeekPersonalCents());
+        }
+    }
+
+    @Test
+    void shortEarlierSegmentIsStillAnError() throws IOException {
+        try (TransactionLedger ledger = open()) {
+            ledger.append(USER, LedgerKind.PERSONAL, TODAY, 1_250);
+        }
+        Files.write(dir.resolve(TransactionLedger.segmentName(0)), new byte[0]);
+        Files.createFile(dir.resolve(TransactionLedger.segmentName(1)));
+
+        IOException e = assertThrows(IOException.class, this::open);
+        assertEquals(dir.resolve(TransactionLedger.segmentName(0)) + " is not a ledger segment (too short)",
+                e.getMessage());
+    }
+
+    private TransactionLedger open() throws IOException {
+        return TransactionLedger.open(dir, SEGMENT_BYTES, false, null, 0);
+    }
+}